@@ -30,13 +30,21 @@ import software.amazon.awscdk.services.cognito.UserPoolDomainOptions;
 import software.amazon.awscdk.services.cognito.UserPoolResourceServer;
 import software.amazon.awscdk.services.dynamodb.Attribute;
 import software.amazon.awscdk.services.dynamodb.AttributeType;
+import software.amazon.awscdk.services.dynamodb.GlobalSecondaryIndexProps;
+import software.amazon.awscdk.services.dynamodb.ProjectionType;
 import software.amazon.awscdk.services.dynamodb.Table;
 import software.amazon.awscdk.services.kms.Key;
+import software.amazon.awscdk.services.lambda.Alias;
 import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
 import software.amazon.awscdk.services.lambda.Runtime;
+import software.amazon.awscdk.services.lambda.SnapStartConf;
 import software.amazon.awscdk.services.lambda.eventsources.SqsEventSource;
 import software.amazon.awscdk.services.s3.Bucket;
+import software.amazon.awscdk.services.s3.EventType;
+import software.amazon.awscdk.services.s3.LifecycleRule;
+import software.amazon.awscdk.services.s3.NotificationKeyFilter;
+import software.amazon.awscdk.services.s3.notifications.LambdaDestination;
 import software.amazon.awscdk.services.secretsmanager.Secret;
 import software.amazon.awscdk.services.sqs.Queue;
 import software.amazon.awscdk.services.sqs.QueueEncryption;
@@ -51,6 +59,12 @@ public class MyStack extends Stack {
     private static final String OUTPUT_QUEUE_URL_TEMPLATE = "OUTPUT_QUEUE_URL_TEMPLATE";
     private static final String INPUT_QUEUE_URL_TEMPLATE = "INPUT_QUEUE_URL_TEMPLATE";
     private static final String COGNITO_URL = "COGNITO_URL";
+    private static final String WEBHOOK_RETRY_QUEUE_URL = "WEBHOOK_RETRY_QUEUE_URL";
+    private static final String TENANT_IDS = "TENANT_IDS";
+    private static final String PENDING_STATUS_INDEX_ENABLED = "PENDING_STATUS_INDEX_ENABLED";
+    private static final String METRICS_DOCUMENT_TYPES = "METRICS_DOCUMENT_TYPES";
+    private static final int WEBHOOK_RETRY_TIMEOUT_IN_SECS = 60;
+    private static final String LIVE_ALIAS = "live";
 
     public MyStack(Construct scope, String system, String environment, Map<String, Object> envConfig,
             StackProps props) {
@@ -85,6 +99,20 @@ public class MyStack extends Stack {
                 .scopes(List.of(resourceServerScope))
                 .build();
 
+        @SuppressWarnings("unchecked")
+        List<String> tenantIds = (List<String>) envConfig.get("tenantIds");
+        String tenantIdList = String.join(",", tenantIds);
+
+        // O DynamoDB cria um único GSI por atualização de tabela: em ambientes já
+        // implantados, o createdAt-index vai num deploy e o pendingStatus-index num
+        // segundo, depois de "pendingStatusIndex": true no cdk.json do ambiente.
+        boolean pendingStatusIndex = Boolean.TRUE.equals(envConfig.get("pendingStatusIndex"));
+
+        // Tipos de documento publicados como dimensão das métricas; os demais viram OTHER.
+        @SuppressWarnings("unchecked")
+        List<String> metricsDocumentTypes = (List<String>) envConfig.getOrDefault("metricsDocumentTypes", List.of());
+        String metricsDocumentTypeList = String.join(",", metricsDocumentTypes);
+
         String bucketNameTemplate = String.format("%s-%s-bucket-<tenantId>", system, environment.toLowerCase());
         String tableNameTemplate = String.format("%s-%s-table-<tenantId>", system, environment);
         String inputQueueNameTemplate = String.format("%s-%s-queue-input-<tenantId>", system, environment);
@@ -98,10 +126,12 @@ public class MyStack extends Stack {
                 .code(getLambdaCode("ocr-multi-tenant-auth"))
                 .handler("br.com.prognum.multi_tenants_ocr.auth.Handler::handleRequest")
                 .runtime(Runtime.JAVA_17)
+                .snapStart(SnapStartConf.ON_PUBLISHED_VERSIONS)
                 .memorySize(512)
                 .timeout(Duration.seconds(30))
                 .environment(Map.of(COGNITO_URL, cognitoUrl))
                 .build();
+        Alias authAlias = createLiveAlias(authFunction, authFunctionName);
 
         String fromApiFunctionName = String.format("%s-%s-from-api-function", system, environment);
         Function fromApiFunction = Function.Builder.create(this, fromApiFunctionName)
@@ -109,6 +139,7 @@ public class MyStack extends Stack {
                 .code(getLambdaCode("ocr-multi-tenant-from-api"))
                 .handler("br.com.prognum.multi_tenants_ocr.from_api.Handler::handleRequest")
                 .runtime(Runtime.JAVA_17)
+                .snapStart(SnapStartConf.ON_PUBLISHED_VERSIONS)
                 .memorySize(512)
                 .timeout(Duration.seconds(30))
                 .environment(Map.of(BUCKET_NAME_TEMPLATE,
@@ -118,7 +149,54 @@ public class MyStack extends Stack {
                         INPUT_QUEUE_URL_TEMPLATE,
                         inputQueueUrlTemplate,
                         OUTPUT_QUEUE_URL_TEMPLATE,
-                        outputQueueUrlTemplate))
+                        outputQueueUrlTemplate,
+                        TENANT_IDS,
+                        tenantIdList,
+                        METRICS_DOCUMENT_TYPES,
+                        metricsDocumentTypeList))
+                .build();
+        Alias fromApiAlias = createLiveAlias(fromApiFunction, fromApiFunctionName);
+
+        String fromS3FunctionName = String.format("%s-%s-from-s3-function", system, environment);
+        Function fromS3Function = Function.Builder.create(this, fromS3FunctionName)
+                .functionName(fromS3FunctionName)
+                .code(getLambdaCode("ocr-multi-tenant-from-api"))
+                .handler("br.com.prognum.multi_tenants_ocr.from_api.S3EventHandler::handleRequest")
+                .runtime(Runtime.JAVA_17)
+                .memorySize(512)
+                .timeout(Duration.seconds(30))
+                .environment(Map.of(BUCKET_NAME_TEMPLATE,
+                        bucketNameTemplate,
+                        TABLE_NAME_TEMPLATE,
+                        tableNameTemplate,
+                        INPUT_QUEUE_URL_TEMPLATE,
+                        inputQueueUrlTemplate,
+                        TENANT_IDS,
+                        tenantIdList,
+                        METRICS_DOCUMENT_TYPES,
+                        metricsDocumentTypeList))
+                .build();
+
+        String resumableUploadFunctionName = String.format("%s-%s-resumable-upload-function", system, environment);
+        Function resumableUploadFunction = Function.Builder.create(this, resumableUploadFunctionName)
+                .functionName(resumableUploadFunctionName)
+                .code(getLambdaCode("ocr-multi-tenant-from-api"))
+                .handler("br.com.prognum.multi_tenants_ocr.from_api.ResumableUploadHandler::handleRequest")
+                .runtime(Runtime.JAVA_17)
+                .memorySize(512)
+                .timeout(Duration.seconds(30))
+                .environment(Map.of(BUCKET_NAME_TEMPLATE,
+                        bucketNameTemplate,
+                        TABLE_NAME_TEMPLATE,
+                        tableNameTemplate,
+                        INPUT_QUEUE_URL_TEMPLATE,
+                        inputQueueUrlTemplate,
+                        OUTPUT_QUEUE_URL_TEMPLATE,
+                        outputQueueUrlTemplate,
+                        TENANT_IDS,
+                        tenantIdList,
+                        METRICS_DOCUMENT_TYPES,
+                        metricsDocumentTypeList))
                 .build();
 
         String toApiFunctionName = String.format("%s-%s-to-api-function", system, environment);
@@ -127,9 +205,26 @@ public class MyStack extends Stack {
                 .code(getLambdaCode("ocr-multi-tenant-to-api"))
                 .handler("br.com.prognum.multi_tenants_ocr.to_api.Handler::handleRequest")
                 .runtime(Runtime.JAVA_17)
+                .snapStart(SnapStartConf.ON_PUBLISHED_VERSIONS)
                 .memorySize(512)
                 .timeout(Duration.seconds(30))
-                .environment(Map.of(TABLE_NAME_TEMPLATE, tableNameTemplate))
+                .environment(Map.of(TABLE_NAME_TEMPLATE,
+                        tableNameTemplate,
+                        BUCKET_NAME_TEMPLATE,
+                        bucketNameTemplate,
+                        TENANT_IDS,
+                        tenantIdList,
+                        PENDING_STATUS_INDEX_ENABLED,
+                        Boolean.toString(pendingStatusIndex)))
+                .build();
+        Alias toApiAlias = createLiveAlias(toApiFunction, toApiFunctionName);
+
+        // Fila única de retentativa das notificações de webhook; cada mensagem carrega o tenantId.
+        String webhookRetryQueueName = String.format("%s-%s-queue-webhook-retry", system, environment);
+        Queue webhookRetryQueue = Queue.Builder.create(this, webhookRetryQueueName)
+                .queueName(webhookRetryQueueName)
+                .encryption(QueueEncryption.KMS_MANAGED)
+                .visibilityTimeout(Duration.seconds(WEBHOOK_RETRY_TIMEOUT_IN_SECS * 6))
                 .build();
 
         String fromQueueToTableFunctionName = String.format("%s-%s-from-queue-to-table-function", system, environment);
@@ -138,15 +233,53 @@ public class MyStack extends Stack {
                 .code(getLambdaCode("ocr-multi-tenant-process-queue"))
                 .handler("br.com.prognum.multi_tenants_ocr.process_queue.Handler::handleRequest")
                 .runtime(Runtime.JAVA_17)
+                .snapStart(SnapStartConf.ON_PUBLISHED_VERSIONS)
                 .memorySize(512)
                 .timeout(Duration.seconds(30))
-                .environment(Map.of(TABLE_NAME_TEMPLATE, tableNameTemplate))
+                .environment(Map.of(TABLE_NAME_TEMPLATE,
+                        tableNameTemplate,
+                        BUCKET_NAME_TEMPLATE,
+                        bucketNameTemplate,
+                        WEBHOOK_RETRY_QUEUE_URL,
+                        webhookRetryQueue.getQueueUrl(),
+                        TENANT_IDS,
+                        tenantIdList))
                 .build();
+        Alias fromQueueToTableAlias = createLiveAlias(fromQueueToTableFunction, fromQueueToTableFunctionName);
+
+        String webhookFunctionName = String.format("%s-%s-webhook-function", system, environment);
+        Function webhookFunction = Function.Builder.create(this, webhookFunctionName)
+                .functionName(webhookFunctionName)
+                .code(getLambdaCode("ocr-multi-tenant-from-api"))
+                .handler("br.com.prognum.multi_tenants_ocr.from_api.WebhookHandler::handleRequest")
+                .runtime(Runtime.JAVA_17)
+                .memorySize(512)
+                .timeout(Duration.seconds(30))
+                .environment(Map.of(TABLE_NAME_TEMPLATE, tableNameTemplate, TENANT_IDS, tenantIdList))
+                .build();
+
+        String webhookRetryFunctionName = String.format("%s-%s-webhook-retry-function", system, environment);
+        Function webhookRetryFunction = Function.Builder.create(this, webhookRetryFunctionName)
+                .functionName(webhookRetryFunctionName)
+                .code(getLambdaCode("ocr-multi-tenant-process-queue"))
+                .handler("br.com.prognum.multi_tenants_ocr.process_queue.WebhookRetryHandler::handleRequest")
+                .runtime(Runtime.JAVA_17)
+                .memorySize(512)
+                .timeout(Duration.seconds(WEBHOOK_RETRY_TIMEOUT_IN_SECS))
+                .environment(Map.of(TABLE_NAME_TEMPLATE,
+                        tableNameTemplate,
+                        WEBHOOK_RETRY_QUEUE_URL,
+                        webhookRetryQueue.getQueueUrl(),
+                        TENANT_IDS,
+                        tenantIdList))
+                .build();
+
+        webhookRetryQueue.grantSendMessages(fromQueueToTableFunction);
+        webhookRetryQueue.grantSendMessages(webhookRetryFunction);
+        webhookRetryFunction.addEventSource(
+                SqsEventSource.Builder.create(webhookRetryQueue).batchSize(10).reportBatchItemFailures(true).build());
 
 
-        @SuppressWarnings("unchecked") 
-        List<String> tenantIds = (List<String>) envConfig.get("tenantIds");
-        
         List<UserPoolClient> userPoolClients = new ArrayList<UserPoolClient>();
         List<Bucket> buckets = new ArrayList<Bucket>();
         for (int i = 0; i < tenantIds.size(); i++) {
@@ -186,11 +319,35 @@ public class MyStack extends Stack {
                     .removalPolicy(RemovalPolicy.RETAIN).deletionProtection(true)
                     .build();
 
+            // Índices da listagem GET /documents. Nenhum deles projeta o resultado do OCR;
+            // o de pendentes é esparso, pois pendingStatus só existe enquanto o status não é terminal.
+            List<String> listingAttributes = List.of("requestId", "status", "documentType", "correlationId",
+                    "updatedAt");
+            table.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
+                    .indexName("createdAt-index")
+                    .partitionKey(Attribute.builder().name("pk").type(AttributeType.STRING).build())
+                    .sortKey(Attribute.builder().name("createdAt").type(AttributeType.STRING).build())
+                    .projectionType(ProjectionType.INCLUDE)
+                    .nonKeyAttributes(listingAttributes)
+                    .build());
+            if (pendingStatusIndex) {
+                table.addGlobalSecondaryIndex(GlobalSecondaryIndexProps.builder()
+                        .indexName("pendingStatus-index")
+                        .partitionKey(Attribute.builder().name("pendingStatus").type(AttributeType.STRING).build())
+                        .sortKey(Attribute.builder().name("createdAt").type(AttributeType.STRING).build())
+                        .projectionType(ProjectionType.INCLUDE)
+                        .nonKeyAttributes(listingAttributes)
+                        .build());
+            }
+
             String bucketId = String.format("%s-%s-bucket-%s", system, environment.toLowerCase(), tenantId);
             Bucket bucket = Bucket.Builder.create(this, bucketId)
                     .bucketName(bucketId)
                     .removalPolicy(RemovalPolicy.RETAIN)
                     .encryptionKey(key)
+                    .lifecycleRules(List.of(LifecycleRule.builder()
+                            .abortIncompleteMultipartUploadAfter(Duration.days(1))
+                            .build()))
                     .build();
 
             String inputQueueId = String.format("%s-%s-queue-input-%s.fifo", system, environment, tenantId);
@@ -213,10 +370,27 @@ public class MyStack extends Stack {
             bucket.grantWrite(fromApiFunction);
             table.grantWriteData(fromApiFunction);
 
+            // Só os documentos do tenant; resultados e demais objetos não acionam a função.
+            bucket.addEventNotification(EventType.OBJECT_CREATED,
+                    new LambdaDestination(fromS3Function),
+                    NotificationKeyFilter.builder().prefix(String.format("tenants/%s/requests/", tenantId)).build());
+            table.grantWriteData(fromS3Function);
+            inputQueue.grantSendMessages(fromS3Function);
+
+            bucket.grantReadWrite(resumableUploadFunction);
+            table.grantReadWriteData(resumableUploadFunction);
+            inputQueue.grantSendMessages(resumableUploadFunction);
+
             table.grantFullAccess(toApiFunction);
+            bucket.grantRead(toApiFunction, "tenants/*/results/*");
             table.grantWriteData(fromQueueToTableFunction);
+            bucket.grantPut(fromQueueToTableFunction, "tenants/*/results/*");
+            table.grant(fromQueueToTableFunction, "dynamodb:PartiQLUpdate");
+            table.grantReadData(fromQueueToTableFunction);
+            table.grantReadData(webhookRetryFunction);
+            table.grantReadWriteData(webhookFunction);
             
-            fromQueueToTableFunction.addEventSource(
+            fromQueueToTableAlias.addEventSource(
                     SqsEventSource.Builder.create(outputQueue).batchSize(10).reportBatchItemFailures(true).build());
             inputQueue.grantSendMessages(fromApiFunction);
         }
@@ -232,19 +406,29 @@ public class MyStack extends Stack {
                 .apiName(String.format("%s-%s-api", system, environment))
                 .corsPreflight(CorsPreflightOptions.builder()
                         .allowOrigins(Arrays.asList("*"))
-                        .allowMethods(Arrays.asList(CorsHttpMethod.GET, CorsHttpMethod.POST))
-                        .allowHeaders(Arrays.asList("Content-Type", "x-tenant-id", "x-request-id"))
+                        .allowMethods(Arrays.asList(CorsHttpMethod.GET, CorsHttpMethod.POST, CorsHttpMethod.PUT,
+                                CorsHttpMethod.DELETE))
+                        .allowHeaders(Arrays.asList("Content-Type", "x-tenant-id", "x-request-id", "x-tipo-documento",
+                                "x-correlation-id", "x-consistent-read"))
                         .build())
                 .build();
 
-        HttpLambdaIntegration authIntegration = HttpLambdaIntegration.Builder.create("AuthIntegration", authFunction)
+        HttpLambdaIntegration authIntegration = HttpLambdaIntegration.Builder.create("AuthIntegration", authAlias)
                 .build();
 
         HttpLambdaIntegration fromApiIntegration = HttpLambdaIntegration.Builder
-                .create("FromApiIntegration", fromApiFunction)
+                .create("FromApiIntegration", fromApiAlias)
+                .build();
+
+        HttpLambdaIntegration resumableUploadIntegration = HttpLambdaIntegration.Builder
+                .create("ResumableUploadIntegration", resumableUploadFunction)
                 .build();
 
-        HttpLambdaIntegration toApiIntegration = HttpLambdaIntegration.Builder.create("ToApiIntegration", toApiFunction)
+        HttpLambdaIntegration toApiIntegration = HttpLambdaIntegration.Builder.create("ToApiIntegration", toApiAlias)
+                .build();
+
+        HttpLambdaIntegration webhookIntegration = HttpLambdaIntegration.Builder
+                .create("WebhookIntegration", webhookFunction)
                 .build();
 
         httpApi.addRoutes(AddRoutesOptions.builder()
@@ -260,6 +444,48 @@ public class MyStack extends Stack {
                 .authorizer(httpUserPoolAuthorizer)
                 .build());
 
+        httpApi.addRoutes(AddRoutesOptions.builder()
+                .path("/documents/batch")
+                .methods(Arrays.asList(HttpMethod.POST))
+                .integration(fromApiIntegration)
+                .authorizer(httpUserPoolAuthorizer)
+                .build());
+
+        httpApi.addRoutes(AddRoutesOptions.builder()
+                .path("/documents/uploads")
+                .methods(Arrays.asList(HttpMethod.POST))
+                .integration(fromApiIntegration)
+                .authorizer(httpUserPoolAuthorizer)
+                .build());
+
+        httpApi.addRoutes(AddRoutesOptions.builder()
+                .path("/documents/multipart")
+                .methods(Arrays.asList(HttpMethod.POST))
+                .integration(resumableUploadIntegration)
+                .authorizer(httpUserPoolAuthorizer)
+                .build());
+
+        httpApi.addRoutes(AddRoutesOptions.builder()
+                .path("/documents/multipart/{requestId}/parts/{partNumber}")
+                .methods(Arrays.asList(HttpMethod.POST))
+                .integration(resumableUploadIntegration)
+                .authorizer(httpUserPoolAuthorizer)
+                .build());
+
+        httpApi.addRoutes(AddRoutesOptions.builder()
+                .path("/documents/multipart/{requestId}/parts")
+                .methods(Arrays.asList(HttpMethod.GET))
+                .integration(resumableUploadIntegration)
+                .authorizer(httpUserPoolAuthorizer)
+                .build());
+
+        httpApi.addRoutes(AddRoutesOptions.builder()
+                .path("/documents/multipart/{requestId}/complete")
+                .methods(Arrays.asList(HttpMethod.POST))
+                .integration(resumableUploadIntegration)
+                .authorizer(httpUserPoolAuthorizer)
+                .build());
+
         httpApi.addRoutes(AddRoutesOptions.builder()
                 .path("/documents")
                 .methods(Arrays.asList(HttpMethod.GET))
@@ -267,6 +493,20 @@ public class MyStack extends Stack {
                 .authorizer(httpUserPoolAuthorizer)
                 .build());
 
+        httpApi.addRoutes(AddRoutesOptions.builder()
+                .path("/documents/status")
+                .methods(Arrays.asList(HttpMethod.POST))
+                .integration(toApiIntegration)
+                .authorizer(httpUserPoolAuthorizer)
+                .build());
+
+        httpApi.addRoutes(AddRoutesOptions.builder()
+                .path("/webhook")
+                .methods(Arrays.asList(HttpMethod.PUT, HttpMethod.DELETE))
+                .integration(webhookIntegration)
+                .authorizer(httpUserPoolAuthorizer)
+                .build());
+
         CfnOutput.Builder.create(this, String.format("%s-%s-api-url-output", system, environment))
                 .value(httpApi.getApiEndpoint())
                 .description("HTTP API endpoint URL")
@@ -280,6 +520,17 @@ public class MyStack extends Stack {
                 .build();
     }
 
+    /**
+     * Alias que aponta para a versão publicada da função. Com SnapStart, o snapshot é
+     * criado ao publicar a versão, e só as invocações pela versão (ou por este alias) o usam.
+     */
+    private Alias createLiveAlias(Function function, String functionName) {
+        return Alias.Builder.create(this, String.format("%s-%s-alias", functionName, LIVE_ALIAS))
+                .aliasName(LIVE_ALIAS)
+                .version(function.getCurrentVersion())
+                .build();
+    }
+
     private static Code getLambdaCode(String lambdaName) {
         return Code.fromAsset(String.format("../ocr-multi-tenant-lambdas/%1$s/target/%1$s-lambda.jar", lambdaName));
     }
@@ -0,0 +1,67 @@
+package br.com.prognum.multi_tenants_ocr.auth;
+
+/**
+ * Circuit breaker das chamadas ao Cognito. Após {@code failureThreshold} falhas
+ * seguidas o circuito abre e as chamadas são recusadas por
+ * {@code openDurationMillis}; passado esse tempo, uma única chamada de teste é
+ * liberada: se der certo o circuito fecha, se falhar abre de novo.
+ */
+public class CircuitBreaker {
+
+	private final int failureThreshold;
+	private final long openDurationMillis;
+
+	private int consecutiveFailures;
+	private long openedAt = -1;
+	private boolean trialInFlight;
+
+	public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openDurationMillis = openDurationMillis;
+	}
+
+	/**
+	 * Indica se a chamada pode seguir. Com o circuito aberto só libera a chamada
+	 * de teste, uma de cada vez.
+	 */
+	public synchronized boolean tryAcquire() {
+		if (openedAt < 0) {
+			return true;
+		}
+		if (System.currentTimeMillis() - openedAt < openDurationMillis || trialInFlight) {
+			return false;
+		}
+		trialInFlight = true;
+		return true;
+	}
+
+	public synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+		openedAt = -1;
+		trialInFlight = false;
+	}
+
+	public synchronized void recordFailure() {
+		consecutiveFailures++;
+		trialInFlight = false;
+		if (openedAt >= 0 || consecutiveFailures >= failureThreshold) {
+			openedAt = System.currentTimeMillis();
+		}
+	}
+
+	public synchronized boolean isOpen() {
+		return openedAt >= 0;
+	}
+
+	/**
+	 * Segundos até a próxima chamada de teste, arredondados para cima (mínimo 1).
+	 */
+	public synchronized long getRetryAfterSeconds() {
+		if (openedAt < 0) {
+			return 0;
+		}
+		long remainingMillis = openDurationMillis - (System.currentTimeMillis() - openedAt);
+		return Math.max(1, (remainingMillis + 999) / 1000);
+	}
+
+}
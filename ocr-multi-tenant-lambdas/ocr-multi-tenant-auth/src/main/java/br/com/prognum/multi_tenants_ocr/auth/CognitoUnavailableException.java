@@ -0,0 +1,22 @@
+package br.com.prognum.multi_tenants_ocr.auth;
+
+/**
+ * Lançada quando o circuito das chamadas ao Cognito está aberto; o handler a
+ * converte em 503 com Retry-After.
+ */
+public class CognitoUnavailableException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterSeconds;
+
+	public CognitoUnavailableException(long retryAfterSeconds) {
+		super("Cognito indisponível, tente novamente em " + retryAfterSeconds + "s");
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+}
@@ -8,6 +8,15 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.crac.Core;
+import org.crac.Resource;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
@@ -16,47 +25,189 @@ import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+import br.com.prognum.multi_tenant_ocr.common.utils.Metrics;
+import br.com.prognum.multi_tenant_ocr.common.utils.StageTimer;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+
+public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse>, Resource {
+	private static final int TOKEN_CACHE_MAX_ENTRIES = 1000;
+	private static final long TOKEN_EXPIRATION_SAFETY_MARGIN_MILLIS = Duration.ofMinutes(5).toMillis();
+	private static final Duration COGNITO_CONNECT_TIMEOUT = Duration.ofSeconds(2);
+	private static final Duration COGNITO_REQUEST_TIMEOUT = Duration.ofSeconds(5);
+	private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+	private static final long CIRCUIT_OPEN_DURATION_MILLIS = Duration.ofSeconds(30).toMillis();
+
 	private final URI cognitoUrl;
 	private final ObjectMapper objectMapper;
 	private final HttpClient httpClient;
+	private final TokenCache tokenCache;
+	private final CircuitBreaker circuitBreaker;
+	private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+	private final StructuredLogger logger;
+	private final Metrics metrics;
 
 	public Handler() {
 		this(URI.create(System.getenv("COGNITO_URL")), new ObjectMapper(),
-				HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build());
+				HttpClient.newBuilder().connectTimeout(COGNITO_CONNECT_TIMEOUT).build());
+		Core.getGlobalContext().register(this);
 	}
 
 	public Handler(URI cognitoUrl, ObjectMapper objectMapper, HttpClient httpClient) {
+		this(cognitoUrl, objectMapper, httpClient,
+				new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_DURATION_MILLIS));
+	}
+
+	public Handler(URI cognitoUrl, ObjectMapper objectMapper, HttpClient httpClient, CircuitBreaker circuitBreaker) {
 		this.cognitoUrl = cognitoUrl;
-		this.objectMapper = new ObjectMapper();
-		this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+		this.objectMapper = objectMapper;
+		this.httpClient = httpClient;
+		this.circuitBreaker = circuitBreaker;
+		this.tokenCache = new TokenCache(TOKEN_CACHE_MAX_ENTRIES, TOKEN_EXPIRATION_SAFETY_MARGIN_MILLIS);
+		this.logger = StructuredLogger.getInstance();
+		this.metrics = Metrics.getInstance();
+	}
+
+	/**
+	 * Priming antes do snapshot do SnapStart: aquece o ObjectMapper, a montagem da
+	 * requisição ao Cognito e o contexto TLS padrão, sem chamadas de rede. O
+	 * HttpClient do Java 17 não pode ser fechado, então um cliente de priming
+	 * deixaria no snapshot sua thread de seletor e uma conexão keep-alive com o
+	 * Cognito. Falhas são ignoradas.
+	 */
+	@Override
+	public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+		try {
+			AuthRequest authRequest = objectMapper.readValue("{\"client_id\":\"priming\",\"client_secret\":\"priming\"}",
+					AuthRequest.class);
+			objectMapper.writeValueAsString(Map.of("token", TokenCache.buildKey(authRequest.getClientId(),
+					authRequest.getClientSecret())));
+			parseCognitoResponse("{\"access_token\":\"priming\",\"expires_in\":3600}");
+
+			buildCognitoRequest(authRequest.getClientId(), authRequest.getClientSecret());
+			SSLContext.getDefault().createSSLEngine();
+		} catch (Exception e) {
+			// Priming é o melhor esforço; o handler funciona sem ele.
+		}
+	}
+
+	@Override
+	public void afterRestore(org.crac.Context<? extends Resource> context) {
+		// O priming não usou o HttpClient do handler e o cache de tokens está vazio.
 	}
 
 	@Override
 	public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+		logger.startInvocation(context.getAwsRequestId());
+		metrics.startInvocation();
 		try {
 			AuthRequest authRequest = objectMapper.readValue(event.getBody(), AuthRequest.class);
-			String accessToken = authenticateWithCognito(authRequest.getClientId(), authRequest.getClientSecret());
+			String accessToken;
+			try {
+				accessToken = getAccessToken(authRequest.getClientId(), authRequest.getClientSecret());
+			} catch (CognitoUnavailableException e) {
+				logger.warn(e.getMessage(), "retryAfterSeconds", e.getRetryAfterSeconds());
+				metrics.count("cognitoUnavailable", 1);
+				return buildUnavailableResponse(e);
+			}
+			logger.info("Token cache", "hits", tokenCache.getHits(), "misses", tokenCache.getMisses(), "hitRate",
+					tokenCache.getHitRate(), "timeSavedMillis", tokenCache.getTimeSavedMillis());
 			return buildSuccessResponse(accessToken);
 
 		} catch (Exception e) {
+			logger.error("Request failed", e);
 			throw new RuntimeException(e);
+		} finally {
+			metrics.flush();
+			logger.flush();
 		}
 	}
 
-	private String authenticateWithCognito(String clientId, String clientSecret) throws Exception {
-		HttpRequest request = buildCognitoRequest(clientId, clientSecret);
+	/**
+	 * Devolve o token em cache para as credenciais ou, na falta dele, obtém um
+	 * novo no Cognito e o guarda até pouco antes de expirar. Pedidos simultâneos
+	 * com as mesmas credenciais aguardam a mesma chamada em andamento.
+	 */
+	private String getAccessToken(String clientId, String clientSecret) throws Exception {
+		String cacheKey = TokenCache.buildKey(clientId, clientSecret);
+		String accessToken = tokenCache.get(cacheKey);
+		if (accessToken != null) {
+			metrics.count("tokenCacheHits", 1);
+			return accessToken;
+		}
+		metrics.count("tokenCacheMisses", 1);
+
+		CompletableFuture<String> call = new CompletableFuture<>();
+		CompletableFuture<String> existing = inFlight.putIfAbsent(cacheKey, call);
+		if (existing != null) {
+			call = existing;
+		} else {
+			authenticateWithCognito(cacheKey, clientId, clientSecret, call);
+		}
 
-		HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+		try {
+			return call.get(COGNITO_REQUEST_TIMEOUT.plusSeconds(1).toMillis(), TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
 
-		validateCognitoResponse(response);
+	/**
+	 * Dispara a chamada ao Cognito e completa {@code call} com o token. O
+	 * resultado vai para o cache antes de a chamada sair de {@code inFlight}, para
+	 * que nenhum pedido fique sem um nem outro.
+	 */
+	private void authenticateWithCognito(String cacheKey, String clientId, String clientSecret,
+			CompletableFuture<String> call) {
+
+		if (!circuitBreaker.tryAcquire()) {
+			inFlight.remove(cacheKey, call);
+			call.completeExceptionally(new CognitoUnavailableException(circuitBreaker.getRetryAfterSeconds()));
+			return;
+		}
 
-		return extractAccessToken(response.body());
+		HttpRequest request = buildCognitoRequest(clientId, clientSecret);
+		long start = System.nanoTime();
+		StageTimer timer = metrics.startTimer("authenticateWithCognito");
+
+		httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+			timer.stop();
+			try {
+				if (error != null) {
+					circuitBreaker.recordFailure();
+					throw error;
+				}
+				if (response.statusCode() >= 500 || response.statusCode() == 429) {
+					circuitBreaker.recordFailure();
+				} else {
+					circuitBreaker.recordSuccess();
+				}
+
+				validateCognitoResponse(response);
+				Map<String, Object> cognitoResponseBody = parseCognitoResponse(response.body());
+				tokenCache.recordFetch(System.nanoTime() - start);
+
+				String accessToken = (String) cognitoResponseBody.get("access_token");
+				Object expiresIn = cognitoResponseBody.get("expires_in");
+				if (accessToken != null && expiresIn instanceof Number) {
+					tokenCache.put(cacheKey, accessToken, ((Number) expiresIn).longValue());
+				}
+				inFlight.remove(cacheKey, call);
+				call.complete(accessToken);
+
+			} catch (Throwable e) {
+				inFlight.remove(cacheKey, call);
+				call.completeExceptionally(e);
+			}
+		});
 	}
 
 	private HttpRequest buildCognitoRequest(String clientId, String clientSecret) {
 
-		return HttpRequest.newBuilder().uri(cognitoUrl).header("Content-Type", "application/x-www-form-urlencoded")
+		return HttpRequest.newBuilder().uri(cognitoUrl).timeout(COGNITO_REQUEST_TIMEOUT)
+				.header("Content-Type", "application/x-www-form-urlencoded")
 				.POST(HttpRequest.BodyPublishers.ofString(String
 						.format("grant_type=client_credentials&client_id=%s&client_secret=%s", clientId, clientSecret)))
 				.build();
@@ -68,12 +219,9 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
 		}
 	}
 
-	private String extractAccessToken(String responseBody) throws Exception {
-		Map<String, Object> cognitoResponseBody = objectMapper.readValue(responseBody,
-				new TypeReference<Map<String, Object>>() {
-				});
-
-		return (String) cognitoResponseBody.get("access_token");
+	private Map<String, Object> parseCognitoResponse(String responseBody) throws Exception {
+		return objectMapper.readValue(responseBody, new TypeReference<Map<String, Object>>() {
+		});
 	}
 
 	private APIGatewayV2HTTPResponse buildSuccessResponse(String accessToken) throws Exception {
@@ -88,4 +236,13 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
 				.withHeaders(Map.of("Content-Type", "application/json")).withBody(body).build();
 	}
 
-}
\ No newline at end of file
+	private APIGatewayV2HTTPResponse buildUnavailableResponse(CognitoUnavailableException e) throws Exception {
+		String body = this.objectMapper.writeValueAsString(Map.of("message", e.getMessage()));
+
+		return APIGatewayV2HTTPResponse.builder().withStatusCode(503)
+				.withHeaders(Map.of("Content-Type", "application/json", "Retry-After",
+						Long.toString(e.getRetryAfterSeconds())))
+				.withBody(body).build();
+	}
+
+}
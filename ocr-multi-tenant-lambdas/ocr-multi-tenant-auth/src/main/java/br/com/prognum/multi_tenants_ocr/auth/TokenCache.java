@@ -0,0 +1,121 @@
+package br.com.prognum.multi_tenants_ocr.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache, por container, dos access tokens emitidos pelo Cognito. A chave é o
+ * SHA-256 de clientId e clientSecret, para que credenciais em claro não fiquem
+ * em memória e um segredo errado nunca reaproveite o token de outro. Cada token
+ * expira {@code safetyMarginMillis} antes do expires_in informado pelo Cognito,
+ * e o cache descarta os menos usados quando passa de {@code maxEntries}.
+ *
+ * <p>
+ * Os contadores de acertos e o tempo economizado (acertos multiplicados pela
+ * latência média das chamadas ao Cognito) ficam disponíveis para log.
+ */
+public class TokenCache {
+
+	private final int maxEntries;
+	private final long safetyMarginMillis;
+	private final Map<String, Entry> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong fetches = new AtomicLong();
+	private final AtomicLong fetchNanos = new AtomicLong();
+
+	public TokenCache(int maxEntries, long safetyMarginMillis) {
+		this.maxEntries = maxEntries;
+		this.safetyMarginMillis = safetyMarginMillis;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > TokenCache.this.maxEntries;
+			}
+		};
+	}
+
+	public static String buildKey(String clientId, String clientSecret) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(String.valueOf(clientId).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(String.valueOf(clientSecret).getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest.digest()) {
+				key.append(String.format("%02x", b));
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public synchronized String get(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null || entry.expiresAt <= System.currentTimeMillis()) {
+			if (entry != null) {
+				entries.remove(key);
+			}
+			misses.incrementAndGet();
+			return null;
+		}
+
+		hits.incrementAndGet();
+		return entry.accessToken;
+	}
+
+	/**
+	 * Guarda o token; tokens cuja validade não supera a margem de segurança não
+	 * são guardados.
+	 */
+	public synchronized void put(String key, String accessToken, long expiresInSeconds) {
+		long ttlMillis = expiresInSeconds * 1000 - safetyMarginMillis;
+		if (ttlMillis <= 0) {
+			return;
+		}
+		entries.put(key, new Entry(accessToken, System.currentTimeMillis() + ttlMillis));
+	}
+
+	public void recordFetch(long elapsedNanos) {
+		fetches.incrementAndGet();
+		fetchNanos.addAndGet(elapsedNanos);
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public double getHitRate() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0 : (double) hits.get() / total;
+	}
+
+	public long getTimeSavedMillis() {
+		long count = fetches.get();
+		return count == 0 ? 0 : hits.get() * (fetchNanos.get() / count) / 1_000_000;
+	}
+
+	private static class Entry {
+		private final String accessToken;
+		private final long expiresAt;
+
+		private Entry(String accessToken, long expiresAt) {
+			this.accessToken = accessToken;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
@@ -0,0 +1,240 @@
+package br.com.prognum.multi_tenants_ocr.auth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class HandlerTest {
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private ExecutorService callers;
+	private final AtomicInteger statusCode = new AtomicInteger(200);
+	private final AtomicInteger calls = new AtomicInteger();
+	private volatile CountDownLatch release = new CountDownLatch(0);
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@BeforeEach
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.createContext("/oauth2/token", this::handle);
+		server.start();
+		callers = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		release.countDown();
+		callers.shutdownNow();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	public void concurrentCallersShareOneCognitoCall() throws Exception {
+		release = new CountDownLatch(1);
+		Handler handler = handler(new CircuitBreaker(5, 30_000));
+
+		int callerCount = 8;
+		CountDownLatch started = new CountDownLatch(callerCount);
+		List<Future<APIGatewayV2HTTPResponse>> responses = new ArrayList<>();
+		for (int i = 0; i < callerCount; i++) {
+			responses.add(callers.submit(() -> {
+				started.countDown();
+				return handler.handleRequest(event("client", "secret"), new TestContext());
+			}));
+		}
+		started.await(5, TimeUnit.SECONDS);
+		waitForCalls(1);
+		// Dá tempo aos demais pedidos de encontrarem a chamada em andamento.
+		Thread.sleep(200);
+		release.countDown();
+
+		for (Future<APIGatewayV2HTTPResponse> response : responses) {
+			APIGatewayV2HTTPResponse result = response.get(5, TimeUnit.SECONDS);
+			assertEquals(200, result.getStatusCode());
+			assertEquals("token-1", objectMapper.readTree(result.getBody()).path("token").textValue());
+		}
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void openCircuitReturns503WithRetryAfter() throws Exception {
+		statusCode.set(500);
+		Handler handler = handler(new CircuitBreaker(2, 60_000));
+
+		assertThrows(RuntimeException.class, () -> handler.handleRequest(event("a", "s"), new TestContext()));
+		assertThrows(RuntimeException.class, () -> handler.handleRequest(event("b", "s"), new TestContext()));
+
+		APIGatewayV2HTTPResponse response = handler.handleRequest(event("c", "s"), new TestContext());
+
+		assertEquals(503, response.getStatusCode());
+		long retryAfter = Long.parseLong(response.getHeaders().get("Retry-After"));
+		assertTrue(retryAfter >= 1 && retryAfter <= 60, "Retry-After=" + retryAfter);
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void halfOpenLetsOneTrialThroughAndClosesOnSuccess() throws Exception {
+		statusCode.set(500);
+		Handler handler = handler(new CircuitBreaker(1, 200));
+
+		assertThrows(RuntimeException.class, () -> handler.handleRequest(event("a", "s"), new TestContext()));
+		assertEquals(503, handler.handleRequest(event("b", "s"), new TestContext()).getStatusCode());
+		assertEquals(1, calls.get());
+
+		Thread.sleep(300);
+		statusCode.set(200);
+		release = new CountDownLatch(1);
+		Future<APIGatewayV2HTTPResponse> trial = callers
+				.submit(() -> handler.handleRequest(event("c", "s"), new TestContext()));
+		waitForCalls(2);
+
+		// Com a chamada de teste em andamento as demais continuam recusadas.
+		assertEquals(503, handler.handleRequest(event("d", "s"), new TestContext()).getStatusCode());
+
+		release.countDown();
+		assertEquals(200, trial.get(5, TimeUnit.SECONDS).getStatusCode());
+		assertEquals(200, handler.handleRequest(event("e", "s"), new TestContext()).getStatusCode());
+		assertEquals(3, calls.get());
+	}
+
+	@Test
+	public void failedTrialReopensCircuit() throws Exception {
+		statusCode.set(500);
+		Handler handler = handler(new CircuitBreaker(1, 200));
+
+		assertThrows(RuntimeException.class, () -> handler.handleRequest(event("a", "s"), new TestContext()));
+		Thread.sleep(300);
+		assertThrows(RuntimeException.class, () -> handler.handleRequest(event("b", "s"), new TestContext()));
+
+		assertEquals(503, handler.handleRequest(event("c", "s"), new TestContext()).getStatusCode());
+		assertEquals(2, calls.get());
+	}
+
+	private Handler handler(CircuitBreaker circuitBreaker) {
+		URI cognitoUrl = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/oauth2/token");
+		HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+		return new Handler(cognitoUrl, objectMapper, httpClient, circuitBreaker);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		int call = calls.incrementAndGet();
+		exchange.getRequestBody().readAllBytes();
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		int status = statusCode.get();
+		byte[] body = (status == 200 ? "{\"access_token\":\"token-" + call + "\",\"expires_in\":3600}" : "{}")
+				.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+		exchange.close();
+	}
+
+	private void waitForCalls(int expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (calls.get() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, calls.get());
+	}
+
+	private APIGatewayV2HTTPEvent event(String clientId, String clientSecret) throws Exception {
+		APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+		event.setBody(objectMapper.writeValueAsString(new AuthRequest(clientId, clientSecret)));
+		return event;
+	}
+
+	private static class TestContext implements Context {
+		@Override
+		public String getAwsRequestId() {
+			return "test-request";
+		}
+
+		@Override
+		public String getLogGroupName() {
+			return null;
+		}
+
+		@Override
+		public String getLogStreamName() {
+			return null;
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "auth";
+		}
+
+		@Override
+		public String getFunctionVersion() {
+			return "$LATEST";
+		}
+
+		@Override
+		public String getInvokedFunctionArn() {
+			return null;
+		}
+
+		@Override
+		public CognitoIdentity getIdentity() {
+			return null;
+		}
+
+		@Override
+		public ClientContext getClientContext() {
+			return null;
+		}
+
+		@Override
+		public int getRemainingTimeInMillis() {
+			return 30_000;
+		}
+
+		@Override
+		public int getMemoryLimitInMB() {
+			return 512;
+		}
+
+		@Override
+		public LambdaLogger getLogger() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package br.com.prognum.multi_tenants_ocr.auth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenCacheTest {
+
+	@Test
+	public void keyDependsOnSecret() {
+		assertEquals(TokenCache.buildKey("client", "secret"), TokenCache.buildKey("client", "secret"));
+		assertNotEquals(TokenCache.buildKey("client", "secret"), TokenCache.buildKey("client", "other"));
+		assertNotEquals(TokenCache.buildKey("ab", "c"), TokenCache.buildKey("a", "bc"));
+	}
+
+	@Test
+	public void tokenWithinSafetyMarginIsNotCached() {
+		TokenCache cache = new TokenCache(10, 60_000);
+
+		cache.put("short", "token", 60);
+		cache.put("long", "token", 61);
+
+		assertNull(cache.get("short"));
+		assertEquals("token", cache.get("long"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		TokenCache cache = new TokenCache(2, 0);
+
+		cache.put("a", "token-a", 3600);
+		cache.put("b", "token-b", 3600);
+		cache.get("a");
+		cache.put("c", "token-c", 3600);
+
+		assertEquals("token-a", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("token-c", cache.get("c"));
+	}
+}
@@ -0,0 +1,87 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Resolução dos recursos de um tenant pelo {@link TenantRegistry}, feita em
+ * todo request: validação do tenant e nomes de tabela, bucket e filas. O
+ * benchmark {@code applyTemplates} reproduz a resolução por String.replace a
+ * cada consulta, como referência.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TenantRegistryBenchmark {
+
+	private static final String TABLE_NAME_TEMPLATE = "ocr-<tenantId>";
+	private static final String BUCKET_NAME_TEMPLATE = "ocr-<tenantId>-documents";
+	private static final String INPUT_QUEUE_URL_TEMPLATE = "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-<tenantId>-input.fifo";
+	private static final String OUTPUT_QUEUE_URL_TEMPLATE = "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-<tenantId>-output.fifo";
+
+	@Param({ "10", "1000" })
+	int tenantCount;
+
+	private TenantRegistry registry;
+	private String[] tenantIds;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		List<String> tenants = new ArrayList<>();
+		for (int i = 0; i < tenantCount; i++) {
+			tenants.add("tenant-" + i);
+		}
+		tenantIds = tenants.toArray(new String[0]);
+		registry = new TenantRegistry(TABLE_NAME_TEMPLATE, BUCKET_NAME_TEMPLATE, INPUT_QUEUE_URL_TEMPLATE,
+				OUTPUT_QUEUE_URL_TEMPLATE, null, tenants);
+	}
+
+	private String nextTenant() {
+		String tenantId = tenantIds[next];
+		next = next + 1 < tenantIds.length ? next + 1 : 0;
+		return tenantId;
+	}
+
+	@Benchmark
+	public void resolveTenant(Blackhole blackhole) {
+		String tenantId = nextTenant();
+		blackhole.consume(registry.isKnownTenant(tenantId));
+		blackhole.consume(registry.buildTableName(tenantId));
+		blackhole.consume(registry.buildBucketName(tenantId));
+		blackhole.consume(registry.buildInputQueueUrl(tenantId));
+		blackhole.consume(registry.buildOutputQueueUrl(tenantId));
+	}
+
+	@Benchmark
+	public boolean rejectUnknownTenant() {
+		return registry.isKnownTenant("tenant-unknown");
+	}
+
+	@Benchmark
+	public void applyTemplates(Blackhole blackhole) {
+		String tenantId = nextTenant();
+		blackhole.consume(TABLE_NAME_TEMPLATE.replace("<tenantId>", tenantId));
+		blackhole.consume(BUCKET_NAME_TEMPLATE.replace("<tenantId>", tenantId));
+		blackhole.consume(INPUT_QUEUE_URL_TEMPLATE.replace("<tenantId>", tenantId));
+		blackhole.consume(OUTPUT_QUEUE_URL_TEMPLATE.replace("<tenantId>", tenantId));
+	}
+}
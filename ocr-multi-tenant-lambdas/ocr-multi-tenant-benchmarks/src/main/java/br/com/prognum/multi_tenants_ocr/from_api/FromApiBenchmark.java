@@ -0,0 +1,135 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+/**
+ * Trechos quentes do POST /documents: leitura do corpo (JSON com o documento
+ * em base64 e binário puro) e montagem do item do DynamoDB e da mensagem da
+ * fila de entrada. O documento é descartado num OutputStream nulo, de modo que
+ * o tempo medido é só o de parse e decodificação. Use {@code -prof gc} para ver
+ * a alocação por operação em cada tamanho de documento.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FromApiBenchmark {
+
+    private static final String TENANT_ID = "tenant-a";
+    private static final String REQUEST_ID = "01J9Z3Q4W5E6R7T8Y9U0I1O2P3";
+    private static final String TIMESTAMP = "2024-01-01T00:00:00Z";
+
+    static Handler newHandler() {
+        TenantRegistry registry = new TenantRegistry("ocr-<tenantId>", "ocr-<tenantId>-documents",
+                "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-<tenantId>-input.fifo",
+                "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-<tenantId>-output.fifo",
+                "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-webhook-retry", List.of(TENANT_ID));
+        return new Handler(null, null, null, registry);
+    }
+
+    @State(Scope.Benchmark)
+    public static class DocumentState {
+
+        @Param({ "10240", "102400", "1048576", "10485760" })
+        int documentSize;
+
+        Handler handler;
+        String base64Document;
+        APIGatewayV2HTTPEvent jsonEvent;
+        APIGatewayV2HTTPEvent binaryEvent;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            byte[] document = new byte[documentSize];
+            new Random(42).nextBytes(document);
+            base64Document = Base64.getEncoder().encodeToString(document);
+            handler = newHandler();
+
+            jsonEvent = new APIGatewayV2HTTPEvent();
+            jsonEvent.setHeaders(Map.of("content-type", "application/json"));
+            jsonEvent.setIsBase64Encoded(false);
+            jsonEvent.setBody("{\"tipoDocumento\":\"RG\",\"correlationId\":\"bench\",\"documento\":\"" + base64Document
+                    + "\"}");
+
+            binaryEvent = new APIGatewayV2HTTPEvent();
+            binaryEvent.setHeaders(Map.of("content-type", "application/octet-stream", "x-tipo-documento", "RG",
+                    "x-correlation-id", "bench"));
+            binaryEvent.setIsBase64Encoded(true);
+            binaryEvent.setBody(base64Document);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MessageState {
+        Handler handler;
+        ObjectMapper objectMapper;
+        ApiRequest apiRequest;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            handler = newHandler();
+            objectMapper = new ObjectMapper();
+            apiRequest = new ApiRequest("RG", "bench");
+        }
+    }
+
+    @Benchmark
+    public ApiRequest parseJsonRequest(DocumentState state) throws Exception {
+        return state.handler.parseApiRequest(state.jsonEvent, OutputStream.nullOutputStream(), apiRequest -> {
+        });
+    }
+
+    @Benchmark
+    public ApiRequest parseBinaryRequest(DocumentState state) throws Exception {
+        return state.handler.parseApiRequest(state.binaryEvent, OutputStream.nullOutputStream(), apiRequest -> {
+        });
+    }
+
+    /**
+     * Referência: decodificação do documento inteiro para um byte[], como era
+     * feito antes da leitura em streaming.
+     */
+    @Benchmark
+    public byte[] decodeBase64(DocumentState state) {
+        return Base64.getDecoder().decode(state.base64Document);
+    }
+
+    @Benchmark
+    public void buildMessages(MessageState state, Blackhole blackhole) throws Exception {
+        Map<String, AttributeValue> item = state.handler.buildDynamoDBItem(TENANT_ID, REQUEST_ID, state.apiRequest,
+                "ocr-tenant-a-documents", "tenants/tenant-a/requests/" + REQUEST_ID,
+                "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-tenant-a-output.fifo", TIMESTAMP);
+        blackhole.consume(item);
+
+        SqsRequest sqsRequest = state.handler.buildSqsRequest(TENANT_ID, REQUEST_ID, state.apiRequest,
+                "ocr-tenant-a-documents", "tenants/tenant-a/requests/" + REQUEST_ID,
+                "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-tenant-a-output.fifo", TIMESTAMP);
+        blackhole.consume(state.objectMapper.writeValueAsString(sqsRequest));
+    }
+}
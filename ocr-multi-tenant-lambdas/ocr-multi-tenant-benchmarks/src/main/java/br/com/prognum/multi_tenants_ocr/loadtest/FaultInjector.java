@@ -0,0 +1,103 @@
+package br.com.prognum.multi_tenants_ocr.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latência, throttling e erros injetados nos clientes em memória. Cada chamada
+ * espera {@code latencyMillis} mais um valor aleatório de até
+ * {@code jitterMillis} e depois falha com probabilidade {@code throttleRate}
+ * (throttling) ou {@code errorRate} (erro interno do serviço).
+ *
+ * <p>
+ * Os clientes em memória não fazem as retentativas do SDK: a falha injetada
+ * chega ao handler como chegaria depois de esgotadas as retentativas do cliente
+ * real.
+ */
+public final class FaultInjector {
+
+	public enum Fault {
+		NONE, THROTTLE, ERROR
+	}
+
+	private final long latencyMillis;
+	private final long jitterMillis;
+	private final double throttleRate;
+	private final double errorRate;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder throttled = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	public FaultInjector(long latencyMillis, long jitterMillis, double throttleRate, double errorRate) {
+		this.latencyMillis = latencyMillis;
+		this.jitterMillis = jitterMillis;
+		this.throttleRate = throttleRate;
+		this.errorRate = errorRate;
+	}
+
+	public static FaultInjector none() {
+		return new FaultInjector(0, 0, 0, 0);
+	}
+
+	/**
+	 * Aplica a latência da chamada e sorteia a falha.
+	 */
+	public Fault inject() {
+		calls.increment();
+		delay();
+
+		double draw = ThreadLocalRandom.current().nextDouble();
+		if (draw < throttleRate) {
+			throttled.increment();
+			return Fault.THROTTLE;
+		}
+		if (draw < throttleRate + errorRate) {
+			failed.increment();
+			return Fault.ERROR;
+		}
+		return Fault.NONE;
+	}
+
+	/**
+	 * Throttling de um item de uma operação em lote (UnprocessedItems,
+	 * ThrottlingError), sorteado sem latência adicional.
+	 */
+	public boolean throttleItem() {
+		if (throttleRate > 0 && ThreadLocalRandom.current().nextDouble() < throttleRate) {
+			throttled.increment();
+			return true;
+		}
+		return false;
+	}
+
+	private void delay() {
+		long millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.MILLISECONDS.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	public long getThrottled() {
+		return throttled.sum();
+	}
+
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("latency=%d+%dms throttle=%.3f error=%.3f", latencyMillis, jitterMillis, throttleRate,
+				errorRate);
+	}
+}
@@ -0,0 +1,451 @@
+package br.com.prognum.multi_tenants_ocr.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchExecuteStatementRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchExecuteStatementResult;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementError;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementResponse;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.InternalServerErrorException;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+/**
+ * {@link com.amazonaws.services.dynamodbv2.AmazonDynamoDB} em memória para as
+ * tabelas dos tenants (chave pk/sk). As tabelas existem implicitamente e cada
+ * escrita é atômica por item, inclusive a verificação da condição.
+ *
+ * <p>
+ * Só é suportado o subconjunto de expressões que os handlers usam: condições
+ * com {@code attribute_exists}, {@code attribute_not_exists} e igualdade unidas
+ * por AND; updates com SET de valores e REMOVE; projeções de atributos de
+ * primeiro nível; e os UPDATE do PartiQL gerados pelo process_queue. Queries
+ * aceitam uma condição de igualdade sobre a chave de partição e um
+ * FilterExpression no mesmo formato das condições, aplicado depois do Limit,
+ * como no serviço; nos índices (esparsos) a ordenação é por createdAt.
+ * Qualquer outra forma é rejeitada com ValidationException.
+ *
+ * <p>
+ * Além das falhas de chamada do {@link FaultInjector}, BatchWriteItem e
+ * BatchExecuteStatement devolvem itens com throttling (UnprocessedItems e
+ * ThrottlingError), como o serviço faz.
+ */
+public class InMemoryDynamoDB extends AbstractAmazonDynamoDB {
+
+	private static final Pattern CONDITION_EXISTS = Pattern.compile("attribute_exists\\(\\s*(\\S+?)\\s*\\)");
+	private static final Pattern CONDITION_NOT_EXISTS = Pattern.compile("attribute_not_exists\\(\\s*(\\S+?)\\s*\\)");
+	private static final Pattern CONDITION_COMPARISON = Pattern.compile("(\\S+)\\s*(=|<>)\\s*(:\\w+)");
+	private static final Pattern UPDATE_CLAUSE = Pattern.compile("(?i)\\b(SET|REMOVE)\\s+");
+	private static final Pattern UPDATE_SET = Pattern.compile("(\\S+)\\s*=\\s*(:\\w+)");
+	private static final Pattern PARTIQL_UPDATE = Pattern
+			.compile("UPDATE \"([^\"]+)\" (.+) WHERE \"pk\" = \\? AND \"sk\" = \\?");
+	private static final Pattern PARTIQL_ACTION = Pattern.compile("(SET|REMOVE) \"([^\"]+)\"( = \\?)?");
+	private static final String SORT_KEY = "sk";
+	private static final String INDEX_SORT_KEY = "createdAt";
+
+	private final FaultInjector faults;
+	private final ConcurrentMap<String, ConcurrentMap<String, Map<String, AttributeValue>>> tables = new ConcurrentHashMap<>();
+
+	public InMemoryDynamoDB(FaultInjector faults) {
+		this.faults = faults;
+	}
+
+	@Override
+	public PutItemResult putItem(PutItemRequest request) {
+		inject();
+		Map<String, AttributeValue> item = new HashMap<>(request.getItem());
+		table(request.getTableName()).compute(itemKey(item), (key, current) -> {
+			checkCondition(request.getConditionExpression(), request.getExpressionAttributeNames(),
+					request.getExpressionAttributeValues(), current);
+			return item;
+		});
+		return new PutItemResult();
+	}
+
+	@Override
+	public GetItemResult getItem(GetItemRequest request) {
+		inject();
+		Map<String, AttributeValue> item = table(request.getTableName()).get(itemKey(request.getKey()));
+		return new GetItemResult()
+				.withItem(project(item, request.getProjectionExpression(), request.getExpressionAttributeNames()));
+	}
+
+	@Override
+	public BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+		inject();
+		Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+		for (Map.Entry<String, KeysAndAttributes> entry : request.getRequestItems().entrySet()) {
+			KeysAndAttributes keysAndAttributes = entry.getValue();
+			ConcurrentMap<String, Map<String, AttributeValue>> table = table(entry.getKey());
+
+			List<Map<String, AttributeValue>> items = new ArrayList<>();
+			for (Map<String, AttributeValue> key : keysAndAttributes.getKeys()) {
+				Map<String, AttributeValue> item = table.get(itemKey(key));
+				if (item != null) {
+					items.add(project(item, keysAndAttributes.getProjectionExpression(),
+							keysAndAttributes.getExpressionAttributeNames()));
+				}
+			}
+			responses.put(entry.getKey(), items);
+		}
+		return new BatchGetItemResult().withResponses(responses).withUnprocessedKeys(Collections.emptyMap());
+	}
+
+	@Override
+	public UpdateItemResult updateItem(UpdateItemRequest request) {
+		inject();
+		AtomicReference<Map<String, AttributeValue>> updated = new AtomicReference<>();
+		table(request.getTableName()).compute(itemKey(request.getKey()), (key, current) -> {
+			checkCondition(request.getConditionExpression(), request.getExpressionAttributeNames(),
+					request.getExpressionAttributeValues(), current);
+
+			Map<String, AttributeValue> item = current != null ? new HashMap<>(current)
+					: new HashMap<>(request.getKey());
+			applyUpdate(item, request.getUpdateExpression(), request.getExpressionAttributeNames(),
+					request.getExpressionAttributeValues());
+			updated.set(item);
+			return item;
+		});
+
+		UpdateItemResult result = new UpdateItemResult();
+		if (ReturnValue.ALL_NEW.toString().equals(request.getReturnValues())) {
+			result.setAttributes(new HashMap<>(updated.get()));
+		}
+		return result;
+	}
+
+	@Override
+	public DeleteItemResult deleteItem(DeleteItemRequest request) {
+		inject();
+		table(request.getTableName()).compute(itemKey(request.getKey()), (key, current) -> {
+			checkCondition(request.getConditionExpression(), request.getExpressionAttributeNames(),
+					request.getExpressionAttributeValues(), current);
+			return null;
+		});
+		return new DeleteItemResult();
+	}
+
+	@Override
+	public BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+		inject();
+		Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+		for (Map.Entry<String, List<WriteRequest>> entry : request.getRequestItems().entrySet()) {
+			ConcurrentMap<String, Map<String, AttributeValue>> table = table(entry.getKey());
+
+			for (WriteRequest writeRequest : entry.getValue()) {
+				if (faults.throttleItem()) {
+					unprocessed.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(writeRequest);
+				} else if (writeRequest.getPutRequest() != null) {
+					Map<String, AttributeValue> item = new HashMap<>(writeRequest.getPutRequest().getItem());
+					table.put(itemKey(item), item);
+				} else {
+					table.remove(itemKey(writeRequest.getDeleteRequest().getKey()));
+				}
+			}
+		}
+		return new BatchWriteItemResult().withUnprocessedItems(unprocessed);
+	}
+
+	@Override
+	public BatchExecuteStatementResult batchExecuteStatement(BatchExecuteStatementRequest request) {
+		inject();
+		List<BatchStatementResponse> responses = new ArrayList<>();
+		for (BatchStatementRequest statement : request.getStatements()) {
+			responses.add(executeUpdate(statement));
+		}
+		return new BatchExecuteStatementResult().withResponses(responses);
+	}
+
+	@Override
+	public QueryResult query(QueryRequest request) {
+		inject();
+		Matcher condition = CONDITION_COMPARISON.matcher(request.getKeyConditionExpression().trim());
+		if (!condition.matches() || !"=".equals(condition.group(2))) {
+			throw validation("Unsupported key condition: " + request.getKeyConditionExpression());
+		}
+		String partitionKey = resolveName(condition.group(1), request.getExpressionAttributeNames());
+		AttributeValue partitionValue = resolveValue(condition.group(3), request.getExpressionAttributeValues());
+		String sortKey = request.getIndexName() != null ? INDEX_SORT_KEY : SORT_KEY;
+
+		List<Map<String, AttributeValue>> matches = new ArrayList<>();
+		for (Map<String, AttributeValue> item : table(request.getTableName()).values()) {
+			if (partitionValue.equals(item.get(partitionKey)) && item.containsKey(sortKey)) {
+				matches.add(item);
+			}
+		}
+
+		Comparator<Map<String, AttributeValue>> order = Comparator
+				.comparing((Map<String, AttributeValue> item) -> item.get(sortKey).getS())
+				.thenComparing(item -> item.get(SORT_KEY).getS());
+		matches.sort(Boolean.FALSE.equals(request.getScanIndexForward()) ? order.reversed() : order);
+
+		int start = 0;
+		if (request.getExclusiveStartKey() != null) {
+			String startKey = itemKey(request.getExclusiveStartKey());
+			for (int i = 0; i < matches.size(); i++) {
+				if (itemKey(matches.get(i)).equals(startKey)) {
+					start = i + 1;
+					break;
+				}
+			}
+		}
+		int limit = request.getLimit() != null ? request.getLimit() : Integer.MAX_VALUE;
+		int end = (int) Math.min((long) start + limit, matches.size());
+
+		List<Map<String, AttributeValue>> items = new ArrayList<>();
+		for (Map<String, AttributeValue> item : matches.subList(start, end)) {
+			if (matchesCondition(request.getFilterExpression(), request.getExpressionAttributeNames(),
+					request.getExpressionAttributeValues(), item)) {
+				items.add(project(item, request.getProjectionExpression(), request.getExpressionAttributeNames()));
+			}
+		}
+
+		QueryResult result = new QueryResult().withItems(items).withCount(items.size())
+				.withScannedCount(end - start);
+		if (end < matches.size()) {
+			Map<String, AttributeValue> last = matches.get(end - 1);
+			Map<String, AttributeValue> lastEvaluatedKey = new HashMap<>();
+			lastEvaluatedKey.put("pk", last.get("pk"));
+			lastEvaluatedKey.put(SORT_KEY, last.get(SORT_KEY));
+			if (request.getIndexName() != null) {
+				lastEvaluatedKey.put(partitionKey, last.get(partitionKey));
+				lastEvaluatedKey.put(sortKey, last.get(sortKey));
+			}
+			result.setLastEvaluatedKey(lastEvaluatedKey);
+		}
+		return result;
+	}
+
+	@Override
+	public void shutdown() {
+	}
+
+	public int getItemCount(String tableName) {
+		return table(tableName).size();
+	}
+
+	private BatchStatementResponse executeUpdate(BatchStatementRequest statement) {
+		Matcher matcher = PARTIQL_UPDATE.matcher(statement.getStatement());
+		if (!matcher.matches()) {
+			throw validation("Unsupported statement: " + statement.getStatement());
+		}
+		String tableName = matcher.group(1);
+		if (faults.throttleItem()) {
+			return new BatchStatementResponse().withTableName(tableName).withError(
+					new BatchStatementError().withCode("ThrottlingError").withMessage("Throughput exceeds the limit"));
+		}
+
+		List<AttributeValue> parameters = statement.getParameters();
+		Map<String, AttributeValue> sets = new HashMap<>();
+		List<String> removes = new ArrayList<>();
+		int parameter = 0;
+		Matcher action = PARTIQL_ACTION.matcher(matcher.group(2));
+		while (action.find()) {
+			if ("SET".equals(action.group(1))) {
+				sets.put(action.group(2), parameters.get(parameter++));
+			} else {
+				removes.add(action.group(2));
+			}
+		}
+		Map<String, AttributeValue> key = Map.of("pk", parameters.get(parameter), SORT_KEY,
+				parameters.get(parameter + 1));
+
+		Map<String, AttributeValue> updated = table(tableName).computeIfPresent(itemKey(key), (itemKey, current) -> {
+			Map<String, AttributeValue> item = new HashMap<>(current);
+			item.putAll(sets);
+			removes.forEach(item::remove);
+			return item;
+		});
+
+		if (updated == null) {
+			return new BatchStatementResponse().withTableName(tableName).withError(new BatchStatementError()
+					.withCode("ConditionalCheckFailed").withMessage("The conditional request failed"));
+		}
+		return new BatchStatementResponse().withTableName(tableName);
+	}
+
+	private ConcurrentMap<String, Map<String, AttributeValue>> table(String tableName) {
+		return tables.computeIfAbsent(tableName, name -> new ConcurrentHashMap<>());
+	}
+
+	private static String itemKey(Map<String, AttributeValue> key) {
+		AttributeValue pk = key.get("pk");
+		AttributeValue sk = key.get(SORT_KEY);
+		if (pk == null || sk == null) {
+			throw validation("The provided key element does not match the schema");
+		}
+		return pk.getS() + '\u0000' + sk.getS();
+	}
+
+	private static void checkCondition(String expression, Map<String, String> names,
+			Map<String, AttributeValue> values, Map<String, AttributeValue> item) {
+		if (!matchesCondition(expression, names, values, item)) {
+			throw conditionalCheckFailed();
+		}
+	}
+
+	private static boolean matchesCondition(String expression, Map<String, String> names,
+			Map<String, AttributeValue> values, Map<String, AttributeValue> item) {
+		if (expression == null || expression.isBlank()) {
+			return true;
+		}
+
+		for (String clause : expression.trim().split("(?i)\\s+AND\\s+")) {
+			if (!evaluate(clause.trim(), names, values, item)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean evaluate(String clause, Map<String, String> names, Map<String, AttributeValue> values,
+			Map<String, AttributeValue> item) {
+		Matcher matcher = CONDITION_EXISTS.matcher(clause);
+		if (matcher.matches()) {
+			return item != null && item.containsKey(resolveName(matcher.group(1), names));
+		}
+		matcher = CONDITION_NOT_EXISTS.matcher(clause);
+		if (matcher.matches()) {
+			return item == null || !item.containsKey(resolveName(matcher.group(1), names));
+		}
+		matcher = CONDITION_COMPARISON.matcher(clause);
+		if (matcher.matches()) {
+			AttributeValue current = item != null ? item.get(resolveName(matcher.group(1), names)) : null;
+			boolean equal = resolveValue(matcher.group(3), values).equals(current);
+			return "=".equals(matcher.group(2)) ? equal : !equal;
+		}
+		throw validation("Unsupported condition: " + clause);
+	}
+
+	private static void applyUpdate(Map<String, AttributeValue> item, String expression, Map<String, String> names,
+			Map<String, AttributeValue> values) {
+		Matcher clause = UPDATE_CLAUSE.matcher(expression);
+		List<int[]> bounds = new ArrayList<>();
+		while (clause.find()) {
+			bounds.add(new int[] { clause.start(), clause.end() });
+		}
+		if (bounds.isEmpty() || !expression.substring(0, bounds.get(0)[0]).isBlank()) {
+			throw validation("Unsupported update expression: " + expression);
+		}
+
+		for (int i = 0; i < bounds.size(); i++) {
+			String action = expression.substring(bounds.get(i)[0], bounds.get(i)[1]).trim().toUpperCase();
+			int end = i + 1 < bounds.size() ? bounds.get(i + 1)[0] : expression.length();
+
+			for (String operand : expression.substring(bounds.get(i)[1], end).split(",")) {
+				if ("REMOVE".equals(action)) {
+					item.remove(resolveName(operand.trim(), names));
+					continue;
+				}
+				Matcher set = UPDATE_SET.matcher(operand.trim());
+				if (!set.matches()) {
+					throw validation("Unsupported update expression: " + expression);
+				}
+				item.put(resolveName(set.group(1), names), resolveValue(set.group(2), values));
+			}
+		}
+	}
+
+	private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String projection,
+			Map<String, String> names) {
+		if (item == null) {
+			return null;
+		}
+		if (projection == null || projection.isBlank()) {
+			return new HashMap<>(item);
+		}
+
+		Map<String, AttributeValue> projected = new HashMap<>();
+		for (String attribute : projection.split(",")) {
+			String name = resolveName(attribute.trim(), names);
+			AttributeValue value = item.get(name);
+			if (value != null) {
+				projected.put(name, value);
+			}
+		}
+		return projected;
+	}
+
+	private static String resolveName(String token, Map<String, String> names) {
+		if (!token.startsWith("#")) {
+			return token;
+		}
+		String name = names != null ? names.get(token) : null;
+		if (name == null) {
+			throw validation("Undefined attribute name placeholder: " + token);
+		}
+		return name;
+	}
+
+	private static AttributeValue resolveValue(String token, Map<String, AttributeValue> values) {
+		AttributeValue value = values != null ? values.get(token) : null;
+		if (value == null) {
+			throw validation("Undefined attribute value placeholder: " + token);
+		}
+		return value;
+	}
+
+	private void inject() {
+		switch (faults.inject()) {
+		case THROTTLE:
+			throw serviceException(new ProvisionedThroughputExceededException(
+					"The level of configured provisioned throughput for the table was exceeded."), 400,
+					"ProvisionedThroughputExceededException");
+		case ERROR:
+			throw serviceException(new InternalServerErrorException("Internal server error"), 500,
+					"InternalServerError");
+		default:
+		}
+	}
+
+	private static ConditionalCheckFailedException conditionalCheckFailed() {
+		return serviceException(new ConditionalCheckFailedException("The conditional request failed"), 400,
+				"ConditionalCheckFailedException");
+	}
+
+	private static AmazonDynamoDBException validation(String message) {
+		return serviceException(new AmazonDynamoDBException(message), 400, "ValidationException");
+	}
+
+	private static <T extends AmazonServiceException> T serviceException(T exception, int statusCode,
+			String errorCode) {
+		exception.setStatusCode(statusCode);
+		exception.setErrorCode(errorCode);
+		exception.setErrorType(statusCode >= 500 ? ErrorType.Service : ErrorType.Client);
+		exception.setServiceName("AmazonDynamoDBv2");
+		return exception;
+	}
+}
@@ -0,0 +1,348 @@
+package br.com.prognum.multi_tenants_ocr.loadtest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+/**
+ * {@link com.amazonaws.services.s3.AmazonS3} em memória com as operações usadas
+ * pelos handlers: objetos simples, multipart upload, leitura, remoção e URLs
+ * pré-assinadas (que não são assinadas nem acessíveis). Os buckets existem
+ * implicitamente. Operações não implementadas lançam
+ * UnsupportedOperationException.
+ */
+public class InMemoryS3 extends AbstractAmazonS3 {
+
+	private final FaultInjector faults;
+	private final ConcurrentMap<String, StoredObject> objects = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+
+	public InMemoryS3(FaultInjector faults) {
+		this.faults = faults;
+	}
+
+	@Override
+	public PutObjectResult putObject(PutObjectRequest request) {
+		inject();
+		byte[] content = request.getFile() != null ? readFile(request.getFile())
+				: readAll(request.getInputStream(), Long.MAX_VALUE);
+		String eTag = store(request.getBucketName(), request.getKey(), content, request.getMetadata());
+
+		PutObjectResult result = new PutObjectResult();
+		result.setETag(eTag);
+		return result;
+	}
+
+	@Override
+	public S3Object getObject(String bucketName, String key) {
+		return getObject(new GetObjectRequest(bucketName, key));
+	}
+
+	@Override
+	public S3Object getObject(GetObjectRequest request) {
+		inject();
+		StoredObject stored = getStored(request.getBucketName(), request.getKey());
+
+		S3Object object = new S3Object();
+		object.setBucketName(request.getBucketName());
+		object.setKey(request.getKey());
+		object.setObjectMetadata(stored.metadata.clone());
+		object.setObjectContent(new ByteArrayInputStream(stored.content));
+		return object;
+	}
+
+	@Override
+	public ObjectMetadata getObjectMetadata(String bucketName, String key) {
+		return getObjectMetadata(new GetObjectMetadataRequest(bucketName, key));
+	}
+
+	@Override
+	public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+		inject();
+		return getStored(request.getBucketName(), request.getKey()).metadata.clone();
+	}
+
+	@Override
+	public boolean doesObjectExist(String bucketName, String key) {
+		inject();
+		return objects.containsKey(objectKey(bucketName, key));
+	}
+
+	@Override
+	public void deleteObject(String bucketName, String key) {
+		deleteObject(new DeleteObjectRequest(bucketName, key));
+	}
+
+	@Override
+	public void deleteObject(DeleteObjectRequest request) {
+		inject();
+		objects.remove(objectKey(request.getBucketName(), request.getKey()));
+	}
+
+	@Override
+	public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+		inject();
+		String uploadId = UUID.randomUUID().toString();
+		uploads.put(uploadId, new MultipartUpload(request.getBucketName(), request.getKey(),
+				request.getObjectMetadata() != null ? request.getObjectMetadata() : new ObjectMetadata()));
+
+		InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+		result.setBucketName(request.getBucketName());
+		result.setKey(request.getKey());
+		result.setUploadId(uploadId);
+		return result;
+	}
+
+	@Override
+	public UploadPartResult uploadPart(UploadPartRequest request) {
+		inject();
+		MultipartUpload upload = getUpload(request.getUploadId());
+		byte[] content = request.getFile() != null ? readFile(request.getFile())
+				: readAll(request.getInputStream(), request.getPartSize());
+		String eTag = eTag(content);
+		upload.parts.put(request.getPartNumber(), new StoredPart(content, eTag));
+
+		UploadPartResult result = new UploadPartResult();
+		result.setPartNumber(request.getPartNumber());
+		result.setETag(eTag);
+		return result;
+	}
+
+	@Override
+	public PartListing listParts(ListPartsRequest request) {
+		inject();
+		MultipartUpload upload = getUpload(request.getUploadId());
+
+		List<PartSummary> parts = new ArrayList<>();
+		for (Map.Entry<Integer, StoredPart> entry : upload.parts.entrySet()) {
+			PartSummary part = new PartSummary();
+			part.setPartNumber(entry.getKey());
+			part.setETag(entry.getValue().eTag);
+			part.setSize(entry.getValue().content.length);
+			parts.add(part);
+		}
+
+		PartListing listing = new PartListing();
+		listing.setBucketName(upload.bucketName);
+		listing.setKey(upload.key);
+		listing.setUploadId(request.getUploadId());
+		listing.setParts(parts);
+		listing.setTruncated(false);
+		return listing;
+	}
+
+	@Override
+	public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+		inject();
+		MultipartUpload upload = getUpload(request.getUploadId());
+
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		for (PartETag partETag : request.getPartETags()) {
+			StoredPart part = upload.parts.get(partETag.getPartNumber());
+			if (part == null || !part.eTag.equals(partETag.getETag())) {
+				throw s3Exception(400, "InvalidPart", "One or more of the specified parts could not be found.");
+			}
+			content.writeBytes(part.content);
+		}
+		uploads.remove(request.getUploadId());
+		String eTag = store(upload.bucketName, upload.key, content.toByteArray(), upload.metadata);
+
+		CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+		result.setBucketName(upload.bucketName);
+		result.setKey(upload.key);
+		result.setETag(eTag);
+		return result;
+	}
+
+	@Override
+	public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+		inject();
+		if (uploads.remove(request.getUploadId()) == null) {
+			throw noSuchUpload();
+		}
+	}
+
+	/**
+	 * URL no formato das pré-assinadas, calculada localmente como no SDK (sem
+	 * chamada ao serviço e, por isso, sem falhas injetadas).
+	 */
+	@Override
+	public URL generatePresignedUrl(GeneratePresignedUrlRequest request) {
+		try {
+			return new URL(String.format("https://%s.s3.amazonaws.com/%s?X-Amz-Method=%s&X-Amz-Expires=%d",
+					request.getBucketName(), request.getKey(), request.getMethod(),
+					request.getExpiration() != null ? request.getExpiration().getTime() : 0));
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	@Override
+	public void shutdown() {
+	}
+
+	/**
+	 * Remove o objeto sem passar pelo {@link FaultInjector}; usado pelo harness
+	 * para limitar a memória ocupada pelos documentos já consumidos.
+	 */
+	public void discard(String bucketName, String key) {
+		objects.remove(objectKey(bucketName, key));
+	}
+
+	public int getObjectCount() {
+		return objects.size();
+	}
+
+	public long getStoredBytes() {
+		return objects.values().stream().mapToLong(object -> object.content.length).sum();
+	}
+
+	private void inject() {
+		switch (faults.inject()) {
+		case THROTTLE:
+			throw s3Exception(503, "SlowDown", "Please reduce your request rate.");
+		case ERROR:
+			throw s3Exception(500, "InternalError", "We encountered an internal error. Please try again.");
+		default:
+		}
+	}
+
+	private String store(String bucketName, String key, byte[] content, ObjectMetadata metadata) {
+		ObjectMetadata stored = metadata != null ? metadata.clone() : new ObjectMetadata();
+		String eTag = eTag(content);
+		stored.setContentLength(content.length);
+		stored.setHeader("ETag", eTag);
+		objects.put(objectKey(bucketName, key), new StoredObject(content, stored));
+		return eTag;
+	}
+
+	private StoredObject getStored(String bucketName, String key) {
+		StoredObject stored = objects.get(objectKey(bucketName, key));
+		if (stored == null) {
+			throw s3Exception(404, "NoSuchKey", "The specified key does not exist.");
+		}
+		return stored;
+	}
+
+	private MultipartUpload getUpload(String uploadId) {
+		MultipartUpload upload = uploads.get(uploadId);
+		if (upload == null) {
+			throw noSuchUpload();
+		}
+		return upload;
+	}
+
+	private static String objectKey(String bucketName, String key) {
+		return bucketName + "/" + key;
+	}
+
+	/**
+	 * ETag sintético: só precisa ser estável para o mesmo conteúdo, sem o custo de
+	 * um MD5 por objeto.
+	 */
+	private static String eTag(byte[] content) {
+		return String.format("%08x-%d", Arrays.hashCode(content), content.length);
+	}
+
+	private static byte[] readAll(InputStream input, long limit) {
+		if (input == null) {
+			return new byte[0];
+		}
+		try {
+			return limit == Long.MAX_VALUE ? input.readAllBytes() : input.readNBytes((int) limit);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static byte[] readFile(File file) {
+		try (InputStream input = new FileInputStream(file)) {
+			return input.readAllBytes();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static AmazonS3Exception noSuchUpload() {
+		return s3Exception(404, "NoSuchUpload", "The specified upload does not exist.");
+	}
+
+	private static AmazonS3Exception s3Exception(int statusCode, String errorCode, String message) {
+		AmazonS3Exception exception = new AmazonS3Exception(message);
+		exception.setStatusCode(statusCode);
+		exception.setErrorCode(errorCode);
+		exception.setErrorType(statusCode >= 500 ? ErrorType.Service : ErrorType.Client);
+		exception.setServiceName("Amazon S3");
+		return exception;
+	}
+
+	private static final class StoredObject {
+		private final byte[] content;
+		private final ObjectMetadata metadata;
+
+		private StoredObject(byte[] content, ObjectMetadata metadata) {
+			this.content = content;
+			this.metadata = metadata;
+		}
+	}
+
+	private static final class StoredPart {
+		private final byte[] content;
+		private final String eTag;
+
+		private StoredPart(byte[] content, String eTag) {
+			this.content = content;
+			this.eTag = eTag;
+		}
+	}
+
+	private static final class MultipartUpload {
+		private final String bucketName;
+		private final String key;
+		private final ObjectMetadata metadata;
+		private final ConcurrentSkipListMap<Integer, StoredPart> parts = new ConcurrentSkipListMap<>();
+
+		private MultipartUpload(String bucketName, String key, ObjectMetadata metadata) {
+			this.bucketName = bucketName;
+			this.key = key;
+			this.metadata = metadata;
+		}
+	}
+}
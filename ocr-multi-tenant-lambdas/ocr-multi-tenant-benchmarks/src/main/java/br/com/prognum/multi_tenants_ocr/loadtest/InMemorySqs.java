@@ -0,0 +1,269 @@
+package br.com.prognum.multi_tenants_ocr.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.AmazonSQSException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+
+/**
+ * {@link com.amazonaws.services.sqs.AmazonSQS} em memória. As filas existem
+ * implicitamente, identificadas pela URL. Mensagens recebidas ficam invisíveis
+ * por {@code visibilityTimeoutMillis} e voltam para a fila se não forem
+ * removidas, com ApproximateReceiveCount incrementado, como no serviço.
+ *
+ * <p>
+ * Simplificações: a ordem por MessageGroupId das filas FIFO não é garantida
+ * entre consumidores concorrentes e a deduplicação por MessageDeduplicationId
+ * vale pela vida da fila, não por 5 minutos.
+ */
+public class InMemorySqs extends AbstractAmazonSQS {
+
+	private static final long RECEIVE_POLL_MILLIS = 20;
+
+	private final FaultInjector faults;
+	private final long visibilityTimeoutMillis;
+	private final ConcurrentMap<String, SimulatedQueue> queues = new ConcurrentHashMap<>();
+
+	public InMemorySqs(FaultInjector faults, long visibilityTimeoutMillis) {
+		this.faults = faults;
+		this.visibilityTimeoutMillis = visibilityTimeoutMillis;
+	}
+
+	@Override
+	public SendMessageResult sendMessage(SendMessageRequest request) {
+		inject();
+		String messageId = queue(request.getQueueUrl()).send(request.getMessageBody(),
+				request.getMessageAttributes(), request.getMessageGroupId(), request.getMessageDeduplicationId());
+		return new SendMessageResult().withMessageId(messageId);
+	}
+
+	@Override
+	public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+		inject();
+		SimulatedQueue queue = queue(request.getQueueUrl());
+
+		List<SendMessageBatchResultEntry> successful = new ArrayList<>();
+		List<BatchResultErrorEntry> failed = new ArrayList<>();
+		for (SendMessageBatchRequestEntry entry : request.getEntries()) {
+			if (faults.throttleItem()) {
+				failed.add(new BatchResultErrorEntry().withId(entry.getId())
+						.withCode("ThrottlingException")
+						.withMessage("Rate exceeded")
+						.withSenderFault(false));
+				continue;
+			}
+			String messageId = queue.send(entry.getMessageBody(), entry.getMessageAttributes(),
+					entry.getMessageGroupId(), entry.getMessageDeduplicationId());
+			successful.add(new SendMessageBatchResultEntry().withId(entry.getId()).withMessageId(messageId));
+		}
+		return new SendMessageBatchResult().withSuccessful(successful).withFailed(failed);
+	}
+
+	@Override
+	public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+		inject();
+		int maxMessages = request.getMaxNumberOfMessages() != null ? request.getMaxNumberOfMessages() : 1;
+		long waitMillis = request.getWaitTimeSeconds() != null ? request.getWaitTimeSeconds() * 1000L : 0;
+		return new ReceiveMessageResult()
+				.withMessages(queue(request.getQueueUrl()).receive(maxMessages, waitMillis, visibilityTimeoutMillis));
+	}
+
+	@Override
+	public DeleteMessageResult deleteMessage(DeleteMessageRequest request) {
+		inject();
+		queue(request.getQueueUrl()).delete(request.getReceiptHandle());
+		return new DeleteMessageResult();
+	}
+
+	@Override
+	public void shutdown() {
+	}
+
+	/**
+	 * Mensagens visíveis mais as que estão em processamento.
+	 */
+	public int getApproximateNumberOfMessages(String queueUrl) {
+		SimulatedQueue queue = queue(queueUrl);
+		return queue.visible.size() + queue.inFlight.size();
+	}
+
+	private SimulatedQueue queue(String queueUrl) {
+		if (queueUrl == null) {
+			throw sqsException(400, "AWS.SimpleQueueService.NonExistentQueue",
+					"The specified queue does not exist.");
+		}
+		return queues.computeIfAbsent(queueUrl, url -> new SimulatedQueue(url.endsWith(".fifo")));
+	}
+
+	private void inject() {
+		switch (faults.inject()) {
+		case THROTTLE:
+			throw sqsException(400, "ThrottlingException", "Rate exceeded");
+		case ERROR:
+			throw sqsException(500, "InternalError", "We encountered an internal error. Please try again.");
+		default:
+		}
+	}
+
+	private static AmazonSQSException sqsException(int statusCode, String errorCode, String message) {
+		AmazonSQSException exception = new AmazonSQSException(message);
+		exception.setStatusCode(statusCode);
+		exception.setErrorCode(errorCode);
+		exception.setErrorType(statusCode >= 500 ? ErrorType.Service : ErrorType.Client);
+		exception.setServiceName("AmazonSQS");
+		return exception;
+	}
+
+	private static final class SimulatedQueue {
+		private final boolean fifo;
+		private final BlockingDeque<StoredMessage> visible = new LinkedBlockingDeque<>();
+		private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+		private final DelayQueue<InFlight> expirations = new DelayQueue<>();
+		private final Set<String> deduplicationIds = ConcurrentHashMap.newKeySet();
+
+		private SimulatedQueue(boolean fifo) {
+			this.fifo = fifo;
+		}
+
+		private String send(String body, Map<String, MessageAttributeValue> messageAttributes, String groupId,
+				String deduplicationId) {
+			String messageId = UUID.randomUUID().toString();
+			if (fifo && deduplicationId != null && !deduplicationIds.add(deduplicationId)) {
+				return messageId;
+			}
+			visible.add(new StoredMessage(messageId, body, messageAttributes, groupId, System.currentTimeMillis()));
+			return messageId;
+		}
+
+		private List<Message> receive(int maxMessages, long waitMillis, long visibilityTimeoutMillis) {
+			long deadline = System.currentTimeMillis() + waitMillis;
+			List<StoredMessage> received = new ArrayList<>();
+
+			try {
+				while (true) {
+					restoreExpired();
+					visible.drainTo(received, maxMessages);
+					long remaining = deadline - System.currentTimeMillis();
+					if (!received.isEmpty() || remaining <= 0) {
+						break;
+					}
+					StoredMessage message = visible.poll(Math.min(remaining, RECEIVE_POLL_MILLIS),
+							TimeUnit.MILLISECONDS);
+					if (message != null) {
+						received.add(message);
+						visible.drainTo(received, maxMessages - 1);
+						break;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			List<Message> messages = new ArrayList<>();
+			for (StoredMessage message : received) {
+				String receiptHandle = UUID.randomUUID().toString();
+				InFlight pending = new InFlight(receiptHandle, message,
+						System.currentTimeMillis() + visibilityTimeoutMillis);
+				inFlight.put(receiptHandle, pending);
+				expirations.add(pending);
+				messages.add(message.toMessage(receiptHandle));
+			}
+			return messages;
+		}
+
+		private void delete(String receiptHandle) {
+			inFlight.remove(receiptHandle);
+		}
+
+		private void restoreExpired() {
+			InFlight expired;
+			while ((expired = expirations.poll()) != null) {
+				if (inFlight.remove(expired.receiptHandle) != null) {
+					visible.addFirst(expired.message);
+				}
+			}
+		}
+	}
+
+	private static final class StoredMessage {
+		private final String messageId;
+		private final String body;
+		private final Map<String, MessageAttributeValue> messageAttributes;
+		private final String groupId;
+		private final long sentTimestamp;
+		private int receiveCount;
+
+		private StoredMessage(String messageId, String body, Map<String, MessageAttributeValue> messageAttributes,
+				String groupId, long sentTimestamp) {
+			this.messageId = messageId;
+			this.body = body;
+			this.messageAttributes = messageAttributes != null ? Map.copyOf(messageAttributes) : Map.of();
+			this.groupId = groupId;
+			this.sentTimestamp = sentTimestamp;
+		}
+
+		private synchronized Message toMessage(String receiptHandle) {
+			receiveCount++;
+			Map<String, String> attributes = new HashMap<>();
+			attributes.put("SentTimestamp", Long.toString(sentTimestamp));
+			attributes.put("ApproximateReceiveCount", Integer.toString(receiveCount));
+			if (groupId != null) {
+				attributes.put("MessageGroupId", groupId);
+			}
+
+			return new Message().withMessageId(messageId)
+					.withReceiptHandle(receiptHandle)
+					.withBody(body)
+					.withAttributes(attributes)
+					.withMessageAttributes(new HashMap<>(messageAttributes));
+		}
+	}
+
+	private static final class InFlight implements Delayed {
+		private final String receiptHandle;
+		private final StoredMessage message;
+		private final long visibleAt;
+
+		private InFlight(String receiptHandle, StoredMessage message, long visibleAt) {
+			this.receiptHandle = receiptHandle;
+			this.message = message;
+			this.visibleAt = visibleAt;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(visibleAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(visibleAt, ((InFlight) other).visibleAt);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package br.com.prognum.multi_tenants_ocr.loadtest;
+
+import java.util.UUID;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+/**
+ * Context de uma invocação simulada: awsRequestId próprio e tempo restante
+ * contado a partir da criação, com o timeout informado.
+ */
+public class LoadContext implements Context {
+
+	private static final LambdaLogger DISCARDING_LOGGER = new LambdaLogger() {
+		@Override
+		public void log(String message) {
+		}
+
+		@Override
+		public void log(byte[] message) {
+		}
+	};
+
+	private final String functionName;
+	private final String awsRequestId = UUID.randomUUID().toString();
+	private final long deadline;
+
+	public LoadContext(String functionName, long timeoutMillis) {
+		this.functionName = functionName;
+		this.deadline = System.currentTimeMillis() + timeoutMillis;
+	}
+
+	@Override
+	public String getAwsRequestId() {
+		return awsRequestId;
+	}
+
+	@Override
+	public String getLogGroupName() {
+		return "/aws/lambda/" + functionName;
+	}
+
+	@Override
+	public String getLogStreamName() {
+		return "load-harness";
+	}
+
+	@Override
+	public String getFunctionName() {
+		return functionName;
+	}
+
+	@Override
+	public String getFunctionVersion() {
+		return "$LATEST";
+	}
+
+	@Override
+	public String getInvokedFunctionArn() {
+		return "arn:aws:lambda:us-east-1:000000000000:function:" + functionName;
+	}
+
+	@Override
+	public CognitoIdentity getIdentity() {
+		return null;
+	}
+
+	@Override
+	public ClientContext getClientContext() {
+		return null;
+	}
+
+	@Override
+	public int getRemainingTimeInMillis() {
+		return (int) Math.max(deadline - System.currentTimeMillis(), 0);
+	}
+
+	@Override
+	public int getMemoryLimitInMB() {
+		return 1024;
+	}
+
+	@Override
+	public LambdaLogger getLogger() {
+		return DISCARDING_LOGGER;
+	}
+}
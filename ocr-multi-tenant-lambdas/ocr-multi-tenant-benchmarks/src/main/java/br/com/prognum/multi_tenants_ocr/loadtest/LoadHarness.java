@@ -0,0 +1,604 @@
+package br.com.prognum.multi_tenants_ocr.loadtest;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+/**
+ * Teste de carga offline do pipeline completo, com os handlers reais sobre os
+ * clientes em memória: POST /documents no from_api → fila de entrada → OCR
+ * simulado → fila de saída → process_queue → GET /documents/{requestId} no
+ * to_api. Ao fim imprime, por etapa, vazão e latências p50/p95/p99, além do
+ * tempo de espera em cada fila e do tempo ponta a ponta por tenant. O código
+ * de saída é 1 se algum request aceito não completou o pipeline.
+ *
+ * <p>
+ * Os clientes do POST /documents rodam em laço fechado ({@code concurrency}
+ * requests em andamento). As invocações concorrentes compartilham o logger e
+ * as métricas da JVM, como se fossem um único container com várias
+ * invocações: o contexto dos logs pode se misturar, os tempos medidos não.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar br.com.prognum.multi_tenants_ocr.loadtest.LoadHarness \
+ *     --requests=5000 --concurrency=32 --tenants=tenant-a:70,tenant-b:20,tenant-c:10 \
+ *     --dynamodb.latencyMillis=5 --dynamodb.throttleRate=0.01
+ * </pre>
+ */
+public class LoadHarness {
+
+	private static final String TABLE_NAME_TEMPLATE = "ocr-<tenantId>";
+	private static final String BUCKET_NAME_TEMPLATE = "ocr-<tenantId>-documents";
+	private static final String INPUT_QUEUE_URL_TEMPLATE = "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-<tenantId>-input.fifo";
+	private static final String OUTPUT_QUEUE_URL_TEMPLATE = "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-<tenantId>-output.fifo";
+	private static final String WEBHOOK_RETRY_QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/000000000000/ocr-webhook-retry";
+	private static final long INVOCATION_TIMEOUT_MILLIS = 30_000;
+	private static final long IDLE_SLEEP_MILLIS = 5;
+	private static final int OCR_RECEIVE_BATCH = 10;
+	private static final int MAX_LOOKUP_ATTEMPTS = 5;
+
+	private final LoadOptions options;
+	private final FaultInjector s3Faults;
+	private final FaultInjector dynamoDbFaults;
+	private final FaultInjector sqsFaults;
+	private final InMemoryS3 s3;
+	private final InMemoryDynamoDB dynamoDb;
+	private final InMemorySqs sqs;
+	private final TenantRegistry registry;
+	private final br.com.prognum.multi_tenants_ocr.from_api.Handler fromApi;
+	private final br.com.prognum.multi_tenants_ocr.process_queue.Handler processQueue;
+	private final br.com.prognum.multi_tenants_ocr.to_api.Handler toApi;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final List<String> tenantIds;
+	private final double[] cumulativeWeights;
+	private final String documentBody;
+	private final String resultTail;
+
+	private final ConcurrentMap<String, TrackedRequest> inFlight = new ConcurrentHashMap<>();
+	private final BlockingQueue<String> processedRequests = new LinkedBlockingQueue<>();
+	private final StageStats fromApiStats = new StageStats("from_api");
+	private final StageStats inputQueueStats = new StageStats("inputQueueWait");
+	private final StageStats ocrStats = new StageStats("ocrResponder");
+	private final StageStats outputQueueStats = new StageStats("outputQueueWait");
+	private final StageStats processQueueStats = new StageStats("process_queue");
+	private final StageStats toApiStats = new StageStats("to_api");
+	private final StageStats endToEndStats = new StageStats("endToEnd");
+	private final Map<String, StageStats> endToEndByTenant = new LinkedHashMap<>();
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder deadLettered = new LongAdder();
+	private final LongAdder failedLookups = new LongAdder();
+	private volatile boolean running = true;
+
+	public LoadHarness(LoadOptions options) {
+		this.options = options;
+		this.s3Faults = options.getFaults("s3");
+		this.dynamoDbFaults = options.getFaults("dynamodb");
+		this.sqsFaults = options.getFaults("sqs");
+		this.s3 = new InMemoryS3(s3Faults);
+		this.dynamoDb = new InMemoryDynamoDB(dynamoDbFaults);
+		this.sqs = new InMemorySqs(sqsFaults, options.getVisibilityTimeoutMillis());
+
+		Map<String, Double> mix = options.getTenantMix();
+		this.tenantIds = new ArrayList<>(mix.keySet());
+		this.cumulativeWeights = new double[tenantIds.size()];
+		double total = 0;
+		for (int i = 0; i < tenantIds.size(); i++) {
+			total += mix.get(tenantIds.get(i));
+			cumulativeWeights[i] = total;
+			endToEndByTenant.put(tenantIds.get(i), new StageStats(tenantIds.get(i)));
+		}
+
+		this.registry = new TenantRegistry(TABLE_NAME_TEMPLATE, BUCKET_NAME_TEMPLATE, INPUT_QUEUE_URL_TEMPLATE,
+				OUTPUT_QUEUE_URL_TEMPLATE, WEBHOOK_RETRY_QUEUE_URL, tenantIds);
+		this.fromApi = new br.com.prognum.multi_tenants_ocr.from_api.Handler(s3, dynamoDb, sqs, registry);
+		this.processQueue = new br.com.prognum.multi_tenants_ocr.process_queue.Handler(dynamoDb, s3, sqs,
+				HttpClient.newHttpClient(), registry);
+		this.toApi = new br.com.prognum.multi_tenants_ocr.to_api.Handler(dynamoDb, s3, registry);
+
+		this.documentBody = buildDocumentBody(options.getDocumentSize());
+		this.resultTail = buildResultTail(options.getResultSize());
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadOptions options = LoadOptions.parse(args);
+
+		// Os handlers escrevem logs e métricas EMF no System.out capturado na criação do logger.
+		PrintStream report = System.out;
+		OutputStream handlerOutput = options.getLogFile() != null ? new FileOutputStream(options.getLogFile())
+				: OutputStream.nullOutputStream();
+		System.setOut(new PrintStream(handlerOutput, false, StandardCharsets.UTF_8));
+
+		boolean complete = new LoadHarness(options).run(report);
+		System.out.flush();
+		System.exit(complete ? 0 : 1);
+	}
+
+	/**
+	 * Executa a carga e imprime o relatório. Devolve true se todos os requests
+	 * aceitos pelo from_api foram lidos com sucesso no to_api.
+	 */
+	public boolean run(PrintStream report) throws InterruptedException {
+		long start = System.nanoTime();
+
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < options.getOcrWorkers(); i++) {
+			int offset = i;
+			workers.add(startWorker("ocr-responder-" + i, () -> runOcrResponder(offset)));
+		}
+		for (int i = 0; i < options.getProcessQueueWorkers(); i++) {
+			int offset = i;
+			workers.add(startWorker("process-queue-" + i, () -> runProcessQueue(offset)));
+		}
+		for (int i = 0; i < options.getToApiWorkers(); i++) {
+			workers.add(startWorker("to-api-" + i, this::runToApi));
+		}
+
+		long deadline = start + TimeUnit.SECONDS.toNanos(options.getTimeoutSeconds());
+		ExecutorService clients = Executors.newFixedThreadPool(options.getConcurrency());
+		AtomicInteger submitted = new AtomicInteger();
+		for (int i = 0; i < options.getConcurrency(); i++) {
+			clients.execute(() -> {
+				while (System.nanoTime() < deadline && submitted.getAndIncrement() < options.getRequests()) {
+					submitDocument();
+				}
+			});
+		}
+		clients.shutdown();
+		clients.awaitTermination(options.getTimeoutSeconds(), TimeUnit.SECONDS);
+
+		while (!inFlight.isEmpty() && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		running = false;
+		for (Thread worker : workers) {
+			worker.join(TimeUnit.SECONDS.toMillis(5));
+		}
+
+		printReport(report, elapsed);
+		return completed.sum() == accepted.sum();
+	}
+
+	private Thread startWorker(String name, Runnable task) {
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	private void submitDocument() {
+		String tenantId = pickTenant();
+		String requestId = UUID.randomUUID().toString();
+
+		APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+		event.setRouteKey("POST /documents");
+		event.setHeaders(Map.of("content-type", "application/json", "x-tenant-id", tenantId, "x-request-id",
+				requestId, "x-correlation-id", requestId));
+		event.setIsBase64Encoded(false);
+		event.setBody(documentBody);
+
+		// Registrado antes da chamada: o pipeline pode andar antes de o handler retornar.
+		TrackedRequest tracked = new TrackedRequest(tenantId, System.nanoTime());
+		inFlight.put(requestId, tracked);
+
+		boolean ok;
+		try {
+			APIGatewayV2HTTPResponse response = fromApi.handleRequest(event,
+					new LoadContext("from-api", INVOCATION_TIMEOUT_MILLIS));
+			ok = response.getStatusCode() == 200;
+		} catch (RuntimeException e) {
+			ok = false;
+		}
+		long end = System.nanoTime();
+
+		if (ok) {
+			fromApiStats.record(tracked.startNanos, end);
+			accepted.increment();
+		} else {
+			fromApiStats.error(tracked.startNanos, end);
+			rejected.increment();
+			inFlight.remove(requestId);
+		}
+	}
+
+	private String pickTenant() {
+		double draw = ThreadLocalRandom.current().nextDouble(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			if (draw < cumulativeWeights[i]) {
+				return tenantIds.get(i);
+			}
+		}
+		return tenantIds.get(tenantIds.size() - 1);
+	}
+
+	/**
+	 * OCR simulado: lê o documento no S3, espera a latência configurada e envia à
+	 * fila de saída um resultado de {@code resultSize} bytes. O documento é
+	 * descartado depois que a mensagem de entrada é removida.
+	 */
+	private void runOcrResponder(int offset) {
+		List<String> queueUrls = new ArrayList<>();
+		tenantIds.forEach(tenantId -> queueUrls.add(registry.buildInputQueueUrl(tenantId)));
+
+		int next = offset;
+		while (running) {
+			boolean idle = true;
+			for (int i = 0; i < queueUrls.size(); i++) {
+				String queueUrl = queueUrls.get(next++ % queueUrls.size());
+				for (Message message : receive(queueUrl, OCR_RECEIVE_BATCH)) {
+					recordQueueWait(inputQueueStats, message);
+					respond(queueUrl, message);
+					idle = false;
+				}
+			}
+			if (idle) {
+				sleep(IDLE_SLEEP_MILLIS);
+			}
+		}
+	}
+
+	private void respond(String queueUrl, Message message) {
+		long start = System.nanoTime();
+		String requestId = null;
+		try {
+			JsonNode request = objectMapper.readTree(message.getBody());
+			String tenantId = request.path("tenantId").textValue();
+			requestId = request.path("requestId").textValue();
+			String bucketName = request.path("bucketName").textValue();
+			String bucketKey = request.path("bucketKey").textValue();
+
+			try (S3Object document = s3.getObject(bucketName, bucketKey)) {
+				document.getObjectContent().transferTo(OutputStream.nullOutputStream());
+			}
+			sleep(options.getOcrLatencyMillis() + (options.getOcrJitterMillis() > 0
+					? ThreadLocalRandom.current().nextLong(options.getOcrJitterMillis() + 1)
+					: 0));
+
+			sqs.sendMessage(new SendMessageRequest(request.path("outputQueueUrl").textValue(),
+					buildResult(tenantId, requestId)).withMessageGroupId(tenantId)
+					.withMessageDeduplicationId(requestId)
+					.withMessageAttributes(
+							Map.of("tenantId", stringAttribute(tenantId), "requestId", stringAttribute(requestId))));
+
+			deleteQuietly(queueUrl, message);
+			ocrStats.record(start, System.nanoTime());
+		} catch (Exception e) {
+			ocrStats.error(start, System.nanoTime());
+			if (receiveCount(message) >= options.getMaxReceiveCount()) {
+				deadLetter(queueUrl, message, requestId);
+			}
+		}
+	}
+
+	/**
+	 * Simula o event source mapping do SQS: cada lote recebido da fila de saída é
+	 * uma invocação do process_queue. Mensagens devolvidas em batchItemFailures
+	 * ficam na fila e voltam depois do visibility timeout.
+	 */
+	private void runProcessQueue(int offset) {
+		List<String> queueUrls = new ArrayList<>();
+		tenantIds.forEach(tenantId -> queueUrls.add(registry.buildOutputQueueUrl(tenantId)));
+
+		int next = offset;
+		while (running) {
+			boolean idle = true;
+			for (int i = 0; i < queueUrls.size(); i++) {
+				String queueUrl = queueUrls.get(next++ % queueUrls.size());
+				List<Message> messages = receive(queueUrl, options.getBatchSize());
+				if (!messages.isEmpty()) {
+					processBatch(queueUrl, messages);
+					idle = false;
+				}
+			}
+			if (idle) {
+				sleep(IDLE_SLEEP_MILLIS);
+			}
+		}
+	}
+
+	private void processBatch(String queueUrl, List<Message> messages) {
+		List<SQSMessage> records = new ArrayList<>();
+		for (Message message : messages) {
+			recordQueueWait(outputQueueStats, message);
+			records.add(toSqsMessage(queueUrl, message));
+		}
+		SQSEvent event = new SQSEvent();
+		event.setRecords(records);
+
+		long start = System.nanoTime();
+		Set<String> failed = new HashSet<>();
+		try {
+			SQSBatchResponse response = processQueue.handleRequest(event,
+					new LoadContext("process-queue", INVOCATION_TIMEOUT_MILLIS));
+			response.getBatchItemFailures().forEach(failure -> failed.add(failure.getItemIdentifier()));
+			processQueueStats.record(start, System.nanoTime(), messages.size() - failed.size());
+		} catch (RuntimeException e) {
+			messages.forEach(message -> failed.add(message.getMessageId()));
+			processQueueStats.error(start, System.nanoTime());
+		}
+
+		for (Message message : messages) {
+			String requestId = message.getMessageAttributes().get("requestId").getStringValue();
+			if (failed.contains(message.getMessageId())) {
+				if (receiveCount(message) >= options.getMaxReceiveCount()) {
+					deadLetter(queueUrl, message, requestId);
+				}
+			} else {
+				// Se a remoção falhar a mensagem é reprocessada; o to_api ignora requests já lidos.
+				deleteQuietly(queueUrl, message);
+				processedRequests.add(requestId);
+			}
+		}
+	}
+
+	private SQSMessage toSqsMessage(String queueUrl, Message message) {
+		Map<String, SQSEvent.MessageAttribute> attributes = new HashMap<>();
+		for (Map.Entry<String, MessageAttributeValue> entry : message.getMessageAttributes().entrySet()) {
+			SQSEvent.MessageAttribute attribute = new SQSEvent.MessageAttribute();
+			attribute.setDataType(entry.getValue().getDataType());
+			attribute.setStringValue(entry.getValue().getStringValue());
+			attributes.put(entry.getKey(), attribute);
+		}
+
+		SQSMessage record = new SQSMessage();
+		record.setMessageId(message.getMessageId());
+		record.setReceiptHandle(message.getReceiptHandle());
+		record.setBody(message.getBody());
+		record.setAttributes(message.getAttributes());
+		record.setMessageAttributes(attributes);
+		record.setEventSource("aws:sqs");
+		record.setEventSourceArn(queueUrl);
+		return record;
+	}
+
+	/**
+	 * Cliente do GET /documents/{requestId}: lê cada request gravado pelo
+	 * process_queue e confere a resposta (200 com o resultado ou 303 para
+	 * resultados grandes). Erros são repetidos até {@value #MAX_LOOKUP_ATTEMPTS}
+	 * vezes.
+	 */
+	private void runToApi() {
+		while (running) {
+			String requestId;
+			try {
+				requestId = processedRequests.poll(50, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			TrackedRequest tracked = requestId != null ? inFlight.get(requestId) : null;
+			if (tracked != null) {
+				lookup(requestId, tracked);
+			}
+		}
+	}
+
+	private void lookup(String requestId, TrackedRequest tracked) {
+		APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+		event.setRouteKey("GET /documents/{requestId}");
+		event.setHeaders(Map.of("x-tenant-id", tracked.tenantId, "x-request-id", requestId));
+		event.setPathParameters(Map.of("requestId", requestId));
+
+		long start = System.nanoTime();
+		boolean ok;
+		try {
+			APIGatewayV2HTTPResponse response = toApi.handleRequest(event,
+					new LoadContext("to-api", INVOCATION_TIMEOUT_MILLIS));
+			ok = response.getStatusCode() == 303
+					|| (response.getStatusCode() == 200 && response.getBody().contains(requestId));
+		} catch (RuntimeException e) {
+			ok = false;
+		}
+		long end = System.nanoTime();
+
+		if (ok) {
+			toApiStats.record(start, end);
+			if (inFlight.remove(requestId) != null) {
+				completed.increment();
+				endToEndStats.record(tracked.startNanos, end);
+				endToEndByTenant.get(tracked.tenantId).record(tracked.startNanos, end);
+				// O documento só é descartado aqui: uma reentrega da fila de entrada ainda
+				// precisa lê-lo enquanto a requisição não terminou.
+				String bucketName = registry.buildBucketName(tracked.tenantId);
+				s3.discard(bucketName, String.format("tenants/%s/requests/%s", tracked.tenantId, requestId));
+				s3.discard(bucketName, String.format("tenants/%s/results/%s", tracked.tenantId, requestId));
+			}
+			return;
+		}
+
+		toApiStats.error(start, end);
+		if (tracked.lookups.incrementAndGet() < MAX_LOOKUP_ATTEMPTS) {
+			processedRequests.add(requestId);
+		} else if (inFlight.remove(requestId) != null) {
+			failedLookups.increment();
+		}
+	}
+
+	private List<Message> receive(String queueUrl, int maxMessages) {
+		try {
+			return sqs.receiveMessage(new ReceiveMessageRequest(queueUrl).withMaxNumberOfMessages(maxMessages))
+					.getMessages();
+		} catch (RuntimeException e) {
+			return List.of();
+		}
+	}
+
+	/**
+	 * Falha na remoção não é erro da etapa: a mensagem volta depois do visibility
+	 * timeout e o reprocessamento é idempotente.
+	 */
+	private void deleteQuietly(String queueUrl, Message message) {
+		try {
+			sqs.deleteMessage(new DeleteMessageRequest(queueUrl, message.getReceiptHandle()));
+		} catch (RuntimeException e) {
+		}
+	}
+
+	private void deadLetter(String queueUrl, Message message, String requestId) {
+		deleteQuietly(queueUrl, message);
+		if (requestId == null || inFlight.remove(requestId) != null) {
+			deadLettered.increment();
+		}
+	}
+
+	private void recordQueueWait(StageStats stats, Message message) {
+		long waitMillis = System.currentTimeMillis() - Long.parseLong(message.getAttributes().get("SentTimestamp"));
+		long end = System.nanoTime();
+		stats.record(end - TimeUnit.MILLISECONDS.toNanos(waitMillis), end);
+	}
+
+	private static int receiveCount(Message message) {
+		return Integer.parseInt(message.getAttributes().get("ApproximateReceiveCount"));
+	}
+
+	private static MessageAttributeValue stringAttribute(String value) {
+		return new MessageAttributeValue().withDataType("String").withStringValue(value);
+	}
+
+	private static void sleep(long millis) {
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private String buildResult(String tenantId, String requestId) {
+		return "{\"tenantId\":\"" + tenantId + "\",\"requestId\":\"" + requestId + "\"" + resultTail;
+	}
+
+	private static String buildDocumentBody(int documentSize) {
+		byte[] document = new byte[documentSize];
+		new Random(42).nextBytes(document);
+		return "{\"tipoDocumento\":\"RG\",\"correlationId\":\"load-harness\",\"documento\":\""
+				+ Base64.getEncoder().encodeToString(document) + "\"}";
+	}
+
+	/**
+	 * Restante do resultado do OCR (páginas com linhas de texto e confiança), com
+	 * aproximadamente {@code resultSize} bytes no total.
+	 */
+	private static String buildResultTail(int resultSize) {
+		StringBuilder json = new StringBuilder(resultSize + 256).append(",\"status\":\"PROCESSED\",\"pages\":[");
+		int page = 0;
+		while (json.length() < resultSize - 100) {
+			if (page > 0) {
+				json.append(',');
+			}
+			json.append("{\"page\":").append(++page).append(",\"lines\":[");
+			for (int line = 0; line < 20; line++) {
+				if (line > 0) {
+					json.append(',');
+				}
+				json.append("{\"text\":\"Linha ").append(line)
+						.append(" do documento com nome, CPF 000.000.000-00 e endereço\",\"confidence\":0.")
+						.append(900 + line).append('}');
+			}
+			json.append("]}");
+		}
+		return json.append("]}").toString();
+	}
+
+	private void printReport(PrintStream report, long elapsedNanos) {
+		double elapsedSeconds = elapsedNanos / 1e9;
+
+		report.printf("Load harness: %d requests, concurrency %d, tenants %s%n", options.getRequests(),
+				options.getConcurrency(), options.getTenantMix());
+		report.printf("Document %d bytes, result %d bytes, OCR latency %d+%d ms, batch size %d%n",
+				options.getDocumentSize(), options.getResultSize(), options.getOcrLatencyMillis(),
+				options.getOcrJitterMillis(), options.getBatchSize());
+		report.printf("Faults: s3 [%s], dynamodb [%s], sqs [%s]%n%n", s3Faults, dynamoDbFaults, sqsFaults);
+
+		printHeader(report, "stage");
+		for (StageStats stats : List.of(fromApiStats, inputQueueStats, ocrStats, outputQueueStats, processQueueStats,
+				toApiStats, endToEndStats)) {
+			printStage(report, stats);
+		}
+		report.println();
+
+		printHeader(report, "endToEnd by tenant");
+		for (StageStats stats : endToEndByTenant.values()) {
+			printStage(report, stats);
+		}
+		report.println();
+
+		report.printf("Requests: accepted %d, rejected %d, completed %d, dead-lettered %d, failed lookups %d, "
+				+ "timed out %d%n", accepted.sum(), rejected.sum(), completed.sum(), deadLettered.sum(),
+				failedLookups.sum(), inFlight.size());
+		report.printf("Injected: s3 %s, dynamodb %s, sqs %s%n", describe(s3Faults), describe(dynamoDbFaults),
+				describe(sqsFaults));
+		report.printf("Elapsed %.1f s, %.1f completed requests/s%n", elapsedSeconds,
+				completed.sum() / elapsedSeconds);
+	}
+
+	private static String describe(FaultInjector faults) {
+		return String.format("%d calls (%d throttled, %d failed)", faults.getCalls(), faults.getThrottled(),
+				faults.getFailed());
+	}
+
+	private static void printHeader(PrintStream report, String title) {
+		report.printf("%-20s %8s %7s %13s %9s %9s %9s %9s%n", title, "count", "errors", "throughput/s", "p50 ms",
+				"p95 ms", "p99 ms", "max ms");
+	}
+
+	private static void printStage(PrintStream report, StageStats stats) {
+		double[] percentiles = stats.getPercentilesMillis(50, 95, 99, 100);
+		report.printf("%-20s %8d %7d %13.1f %9.2f %9.2f %9.2f %9.2f%n", stats.getName(), stats.getItems(),
+				stats.getErrors(), stats.getThroughputPerSecond(), percentiles[0], percentiles[1], percentiles[2],
+				percentiles[3]);
+	}
+
+	private static final class TrackedRequest {
+		private final String tenantId;
+		private final long startNanos;
+		private final AtomicInteger lookups = new AtomicInteger();
+
+		private TrackedRequest(String tenantId, long startNanos) {
+			this.tenantId = tenantId;
+			this.startNanos = startNanos;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package br.com.prognum.multi_tenants_ocr.loadtest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opções do {@link LoadHarness}, lidas de argumentos {@code --nome=valor}.
+ *
+ * <p>
+ * O mix de tenants é uma lista {@code tenant:peso} separada por vírgulas (peso
+ * padrão 1). As falhas de cada serviço usam o prefixo s3., dynamodb. ou sqs.:
+ * latencyMillis, jitterMillis, throttleRate e errorRate.
+ */
+public class LoadOptions {
+
+	private final Map<String, String> values;
+
+	private LoadOptions(Map<String, String> values) {
+		this.values = values;
+	}
+
+	public static LoadOptions parse(String[] args) {
+		Map<String, String> values = new HashMap<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--") || !arg.contains("=")) {
+				throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+			}
+			int separator = arg.indexOf('=');
+			values.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+		return new LoadOptions(values);
+	}
+
+	public int getRequests() {
+		return getInt("requests", 1000);
+	}
+
+	/** Clientes simultâneos do POST /documents. */
+	public int getConcurrency() {
+		return getInt("concurrency", 16);
+	}
+
+	public int getDocumentSize() {
+		return getInt("documentSize", 100 * 1024);
+	}
+
+	public int getResultSize() {
+		return getInt("resultSize", 16 * 1024);
+	}
+
+	public int getOcrWorkers() {
+		return getInt("ocrWorkers", 8);
+	}
+
+	public long getOcrLatencyMillis() {
+		return getLong("ocrLatencyMillis", 50);
+	}
+
+	public long getOcrJitterMillis() {
+		return getLong("ocrJitterMillis", 0);
+	}
+
+	/** Invocações simultâneas do process_queue (pollers da fila de saída). */
+	public int getProcessQueueWorkers() {
+		return getInt("processQueueWorkers", 4);
+	}
+
+	public int getBatchSize() {
+		return getInt("batchSize", 10);
+	}
+
+	public int getToApiWorkers() {
+		return getInt("toApiWorkers", 8);
+	}
+
+	public long getVisibilityTimeoutMillis() {
+		return getLong("visibilityTimeoutMillis", 30000);
+	}
+
+	/** Recebimentos de uma mensagem antes de ela ir para a DLQ. */
+	public int getMaxReceiveCount() {
+		return getInt("maxReceiveCount", 5);
+	}
+
+	public long getTimeoutSeconds() {
+		return getLong("timeoutSeconds", 300);
+	}
+
+	/** Arquivo para os logs e métricas EMF dos handlers; sem ele são descartados. */
+	public String getLogFile() {
+		return values.get("logFile");
+	}
+
+	public Map<String, Double> getTenantMix() {
+		Map<String, Double> mix = new LinkedHashMap<>();
+		for (String entry : values.getOrDefault("tenants", "tenant-a,tenant-b,tenant-c").split(",")) {
+			String[] parts = entry.trim().split(":");
+			mix.put(parts[0], parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+		}
+		return mix;
+	}
+
+	public FaultInjector getFaults(String service) {
+		return new FaultInjector(getLong(service + ".latencyMillis", 0), getLong(service + ".jitterMillis", 0),
+				getDouble(service + ".throttleRate", 0), getDouble(service + ".errorRate", 0));
+	}
+
+	private int getInt(String name, int defaultValue) {
+		String value = values.get(name);
+		return value != null ? Integer.parseInt(value) : defaultValue;
+	}
+
+	private long getLong(String name, long defaultValue) {
+		String value = values.get(name);
+		return value != null ? Long.parseLong(value) : defaultValue;
+	}
+
+	private double getDouble(String name, double defaultValue) {
+		String value = values.get(name);
+		return value != null ? Double.parseDouble(value) : defaultValue;
+	}
+}
@@ -0,0 +1,93 @@
+package br.com.prognum.multi_tenants_ocr.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latências e vazão de uma etapa do pipeline. Cada amostra é a duração de uma
+ * execução da etapa; a vazão é o número de itens processados dividido pela
+ * janela entre o primeiro início e o último término registrados.
+ */
+public class StageStats {
+
+	private final String name;
+	private final LongAdder items = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong lastEnd = new AtomicLong(Long.MIN_VALUE);
+	private long[] samples = new long[1024];
+	private int count;
+
+	public StageStats(String name) {
+		this.name = name;
+	}
+
+	public void record(long startNanos, long endNanos) {
+		record(startNanos, endNanos, 1);
+	}
+
+	/**
+	 * Execução que processou {@code itemCount} itens (por exemplo, um lote de
+	 * mensagens).
+	 */
+	public void record(long startNanos, long endNanos, int itemCount) {
+		items.add(itemCount);
+		updateWindow(startNanos, endNanos);
+		synchronized (this) {
+			if (count == samples.length) {
+				samples = Arrays.copyOf(samples, count * 2);
+			}
+			samples[count++] = endNanos - startNanos;
+		}
+	}
+
+	public void error(long startNanos, long endNanos) {
+		errors.increment();
+		updateWindow(startNanos, endNanos);
+	}
+
+	private void updateWindow(long startNanos, long endNanos) {
+		firstStart.accumulateAndGet(startNanos, Math::min);
+		lastEnd.accumulateAndGet(endNanos, Math::max);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getItems() {
+		return items.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public double getThroughputPerSecond() {
+		long window = lastEnd.get() - firstStart.get();
+		return window > 0 ? items.sum() * 1e9 / window : 0;
+	}
+
+	/**
+	 * Percentis pelo método nearest-rank, em milissegundos, na ordem pedida.
+	 */
+	public double[] getPercentilesMillis(double... percentiles) {
+		long[] sorted;
+		synchronized (this) {
+			sorted = Arrays.copyOf(samples, count);
+		}
+		Arrays.sort(sorted);
+
+		double[] result = new double[percentiles.length];
+		for (int i = 0; i < percentiles.length; i++) {
+			if (sorted.length == 0) {
+				result[i] = Double.NaN;
+				continue;
+			}
+			int rank = (int) Math.ceil(percentiles[i] / 100 * sorted.length);
+			result[i] = sorted[Math.min(Math.max(rank, 1), sorted.length) - 1] / 1e6;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,121 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.dynamodbv2.model.BatchStatementRequest;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.MessageAttribute;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+/**
+ * Trechos quentes do processamento da fila de saída: leitura da mensagem com o
+ * resultado do OCR e montagem da instrução PartiQL que grava o resultado na
+ * tabela do tenant. Acima de 64 KB o resultado não é materializado como árvore
+ * JSON e a instrução referencia o objeto no S3, então os tamanhos maiores medem
+ * esse caminho. Use {@code -prof gc} para ver a alocação por operação.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessQueueBenchmark {
+
+	private static final String TENANT_ID = "tenant-a";
+	private static final String REQUEST_ID = "01J9Z3Q4W5E6R7T8Y9U0I1O2P3";
+	private static final String TABLE_NAME = "ocr-tenant-a";
+
+	@Param({ "10240", "102400", "1048576", "10485760" })
+	int resultSize;
+
+	private Handler handler;
+	private SQSMessage message;
+	private SqsResponse response;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		TenantRegistry registry = new TenantRegistry("ocr-<tenantId>", "ocr-<tenantId>-documents",
+				"https://sqs.us-east-1.amazonaws.com/000000000000/ocr-<tenantId>-input.fifo",
+				"https://sqs.us-east-1.amazonaws.com/000000000000/ocr-<tenantId>-output.fifo",
+				"https://sqs.us-east-1.amazonaws.com/000000000000/ocr-webhook-retry", List.of(TENANT_ID));
+		handler = new Handler(null, null, null, null, registry);
+
+		message = new SQSMessage();
+		message.setMessageId("bench");
+		message.setBody(buildResult(resultSize));
+		message.setMessageAttributes(
+				Map.of("tenantId", stringAttribute(TENANT_ID), "requestId", stringAttribute(REQUEST_ID)));
+
+		response = handler.parseSqsResponse(message);
+		if (response.getRawResult() != null) {
+			// Estado após offloadLargeResult, sem a chamada ao S3.
+			response.setResultKey(String.format("tenants/%s/results/%s", TENANT_ID, REQUEST_ID));
+			response.setResultSize(response.getRawResult().length);
+			response.setResultChecksum("47DEQpj8HBSa+/TImW+5JCeuQeRkm5NMpJWZG3hSuFU=");
+			response.setRawResult(null);
+		}
+	}
+
+	@Benchmark
+	public SqsResponse parseSqsResponse() throws Exception {
+		return handler.parseSqsResponse(message);
+	}
+
+	@Benchmark
+	public BatchStatementRequest buildUpdateStatement() {
+		return handler.buildUpdateStatement(TABLE_NAME, response);
+	}
+
+	private static MessageAttribute stringAttribute(String value) {
+		MessageAttribute attribute = new MessageAttribute();
+		attribute.setDataType("String");
+		attribute.setStringValue(value);
+		return attribute;
+	}
+
+	/**
+	 * Resultado no formato devolvido pelo OCR (páginas com linhas de texto e
+	 * confiança), com aproximadamente {@code size} bytes.
+	 */
+	private static String buildResult(int size) {
+		StringBuilder json = new StringBuilder(size + 256);
+		json.append("{\"tenantId\":\"").append(TENANT_ID).append("\",\"requestId\":\"").append(REQUEST_ID)
+				.append("\",\"status\":\"PROCESSED\",\"pages\":[");
+
+		int page = 0;
+		while (json.length() < size) {
+			if (page > 0) {
+				json.append(',');
+			}
+			json.append("{\"page\":").append(++page).append(",\"lines\":[");
+			for (int line = 0; line < 40; line++) {
+				if (line > 0) {
+					json.append(',');
+				}
+				json.append("{\"text\":\"Linha ").append(line)
+						.append(" do documento com nome, CPF 000.000.000-00 e endereço\",\"confidence\":0.")
+						.append(900 + line).append('}');
+			}
+			json.append("]}");
+		}
+
+		return json.append("]}").toString();
+	}
+}
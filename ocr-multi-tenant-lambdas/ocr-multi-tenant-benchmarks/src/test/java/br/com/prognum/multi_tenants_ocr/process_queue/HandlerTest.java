@@ -0,0 +1,318 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchExecuteStatementRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchExecuteStatementResult;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementError;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementResponse;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+import br.com.prognum.multi_tenants_ocr.loadtest.FaultInjector;
+import br.com.prognum.multi_tenants_ocr.loadtest.InMemoryDynamoDB;
+
+/**
+ * Testes do lote do process_queue sobre o {@link InMemoryDynamoDB}. Ficam no
+ * módulo de benchmarks porque é ele que tem os clientes em memória e já depende
+ * do process_queue; o inverso criaria um ciclo no reactor.
+ */
+public class HandlerTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final RecordingDynamoDB dynamo = new RecordingDynamoDB();
+	private final Handler handler = new Handler(dynamo, null, null, HttpClient.newHttpClient(),
+			new TenantRegistry("table-<tenantId>", "bucket-<tenantId>", null, null, null,
+					List.of("tenant-a", "tenant-b")));
+
+	@Test
+	public void splitsEachTableIntoChunksOf25Statements() {
+		List<SQSMessage> messages = new ArrayList<>();
+		for (int i = 1; i <= 30; i++) {
+			messages.add(message("m-a" + i, "tenant-a", "a-" + i, 1));
+		}
+		for (int i = 1; i <= 3; i++) {
+			messages.add(message("m-b" + i, "tenant-b", "b-" + i, 1));
+		}
+		seed(messages);
+
+		assertEquals(List.of(), failures(handler.handleRequest(event(messages), new TestContext())));
+
+		assertEquals(List.of(25, 5), callSizes("a-"));
+		assertEquals(List.of(3), callSizes("b-"));
+		assertEquals("PROCESSED", status("tenant-a", "a-30"));
+		assertEquals("PROCESSED", status("tenant-b", "b-3"));
+	}
+
+	@Test
+	public void closesChunkBeforeRequestIdRepeats() {
+		List<SQSMessage> messages = List.of(message("m-1", "tenant-a", "a-1", 1), message("m-2", "tenant-a", "a-2", 1),
+				message("m-3", "tenant-a", "a-1", 2), message("m-4", "tenant-a", "a-3", 1));
+		seed(messages);
+
+		assertEquals(List.of(), failures(handler.handleRequest(event(messages), new TestContext())));
+
+		assertEquals(List.of(List.of("a-1", "a-2"), List.of("a-1", "a-3")), dynamo.calls);
+		assertEquals("2", version("tenant-a", "a-1"));
+	}
+
+	@Test
+	public void retriesThrottledStatements() {
+		List<SQSMessage> messages = List.of(message("m-1", "tenant-a", "a-1", 1), message("m-2", "tenant-a", "a-2", 1),
+				message("m-3", "tenant-a", "a-3", 1));
+		seed(messages);
+		dynamo.throttle("a-2", 1);
+
+		assertEquals(List.of(), failures(handler.handleRequest(event(messages), new TestContext())));
+
+		assertEquals(List.of(List.of("a-1", "a-2", "a-3"), List.of("a-2")), dynamo.calls);
+		assertEquals("PROCESSED", status("tenant-a", "a-2"));
+	}
+
+	@Test
+	public void exhaustedThrottlingReturnsRestOfGroup() {
+		List<SQSMessage> messages = List.of(message("m-1", "tenant-a", "a-1", 1), message("m-2", "tenant-a", "a-2", 1),
+				message("m-3", "tenant-a", "a-3", 1), message("m-4", "tenant-b", "b-1", 1));
+		seed(messages);
+		dynamo.throttle("a-2", 3);
+
+		assertEquals(List.of("m-2", "m-3"), failures(handler.handleRequest(event(messages), new TestContext())));
+		assertEquals(3, callSizes("a-").size());
+		assertEquals("PROCESSED", status("tenant-b", "b-1"));
+	}
+
+	@Test
+	public void stopsTableAtFirstFailedChunk() {
+		List<SQSMessage> messages = List.of(message("m-1", "tenant-a", "a-1", 1),
+				message("m-2", "tenant-a", "a-missing", 1), message("m-3", "tenant-a", "a-1", 2),
+				message("m-4", "tenant-b", "b-1", 1), message("m-5", "tenant-a", "a-3", 1));
+		seed(List.of(messages.get(0), messages.get(3), messages.get(4)));
+
+		assertEquals(List.of("m-2", "m-3", "m-5"),
+				failures(handler.handleRequest(event(messages), new TestContext())));
+
+		assertEquals(List.of(List.of("a-1", "a-missing")), calls("a-"));
+		assertEquals("1", version("tenant-a", "a-1"));
+		assertEquals("PROCESSING", status("tenant-a", "a-3"));
+		assertEquals("PROCESSED", status("tenant-b", "b-1"));
+	}
+
+	@Test
+	public void skipsRestOfGroupAfterInvalidMessage() {
+		SQSMessage invalid = message("m-2", "tenant-a", "a-2", 1);
+		invalid.setBody("not json");
+		List<SQSMessage> messages = List.of(message("m-1", "tenant-a", "a-1", 1), invalid,
+				message("m-3", "tenant-a", "a-3", 1), message("m-4", "tenant-b", "b-1", 1));
+		seed(List.of(messages.get(0), messages.get(2), messages.get(3)));
+
+		assertEquals(List.of("m-2", "m-3"), failures(handler.handleRequest(event(messages), new TestContext())));
+
+		assertEquals(List.of(List.of("a-1")), calls("a-"));
+		assertEquals("PROCESSING", status("tenant-a", "a-3"));
+		assertEquals("PROCESSED", status("tenant-b", "b-1"));
+	}
+
+	private SQSMessage message(String messageId, String tenantId, String requestId, int version) {
+		SQSMessage message = new SQSMessage();
+		message.setMessageId(messageId);
+		message.setAttributes(Map.of("MessageGroupId", tenantId));
+		message.setMessageAttributes(Map.of());
+		message.setBody(String.format("{\"tenantId\":\"%s\",\"requestId\":\"%s\",\"campos\":{\"versao\":%d}}",
+				tenantId, requestId, version));
+		return message;
+	}
+
+	private SQSEvent event(List<SQSMessage> messages) {
+		SQSEvent event = new SQSEvent();
+		event.setRecords(messages);
+		return event;
+	}
+
+	/**
+	 * Grava o estado PROCESSING de cada requestId, como o from_api faz antes de
+	 * enviar o documento para o OCR.
+	 */
+	private void seed(List<SQSMessage> messages) {
+		for (SQSMessage message : messages) {
+			JsonNode body = readTree(message.getBody());
+			String tenantId = body.path("tenantId").textValue();
+			String requestId = body.path("requestId").textValue();
+			Map<String, AttributeValue> item = new HashMap<>(key(tenantId, requestId));
+			item.put("status", new AttributeValue("PROCESSING"));
+			dynamo.putItem(new PutItemRequest().withTableName("table-" + tenantId).withItem(item));
+		}
+	}
+
+	private JsonNode readTree(String content) {
+		try {
+			return objectMapper.readTree(content);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Map<String, AttributeValue> item(String tenantId, String requestId) {
+		return dynamo.getItem(new GetItemRequest().withTableName("table-" + tenantId).withKey(key(tenantId, requestId)))
+				.getItem();
+	}
+
+	private String status(String tenantId, String requestId) {
+		return item(tenantId, requestId).get("status").getS();
+	}
+
+	private String version(String tenantId, String requestId) {
+		return item(tenantId, requestId).get("queueResult").getM().get("campos").getM().get("versao").getN();
+	}
+
+	private static Map<String, AttributeValue> key(String tenantId, String requestId) {
+		return Map.of("pk", new AttributeValue("TENANT_ID#" + tenantId), "sk",
+				new AttributeValue("REQUEST_ID#" + requestId));
+	}
+
+	private List<String> failures(SQSBatchResponse response) {
+		return response.getBatchItemFailures().stream().map(SQSBatchResponse.BatchItemFailure::getItemIdentifier)
+				.collect(Collectors.toList());
+	}
+
+	private List<List<String>> calls(String requestIdPrefix) {
+		return dynamo.calls.stream().filter(call -> call.get(0).startsWith(requestIdPrefix))
+				.collect(Collectors.toList());
+	}
+
+	private List<Integer> callSizes(String requestIdPrefix) {
+		return calls(requestIdPrefix).stream().map(List::size).collect(Collectors.toList());
+	}
+
+	/**
+	 * Registra os requestIds de cada BatchExecuteStatement e devolve
+	 * ThrottlingError para os requestIds configurados, um número fixo de vezes.
+	 */
+	static class RecordingDynamoDB extends InMemoryDynamoDB {
+		final List<List<String>> calls = new CopyOnWriteArrayList<>();
+		private final Map<String, Integer> throttles = new ConcurrentHashMap<>();
+
+		RecordingDynamoDB() {
+			super(FaultInjector.none());
+		}
+
+		void throttle(String requestId, int times) {
+			throttles.put(requestId, times);
+		}
+
+		@Override
+		public BatchExecuteStatementResult batchExecuteStatement(BatchExecuteStatementRequest request) {
+			List<String> requestIds = new ArrayList<>();
+			List<BatchStatementRequest> executed = new ArrayList<>();
+			BatchStatementResponse[] responses = new BatchStatementResponse[request.getStatements().size()];
+
+			for (int i = 0; i < responses.length; i++) {
+				BatchStatementRequest statement = request.getStatements().get(i);
+				List<AttributeValue> parameters = statement.getParameters();
+				String requestId = parameters.get(parameters.size() - 1).getS().substring("REQUEST_ID#".length());
+				requestIds.add(requestId);
+
+				if (throttles.getOrDefault(requestId, 0) > 0) {
+					throttles.merge(requestId, -1, Integer::sum);
+					responses[i] = new BatchStatementResponse().withError(
+							new BatchStatementError().withCode("ThrottlingError").withMessage("Throttled"));
+				} else {
+					executed.add(statement);
+				}
+			}
+			calls.add(requestIds);
+
+			List<BatchStatementResponse> executedResponses = executed.isEmpty() ? List.of()
+					: super.batchExecuteStatement(new BatchExecuteStatementRequest().withStatements(executed))
+							.getResponses();
+			for (int i = 0, next = 0; i < responses.length; i++) {
+				if (responses[i] == null) {
+					responses[i] = executedResponses.get(next++);
+				}
+			}
+			return new BatchExecuteStatementResult().withResponses(Arrays.asList(responses));
+		}
+	}
+
+	static class TestContext implements Context {
+		@Override
+		public String getAwsRequestId() {
+			return "test-request";
+		}
+
+		@Override
+		public String getLogGroupName() {
+			return null;
+		}
+
+		@Override
+		public String getLogStreamName() {
+			return null;
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "process-queue";
+		}
+
+		@Override
+		public String getFunctionVersion() {
+			return "$LATEST";
+		}
+
+		@Override
+		public String getInvokedFunctionArn() {
+			return null;
+		}
+
+		@Override
+		public CognitoIdentity getIdentity() {
+			return null;
+		}
+
+		@Override
+		public ClientContext getClientContext() {
+			return null;
+		}
+
+		@Override
+		public int getRemainingTimeInMillis() {
+			return 30_000;
+		}
+
+		@Override
+		public int getMemoryLimitInMB() {
+			return 512;
+		}
+
+		@Override
+		public LambdaLogger getLogger() {
+			return null;
+		}
+	}
+}
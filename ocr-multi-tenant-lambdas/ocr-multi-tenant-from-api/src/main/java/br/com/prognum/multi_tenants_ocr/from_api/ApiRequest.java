@@ -4,7 +4,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * DTO que representa a requisição recebida do API Gateway.
- * Contém o conteúdo do documento a ser processado.
+ * O conteúdo do documento não é mantido aqui: ele é enviado diretamente ao S3
+ * durante a leitura do corpo da requisição.
  */
 public class ApiRequest {
 	@JsonProperty("tipoDocumento")
@@ -12,16 +13,12 @@ public class ApiRequest {
     
 	private String correlationId;
     
-    @JsonProperty("documento")
-    private String document; 
-    
     public ApiRequest() {
     }
     
-    public ApiRequest(String documentType, String correlationId, String document) {
+    public ApiRequest(String documentType, String correlationId) {
         this.documentType = documentType;
         this.correlationId = correlationId;
-        this.document = document;
     }
 
 	public String getDocumentType() {
@@ -40,13 +37,6 @@ public class ApiRequest {
 		this.correlationId = correlationId;
 	}
 
-	public String getDocument() {
-		return document;
-	}
-
-	public void setDocument(String document) {
-		this.document = document;
-	}
     
     
 }
\ No newline at end of file
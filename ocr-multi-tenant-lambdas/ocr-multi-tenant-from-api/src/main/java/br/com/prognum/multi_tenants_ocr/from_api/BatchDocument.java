@@ -0,0 +1,58 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+/**
+ * Representa um documento de uma requisição de POST /documents/batch e o
+ * estado do seu processamento dentro do lote.
+ */
+public class BatchDocument {
+    private final String requestId;
+    private final ApiRequest apiRequest;
+    private final String s3Key;
+    private byte[] content;
+    private String error;
+
+    public BatchDocument(String requestId, ApiRequest apiRequest, String s3Key, byte[] content) {
+        this.requestId = requestId;
+        this.apiRequest = apiRequest;
+        this.s3Key = s3Key;
+        this.content = content;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public ApiRequest getApiRequest() {
+        return apiRequest;
+    }
+
+    public String getS3Key() {
+        return s3Key;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Libera o conteúdo decodificado assim que o upload termina, para que o lote
+     * não mantenha todos os documentos em memória até o fim da requisição.
+     */
+    public void releaseContent() {
+        this.content = null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void fail(String error) {
+        if (this.error == null) {
+            this.error = error;
+        }
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
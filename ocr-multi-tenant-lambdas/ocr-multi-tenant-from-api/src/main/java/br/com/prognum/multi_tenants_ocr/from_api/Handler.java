@@ -1,49 +1,110 @@
 package br.com.prognum.multi_tenants_ocr.from_api;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+import org.crac.Resource;
+
+import com.amazonaws.HttpMethod;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
 import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import br.com.prognum.multi_tenant_ocr.common.utils.AwsClients;
+import br.com.prognum.multi_tenant_ocr.common.utils.ClientProfile;
 import br.com.prognum.multi_tenant_ocr.common.utils.Config;
-import br.com.prognum.multi_tenant_ocr.common.utils.ConfigImpl;
+import br.com.prognum.multi_tenant_ocr.common.utils.Metrics;
+import br.com.prognum.multi_tenant_ocr.common.utils.MetricsScope;
+import br.com.prognum.multi_tenant_ocr.common.utils.Priming;
+import br.com.prognum.multi_tenant_ocr.common.utils.RequestLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.StageTimer;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
 
 /**
  * Lambda function que recebe requisições do API Gateway para processar
  * documentos.
  */
-public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse>, Resource {
+
+    private static final Base64Variant DOCUMENT_BASE64 = Base64Variants.MIME_NO_LINEFEEDS
+            .withReadPadding(Base64Variant.PaddingReadBehaviour.PADDING_ALLOWED);
+    private static final String UPLOADS_ROUTE_KEY = "POST /documents/uploads";
+    private static final Duration UPLOAD_URL_EXPIRATION = Duration.ofMinutes(15);
+    private static final String BATCH_ROUTE_KEY = "POST /documents/batch";
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_BATCH_WRITE_ITEMS = 25;
+    private static final int MAX_BATCH_WRITE_ATTEMPTS = 5;
+    private static final long BATCH_WRITE_RETRY_BASE_DELAY_MILLIS = 50;
+    private static final int MAX_SEND_MESSAGE_BATCH_ENTRIES = 10;
+    private static final int IO_THREADS = 8;
+    private static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+    private static final String MULTIPART_CONTENT_TYPE = "multipart/form-data";
 
     private final AmazonS3 s3Client;
     private final AmazonDynamoDB dynamoDbClient;
     private final AmazonSQS sqsClient;
     private final ObjectMapper objectMapper;
     private final Config config;
+    private final ExecutorService executor;
+    private final StructuredLogger logger;
+    private final Metrics metrics;
+    private volatile SecureRandom requestIdRandom;
 
     public Handler() {
-        this(AmazonS3ClientBuilder.standard().build(), AmazonDynamoDBClientBuilder.standard().build(),
-                AmazonSQSClientBuilder.standard().build(), new ConfigImpl()
+        this(AwsClients.s3(ClientProfile.API), AwsClients.dynamoDB(ClientProfile.API),
+                AwsClients.sqs(ClientProfile.API), TenantRegistry.getInstance()
 
         );
+        Priming.register(this);
     }
 
     public Handler(AmazonS3 s3Client, AmazonDynamoDB dynamoDbClient, AmazonSQS sqsClient, Config config) {
@@ -52,77 +113,717 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
         this.sqsClient = sqsClient;
         this.config = config;
         this.objectMapper = new ObjectMapper();
+        this.logger = StructuredLogger.getInstance();
+        this.metrics = Metrics.getInstance();
+        this.requestIdRandom = new SecureRandom();
+        this.executor = Executors.newFixedThreadPool(IO_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "from-api-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Priming antes do snapshot do SnapStart: aquece o ObjectMapper com os DTOs e
+     * executa, com clientes descartáveis, as chamadas de escrita do handler.
+     */
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        SqsRequest sqsRequest = new SqsRequest();
+        sqsRequest.setTenantId(Priming.PRIMING_NAME);
+        sqsRequest.setRequestId(Priming.PRIMING_NAME);
+        Priming.primeJson(objectMapper, new ApiRequest("priming", Priming.PRIMING_NAME), sqsRequest);
+
+        Priming.primeDynamoDB(client -> client.putItem(new PutItemRequest()
+                .withTableName(Priming.PRIMING_NAME)
+                .withItem(Map.of("pk", new AttributeValue(Priming.PRIMING_NAME)))
+                .withConditionExpression("attribute_not_exists(pk)")));
+        Priming.primeS3(config);
+        Priming.primeSqs(client -> client.getQueueUrl(Priming.PRIMING_NAME));
+    }
+
+    /**
+     * O gerador dos requestIds é recriado no restore: todas as instâncias
+     * restauradas do mesmo snapshot começariam com o mesmo estado.
+     */
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+        requestIdRandom = new SecureRandom();
     }
 
     @Override
     public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+        logger.startInvocation(context.getAwsRequestId());
+        metrics.startInvocation();
         try {
-            context.getLogger().log(String.format("Received event: %s", event));
-
             String tenantId = extractTenantId(event);
-            String requestId = extractRequestId(event);
-            ApiRequest apiRequest = parseApiRequest(event);
+            logger.setContext(tenantId, null, event.getHeaders().get("x-correlation-id"));
+            logger.info("Received event", "routeKey", event.getRouteKey(), "bodyLength",
+                    event.getBody() != null ? event.getBody().length() : 0);
+
+            if (!config.isKnownTenant(tenantId)) {
+                return buildErrorResponse(403, "Unknown tenant: " + tenantId);
+            }
+            metrics.setDimensions(tenantId, null);
             String timestamp = Instant.now().toString();
 
-            context.getLogger().log(String.format("Processing document: %s for tenant: %s", requestId, tenantId));
+            if (BATCH_ROUTE_KEY.equals(event.getRouteKey())) {
+                return submitBatch(tenantId, timestamp, event);
+            }
 
-            String s3Key = saveDocumentToS3(tenantId, requestId, apiRequest);
-            saveStateToDynamoDB(tenantId, requestId, apiRequest, s3Key, timestamp, context);
-            sendMessageToQueue(tenantId, requestId, apiRequest, s3Key, timestamp, context);
+            String requestId = extractRequestId(event);
+            logger.setContext(null, requestId, null);
+            logger.info("Processing document");
+
+            if (UPLOADS_ROUTE_KEY.equals(event.getRouteKey())) {
+                return createDirectUpload(tenantId, requestId, timestamp, event);
+            }
+
+            String s3Key = buildS3Key(tenantId, requestId);
+            ApiRequest apiRequest = saveDocumentAndState(tenantId, requestId, s3Key, timestamp, event);
 
-            return buildSuccessResponse(tenantId, requestId, timestamp);
+            try {
+                sendMessageToQueue(tenantId, requestId, apiRequest, s3Key, timestamp);
+            } catch (Exception e) {
+                markStateAsFailed(tenantId, requestId, logger.current());
+                throw e;
+            }
 
+            return buildSuccessResponse(buildResponseBody(tenantId, requestId, timestamp));
+
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            logger.warn("Invalid request", e);
+            return buildBadRequestResponse(e);
         } catch (Exception e) {
+            logger.error("Request failed", e);
             throw new RuntimeException(e);
+        } finally {
+            metrics.flush();
+            logger.flush();
+        }
+    }
+
+    /**
+     * Fluxo de upload direto: grava o estado PROCESSING e devolve uma URL
+     * pré-assinada para o cliente enviar o documento diretamente ao S3. O envio
+     * para a fila de entrada é feito pelo {@link S3EventHandler} quando o objeto
+     * chega ao bucket.
+     */
+    private APIGatewayV2HTTPResponse createDirectUpload(String tenantId, String requestId, String timestamp,
+            APIGatewayV2HTTPEvent event) throws Exception {
+
+        ApiRequest apiRequest = objectMapper.readValue(event.getBody(), ApiRequest.class);
+        logger.setContext(null, null, apiRequest.getCorrelationId());
+        metrics.setDimensions(null, apiRequest.getDocumentType());
+        String bucketName = config.buildBucketName(tenantId);
+        String s3Key = buildS3Key(tenantId, requestId);
+
+        Map<String, AttributeValue> item = buildDynamoDBItem(tenantId,
+                requestId,
+                apiRequest,
+                bucketName,
+                s3Key,
+                config.buildOutputQueueUrl(tenantId),
+                timestamp);
+        item.put("uploadMode", new AttributeValue(S3EventHandler.UPLOAD_MODE_PRESIGNED));
+
+        StageTimer timer = metrics.startTimer("saveStateToDynamoDB");
+        try {
+            dynamoDbClient.putItem(new PutItemRequest().withTableName(config.buildTableName(tenantId)).withItem(item));
+        } finally {
+            timer.stop();
         }
+        logger.info("State saved to DynamoDB with status PROCESSING, awaiting direct upload");
+
+        Date expiration = Date.from(Instant.now().plus(UPLOAD_URL_EXPIRATION));
+        URL uploadUrl = s3Client.generatePresignedUrl(
+                new GeneratePresignedUrlRequest(bucketName, s3Key, HttpMethod.PUT).withExpiration(expiration));
+
+        Map<String, Object> responseBody = buildResponseBody(tenantId, requestId, timestamp);
+        responseBody.put("uploadUrl", uploadUrl.toString());
+        responseBody.put("uploadExpiresAt", expiration.toInstant().toString());
+
+        return buildSuccessResponse(responseBody);
+    }
+
+    /**
+     * Recebe até {@link #MAX_BATCH_SIZE} documentos em uma única chamada. Os
+     * uploads são feitos em paralelo, o estado é gravado com BatchWriteItem e as
+     * mensagens são enviadas com SendMessageBatch. A falha de um documento não
+     * interrompe o lote: a resposta traz o status de cada documento.
+     */
+    private APIGatewayV2HTTPResponse submitBatch(String tenantId, String timestamp, APIGatewayV2HTTPEvent event)
+            throws Exception {
+
+        List<BatchDocument> documents = parseBatchRequest(tenantId, event);
+        logger.info("Processing batch", "documents", documents.size());
+
+        uploadBatchToS3(tenantId, documents);
+        saveBatchStateToDynamoDB(tenantId, timestamp, documents);
+        sendBatchToQueue(tenantId, timestamp, documents);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (BatchDocument document : documents) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("requestId", document.getRequestId());
+            result.put("correlationId", document.getApiRequest().getCorrelationId());
+            result.put("status", document.isFailed() ? "FAILED" : "PROCESSING");
+            if (document.isFailed()) {
+                result.put("error", document.getError());
+            }
+            results.add(result);
+        }
+
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("tenantId", tenantId);
+        responseBody.put("createdAt", timestamp);
+        responseBody.put("documents", results);
+
+        return buildSuccessResponse(responseBody);
+    }
+
+    private List<BatchDocument> parseBatchRequest(String tenantId, APIGatewayV2HTTPEvent event) throws Exception {
+        List<BatchDocument> documents = new ArrayList<>();
+        Set<String> requestIds = new HashSet<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(event.getBody())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Request body must be a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if (!"documentos".equals(fieldName)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (valueToken != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("'documentos' must be an array");
+                }
+
+                JsonToken elementToken;
+                while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (elementToken != JsonToken.START_OBJECT) {
+                        throw new IllegalArgumentException("'documentos' must contain only objects");
+                    }
+                    if (documents.size() == MAX_BATCH_SIZE) {
+                        throw new IllegalArgumentException(
+                                String.format("A batch accepts at most %d documents", MAX_BATCH_SIZE));
+                    }
+
+                    BatchDocument document = parseBatchDocument(tenantId, parser);
+                    if (!requestIds.add(document.getRequestId())) {
+                        throw new IllegalArgumentException(
+                                String.format("Duplicate requestId in batch: %s", document.getRequestId()));
+                    }
+                    documents.add(document);
+                }
+            }
+        }
+
+        if (documents.isEmpty()) {
+            throw new IllegalArgumentException("Batch request has no documents");
+        }
+
+        return documents;
+    }
+
+    private BatchDocument parseBatchDocument(String tenantId, JsonParser parser) throws Exception {
+        ApiRequest apiRequest = new ApiRequest();
+        String requestId = null;
+        byte[] content = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+
+            switch (fieldName) {
+            case "requestId":
+                requestId = parser.getValueAsString();
+                break;
+            case "tipoDocumento":
+                apiRequest.setDocumentType(parser.getValueAsString());
+                break;
+            case "correlationId":
+                apiRequest.setCorrelationId(parser.getValueAsString());
+                break;
+            case "documento":
+                if (valueToken == JsonToken.VALUE_STRING) {
+                    content = parser.getBinaryValue(DOCUMENT_BASE64);
+                }
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+
+        if (requestId == null) {
+            requestId = newRequestId();
+        }
+
+        BatchDocument document = new BatchDocument(requestId, apiRequest, buildS3Key(tenantId, requestId), content);
+        if (content == null) {
+            document.fail("Missing 'documento' field");
+        } else if (apiRequest.getDocumentType() == null) {
+            document.fail("Missing 'tipoDocumento' field");
+        } else if (apiRequest.getCorrelationId() == null) {
+            document.fail("Missing 'correlationId' field");
+        }
+
+        return document;
+    }
+
+    private void uploadBatchToS3(String tenantId, List<BatchDocument> documents) {
+        String bucketName = config.buildBucketName(tenantId);
+        List<CompletableFuture<Void>> uploads = new ArrayList<>();
+
+        for (BatchDocument document : documents) {
+            if (document.isFailed()) {
+                continue;
+            }
+
+            uploads.add(CompletableFuture
+                    .runAsync(() -> uploadBatchDocumentToS3(tenantId, bucketName, document), executor)
+                    .exceptionally(error -> {
+                        forDocument(tenantId, document).warn("Failed to upload document to S3", error);
+                        document.fail("Failed to upload document to S3");
+                        return null;
+                    }));
+        }
+
+        CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void uploadBatchDocumentToS3(String tenantId, String bucketName, BatchDocument document) {
+        MetricsScope scope = metrics.forDimensions(tenantId, document.getApiRequest().getDocumentType());
+        StageTimer timer = scope.startTimer("saveDocumentToS3");
+        try {
+            byte[] content = document.getContent();
+            scope.recordBytes("documentBytes", content.length);
+            ObjectMetadata metadata = buildObjectMetadata(tenantId, document.getRequestId());
+            metadata.setContentLength(content.length);
+
+            s3Client.putObject(new PutObjectRequest(bucketName, document.getS3Key(),
+                    new ByteArrayInputStream(content), metadata));
+        } finally {
+            timer.stop();
+            document.releaseContent();
+        }
+    }
+
+    private void saveBatchStateToDynamoDB(String tenantId, String timestamp, List<BatchDocument> documents)
+            throws Exception {
+
+        String tableName = config.buildTableName(tenantId);
+        String bucketName = config.buildBucketName(tenantId);
+        String outputQueueUrl = config.buildOutputQueueUrl(tenantId);
+
+        Map<String, BatchDocument> documentsByRequestId = new HashMap<>();
+        List<WriteRequest> writeRequests = new ArrayList<>();
+        for (BatchDocument document : documents) {
+            if (document.isFailed()) {
+                continue;
+            }
+
+            documentsByRequestId.put(document.getRequestId(), document);
+            writeRequests.add(new WriteRequest(new PutRequest(buildDynamoDBItem(tenantId,
+                    document.getRequestId(),
+                    document.getApiRequest(),
+                    bucketName,
+                    document.getS3Key(),
+                    outputQueueUrl,
+                    timestamp))));
+        }
+
+        for (int start = 0; start < writeRequests.size(); start += MAX_BATCH_WRITE_ITEMS) {
+            List<WriteRequest> chunk = writeRequests.subList(start,
+                    Math.min(start + MAX_BATCH_WRITE_ITEMS, writeRequests.size()));
+
+            List<WriteRequest> unprocessed;
+            StageTimer timer = metrics.startTimer("saveStateToDynamoDB");
+            try {
+                unprocessed = writeBatchWithRetry(tableName, chunk);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.warn("BatchWriteItem failed", e, "items", chunk.size());
+                unprocessed = chunk;
+            } finally {
+                timer.stop();
+            }
+
+            for (WriteRequest writeRequest : unprocessed) {
+                BatchDocument document = documentsByRequestId
+                        .get(writeRequest.getPutRequest().getItem().get("requestId").getS());
+                document.fail("Failed to save state to DynamoDB");
+                deleteDocumentFromS3(tenantId, document.getS3Key(), forDocument(tenantId, document));
+            }
+        }
+
+        logger.info("Batch state saved to DynamoDB with status PROCESSING");
+    }
+
+    /**
+     * Executa o BatchWriteItem reenviando os itens não processados (UnprocessedItems)
+     * com backoff exponencial. Devolve os itens que continuaram pendentes após a
+     * última tentativa.
+     */
+    private List<WriteRequest> writeBatchWithRetry(String tableName, List<WriteRequest> writeRequests)
+            throws InterruptedException {
+
+        List<WriteRequest> pending = writeRequests;
+        for (int attempt = 0; attempt < MAX_BATCH_WRITE_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(BATCH_WRITE_RETRY_BASE_DELAY_MILLIS << (attempt - 1));
+            }
+
+            BatchWriteItemResult result = dynamoDbClient
+                    .batchWriteItem(new BatchWriteItemRequest().withRequestItems(Map.of(tableName, pending)));
+
+            Map<String, List<WriteRequest>> unprocessedItems = result.getUnprocessedItems();
+            pending = unprocessedItems != null ? unprocessedItems.getOrDefault(tableName, List.of()) : List.of();
+        }
+
+        return pending;
+    }
+
+    private void sendBatchToQueue(String tenantId, String timestamp, List<BatchDocument> documents)
+            throws Exception {
+
+        String inputQueueUrl = config.buildInputQueueUrl(tenantId);
+        String bucketName = config.buildBucketName(tenantId);
+        String outputQueueUrl = config.buildOutputQueueUrl(tenantId);
+
+        List<BatchDocument> savedDocuments = new ArrayList<>();
+        for (BatchDocument document : documents) {
+            if (!document.isFailed()) {
+                savedDocuments.add(document);
+            }
+        }
+
+        for (int start = 0; start < savedDocuments.size(); start += MAX_SEND_MESSAGE_BATCH_ENTRIES) {
+            List<BatchDocument> chunk = savedDocuments.subList(start,
+                    Math.min(start + MAX_SEND_MESSAGE_BATCH_ENTRIES, savedDocuments.size()));
+
+            List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                BatchDocument document = chunk.get(i);
+                SqsRequest sqsRequest = buildSqsRequest(tenantId,
+                        document.getRequestId(),
+                        document.getApiRequest(),
+                        bucketName,
+                        document.getS3Key(),
+                        outputQueueUrl,
+                        timestamp);
+
+                String messageJson = objectMapper.writeValueAsString(sqsRequest);
+                entries.add(new SendMessageBatchRequestEntry(String.valueOf(i), messageJson)
+                        .withMessageGroupId(tenantId)
+                        .withMessageDeduplicationId(document.getRequestId()));
+            }
+
+            List<BatchDocument> failedDocuments = new ArrayList<>();
+            StageTimer timer = metrics.startTimer("sendMessageToQueue");
+            try {
+                SendMessageBatchResult result = sqsClient
+                        .sendMessageBatch(new SendMessageBatchRequest(inputQueueUrl, entries));
+                timer.stop();
+                for (BatchResultErrorEntry failedEntry : result.getFailed()) {
+                    BatchDocument document = chunk.get(Integer.parseInt(failedEntry.getId()));
+                    forDocument(tenantId, document).warn("SendMessageBatch entry failed", "code",
+                            failedEntry.getCode(), "errorMessage", failedEntry.getMessage());
+                    failedDocuments.add(document);
+                }
+            } catch (Exception e) {
+                logger.warn("SendMessageBatch failed", e, "entries", chunk.size());
+                failedDocuments.addAll(chunk);
+            } finally {
+                timer.stop();
+            }
+
+            for (BatchDocument document : failedDocuments) {
+                document.fail("Failed to send message to input queue");
+                markStateAsFailed(tenantId, document.getRequestId(), forDocument(tenantId, document));
+            }
+        }
+
+        logger.info("Batch messages sent to input queue", "messageGroupId", tenantId);
+    }
+
+    private RequestLogger forDocument(String tenantId, BatchDocument document) {
+        return logger.forRequest(tenantId, document.getRequestId(), document.getApiRequest().getCorrelationId());
     }
 
     private String extractTenantId(APIGatewayV2HTTPEvent event) {
         return event.getHeaders().get("x-tenant-id");
     }
 
+    /**
+     * UUID versão 4 gerado com {@link #requestIdRandom}.
+     */
+    private String newRequestId() {
+        byte[] bytes = new byte[16];
+        requestIdRandom.nextBytes(bytes);
+        bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x40);
+        bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
     private String extractRequestId(APIGatewayV2HTTPEvent event) {
         String requestId = event.getHeaders().get("x-request-id");
         if (requestId == null) {
-            requestId = UUID.randomUUID().toString();
+            requestId = newRequestId();
         }
         return requestId;
     }
 
-    private ApiRequest parseApiRequest(APIGatewayV2HTTPEvent event) throws Exception {
-        Map<String, Object> body = objectMapper.readValue(event.getBody(), new TypeReference<Map<String, Object>>() {
-        });
+    /**
+     * Lê o corpo da requisição conforme o Content-Type, escrevendo o documento em
+     * {@code documentSink}: JSON com {@code documento} em base64 (contrato
+     * original), binário puro com os metadados nos cabeçalhos ou
+     * multipart/form-data com o arquivo em uma parte.
+     */
+    ApiRequest parseApiRequest(APIGatewayV2HTTPEvent event, OutputStream documentSink,
+            Consumer<ApiRequest> metadataListener) throws Exception {
+        String contentType = event.getHeaders().get("content-type");
+        String mediaType = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+
+        if (mediaType.startsWith(BINARY_CONTENT_TYPE)) {
+            return parseBinaryApiRequest(event, documentSink, metadataListener);
+        }
+        if (mediaType.startsWith(MULTIPART_CONTENT_TYPE)) {
+            return parseMultipartApiRequest(event, contentType, documentSink, metadataListener);
+        }
+        return parseJsonApiRequest(event, documentSink, metadataListener);
+    }
+
+    /**
+     * Corpo binário: os metadados chegam nos cabeçalhos x-tipo-documento e
+     * x-correlation-id, então a gravação do estado pode começar antes da cópia do
+     * documento.
+     */
+    private ApiRequest parseBinaryApiRequest(APIGatewayV2HTTPEvent event, OutputStream documentSink,
+            Consumer<ApiRequest> metadataListener) throws Exception {
+        // Validado antes de notificar os metadados: sem documento, nada é gravado.
+        if (event.getBody() == null || event.getBody().isEmpty()) {
+            throw new IllegalArgumentException("Missing document in request body");
+        }
+
+        ApiRequest apiRequest = new ApiRequest(event.getHeaders().get("x-tipo-documento"),
+                event.getHeaders().get("x-correlation-id"));
+        metadataListener.accept(apiRequest);
+
+        try (InputStream body = openBody(event)) {
+            body.transferTo(documentSink);
+        }
+
+        return apiRequest;
+    }
+
+    /**
+     * Corpo multipart/form-data: os campos tipoDocumento e correlationId são
+     * partes de texto e o documento é a parte {@code documento} (ou qualquer parte
+     * com filename), copiada em streaming para {@code documentSink}.
+     */
+    private ApiRequest parseMultipartApiRequest(APIGatewayV2HTTPEvent event, String contentType,
+            OutputStream documentSink, Consumer<ApiRequest> metadataListener) throws Exception {
+        ApiRequest apiRequest = new ApiRequest();
+        boolean documentFound = false;
+        boolean documentTypeFound = false;
+        boolean correlationIdFound = false;
+        boolean metadataNotified = false;
+
+        try (InputStream body = openBody(event)) {
+            MultipartStreamReader reader = new MultipartStreamReader(body,
+                    MultipartStreamReader.extractBoundary(contentType));
+
+            while (reader.nextPart()) {
+                String partName = reader.getPartName();
+
+                if ("tipoDocumento".equals(partName)) {
+                    apiRequest.setDocumentType(reader.readPartAsString());
+                    documentTypeFound = true;
+                } else if ("correlationId".equals(partName)) {
+                    apiRequest.setCorrelationId(reader.readPartAsString());
+                    correlationIdFound = true;
+                } else if (!documentFound && ("documento".equals(partName) || reader.getFileName() != null)) {
+                    reader.readPartContent(documentSink);
+                    documentFound = true;
+                }
+
+                if (!metadataNotified && documentTypeFound && correlationIdFound) {
+                    metadataListener.accept(apiRequest);
+                    metadataNotified = true;
+                }
+            }
+        }
+
+        if (!documentFound) {
+            throw new IllegalArgumentException("Missing 'documento' part in multipart body");
+        }
+
+        if (!metadataNotified) {
+            metadataListener.accept(apiRequest);
+        }
+
+        return apiRequest;
+    }
+
+    /**
+     * Lê o corpo JSON com o parser de streaming do Jackson. O campo
+     * {@code documento} não é materializado como String nem como byte[]: o base64
+     * é decodificado diretamente para {@code documentSink} à medida que é lido.
+     */
+    private ApiRequest parseJsonApiRequest(APIGatewayV2HTTPEvent event, OutputStream documentSink,
+            Consumer<ApiRequest> metadataListener) throws Exception {
+        ApiRequest apiRequest = new ApiRequest();
+        boolean documentFound = false;
+        boolean documentTypeFound = false;
+        boolean correlationIdFound = false;
+        boolean metadataNotified = false;
+
+        try (JsonParser parser = event.getIsBase64Encoded()
+                ? objectMapper.getFactory().createParser(openBody(event))
+                : objectMapper.getFactory().createParser(event.getBody())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Request body must be a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+
+                switch (fieldName) {
+                case "tipoDocumento":
+                    apiRequest.setDocumentType(parser.getValueAsString());
+                    documentTypeFound = true;
+                    break;
+                case "correlationId":
+                    apiRequest.setCorrelationId(parser.getValueAsString());
+                    correlationIdFound = true;
+                    break;
+                case "documento":
+                    if (valueToken == JsonToken.VALUE_STRING) {
+                        parser.readBinaryValue(DOCUMENT_BASE64, documentSink);
+                        documentFound = true;
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                }
+
+                if (!metadataNotified && documentTypeFound && correlationIdFound) {
+                    metadataListener.accept(apiRequest);
+                    metadataNotified = true;
+                }
+            }
+        }
+
+        if (!documentFound) {
+            throw new IllegalArgumentException("Missing 'documento' field in request body");
+        }
+
+        if (!metadataNotified) {
+            metadataListener.accept(apiRequest);
+        }
+
+        return apiRequest;
+    }
 
-        String documentType = (String) body.get("tipoDocumento");
-        String correlationId = (String) body.get("correlationId");
-        String document = (String) body.get("documento");
+    /**
+     * Abre o corpo da requisição como InputStream. Quando o API Gateway entrega o
+     * corpo em base64, a decodificação é feita em streaming sobre a própria
+     * String, sem cópias intermediárias.
+     */
+    private InputStream openBody(APIGatewayV2HTTPEvent event) {
+        String body = event.getBody() != null ? event.getBody() : "";
+        if (event.getIsBase64Encoded()) {
+            return Base64.getDecoder().wrap(new StringInputStream(body));
+        }
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String buildS3Key(String tenantId, String requestId) {
+        return String.format("tenants/%s/requests/%s", tenantId, requestId);
+    }
+
+    /**
+     * Envia o documento ao S3 e grava o estado PROCESSING na DynamoDB ao mesmo
+     * tempo: a gravação começa em paralelo assim que os metadados do documento
+     * são lidos do corpo. Se apenas um dos lados falhar, o outro é compensado
+     * (estado marcado como FAILED ou objeto removido do bucket).
+     */
+    private ApiRequest saveDocumentAndState(String tenantId, String requestId, String s3Key, String timestamp,
+            APIGatewayV2HTTPEvent event) throws Exception {
+        AtomicReference<CompletableFuture<Void>> stateSaved = new AtomicReference<>();
+        Consumer<ApiRequest> metadataListener = apiRequest -> {
+            logger.setContext(null, null, apiRequest.getCorrelationId());
+            metrics.setDimensions(null, apiRequest.getDocumentType());
+            stateSaved.set(CompletableFuture.runAsync(
+                    () -> saveStateToDynamoDB(tenantId, requestId, apiRequest, s3Key, timestamp), executor));
+        };
+
+        ApiRequest apiRequest;
+        try {
+            apiRequest = saveDocumentToS3(tenantId, requestId, s3Key, event, metadataListener);
+        } catch (Exception e) {
+            CompletableFuture<Void> pendingState = stateSaved.get();
+            if (pendingState != null && pendingState.handle((result, error) -> error == null).join()) {
+                markStateAsFailed(tenantId, requestId, logger.current());
+            }
+            throw e;
+        }
+
+        try {
+            stateSaved.get().join();
+        } catch (CompletionException e) {
+            deleteDocumentFromS3(tenantId, s3Key, logger.current());
+            throw e;
+        }
 
-        return new ApiRequest(documentType, correlationId, document);
+        return apiRequest;
     }
 
-    private String saveDocumentToS3(String tenantId, String requestId, ApiRequest apiRequest) {
+    private ApiRequest saveDocumentToS3(String tenantId, String requestId, String s3Key, APIGatewayV2HTTPEvent event,
+            Consumer<ApiRequest> metadataListener) throws Exception {
         String bucketName = config.buildBucketName(tenantId);
-        String s3Key = String.format("tenants/%s/requests/%s", tenantId, requestId);
 
-        byte[] documentBytes = Base64.getDecoder().decode(apiRequest.getDocument());
-        uploadBinaryToS3(bucketName, s3Key, documentBytes, tenantId, requestId);
+        S3UploadOutputStream documentSink = new S3UploadOutputStream(s3Client, bucketName, s3Key,
+                buildObjectMetadata(tenantId, requestId));
 
-        return s3Key;
+        StageTimer timer = metrics.startTimer("saveDocumentToS3");
+        ApiRequest apiRequest;
+        try {
+            try {
+                apiRequest = parseApiRequest(event, documentSink, metadataListener);
+            } catch (Exception e) {
+                documentSink.abort();
+                throw e;
+            }
+            documentSink.close();
+        } finally {
+            timer.stop();
+        }
+        metrics.recordBytes("documentBytes", documentSink.getSize());
+
+        return apiRequest;
     }
 
-    private void uploadBinaryToS3(String bucketName, String s3Key, byte[] documentBytes, String tenantId,
-            String requestId) {
+    private ObjectMetadata buildObjectMetadata(String tenantId, String requestId) {
         ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentLength(documentBytes.length);
         metadata.setContentType("application/octet-stream");
         metadata.addUserMetadata("tenant-id", tenantId);
         metadata.addUserMetadata("request-id", requestId);
 
-        s3Client.putObject(bucketName, s3Key, new ByteArrayInputStream(documentBytes), metadata);
+        return metadata;
     }
 
     private void saveStateToDynamoDB(String tenantId, String requestId, ApiRequest apiRequest, String s3Key,
-            String timestamp, Context context) {
+            String timestamp) {
 
         String tableName = config.buildTableName(tenantId);
         String bucketName = config.buildBucketName(tenantId);
@@ -138,11 +839,48 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
 
         PutItemRequest putItemRequest = new PutItemRequest().withTableName(tableName).withItem(item);
 
-        dynamoDbClient.putItem(putItemRequest);
-        context.getLogger().log("State saved to DynamoDB with status PROCESSING");
+        StageTimer timer = metrics.startTimer("saveStateToDynamoDB");
+        try {
+            dynamoDbClient.putItem(putItemRequest);
+        } finally {
+            timer.stop();
+        }
+        logger.info("State saved to DynamoDB with status PROCESSING");
+    }
+
+    private void markStateAsFailed(String tenantId, String requestId, RequestLogger log) {
+        try {
+            Map<String, AttributeValue> key = new HashMap<>();
+            key.put("pk", new AttributeValue(String.format("TENANT_ID#%s", tenantId)));
+            key.put("sk", new AttributeValue(String.format("REQUEST_ID#%s", requestId)));
+
+            UpdateItemRequest updateItemRequest = new UpdateItemRequest().withTableName(config.buildTableName(tenantId))
+                    .withKey(key)
+                    .withUpdateExpression("SET #status = :status, updatedAt = :updatedAt REMOVE pendingStatus")
+                    .withExpressionAttributeNames(Map.of("#status", "status"))
+                    .withExpressionAttributeValues(Map.of(":status",
+                            new AttributeValue("FAILED"),
+                            ":updatedAt",
+                            new AttributeValue(Instant.now().toString())))
+                    .withConditionExpression("attribute_exists(pk) AND attribute_exists(sk)");
+
+            dynamoDbClient.updateItem(updateItemRequest);
+            log.info("State updated in DynamoDB with status FAILED");
+        } catch (Exception e) {
+            log.warn("Failed to mark request as FAILED", e);
+        }
     }
 
-    private Map<String, AttributeValue> buildDynamoDBItem(String tenantId, String requestId, ApiRequest apiRequest,
+    private void deleteDocumentFromS3(String tenantId, String s3Key, RequestLogger log) {
+        try {
+            s3Client.deleteObject(config.buildBucketName(tenantId), s3Key);
+            log.info("Document removed from S3", "s3Key", s3Key);
+        } catch (Exception e) {
+            log.warn("Failed to remove document from S3", e, "s3Key", s3Key);
+        }
+    }
+
+    Map<String, AttributeValue> buildDynamoDBItem(String tenantId, String requestId, ApiRequest apiRequest,
             String bucketName, String s3Key, String outputQueueUrl, String timestamp) {
 
         Map<String, AttributeValue> item = new HashMap<>();
@@ -154,6 +892,8 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
         item.put("bucketKey", new AttributeValue(s3Key));
         item.put("outputQueueUrl", new AttributeValue(outputQueueUrl));
         item.put("status", new AttributeValue("PROCESSING"));
+        // Atributo esparso do índice de pendentes: existe só enquanto o status não é terminal.
+        item.put("pendingStatus", new AttributeValue("PROCESSING"));
         item.put("createdAt", new AttributeValue(timestamp));
         item.put("updatedAt", new AttributeValue(timestamp));
         item.put("documentType", new AttributeValue(apiRequest.getDocumentType()));
@@ -163,7 +903,7 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
     }
 
     private void sendMessageToQueue(String tenantId, String requestId, ApiRequest apiRequest, String s3Key,
-            String timestamp, Context context) throws Exception {
+            String timestamp) throws Exception {
 
         String inputQueueUrl = config.buildInputQueueUrl(tenantId);
         String bucketName = config.buildBucketName(tenantId);
@@ -184,11 +924,16 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
                 .withMessageGroupId(tenantId)
                 .withMessageDeduplicationId(requestId);
 
-        sqsClient.sendMessage(sendMessageRequest);
-        context.getLogger().log(String.format("Message sent to input queue with group: %s", tenantId));
+        StageTimer timer = metrics.startTimer("sendMessageToQueue");
+        try {
+            sqsClient.sendMessage(sendMessageRequest);
+        } finally {
+            timer.stop();
+        }
+        logger.info("Message sent to input queue", "messageGroupId", tenantId);
     }
 
-    private SqsRequest buildSqsRequest(String tenantId, String requestId, ApiRequest apiRequest, String bucketName,
+    SqsRequest buildSqsRequest(String tenantId, String requestId, ApiRequest apiRequest, String bucketName,
             String s3Key, String outputQueueUrl, String timestamp) {
         SqsRequest sqsRequest = new SqsRequest();
         sqsRequest.setTenantId(tenantId);
@@ -203,9 +948,7 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
         return sqsRequest;
     }
 
-    private APIGatewayV2HTTPResponse buildSuccessResponse(String tenantId, String requestId, String timestamp)
-            throws Exception {
-
+    private Map<String, Object> buildResponseBody(String tenantId, String requestId, String timestamp) {
         Map<String, Object> responseBody = new HashMap<>();
         responseBody.put("tenantId", tenantId);
         responseBody.put("requestId", requestId);
@@ -213,6 +956,10 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
         responseBody.put("createdAt", timestamp);
         responseBody.put("updatedAt", timestamp);
 
+        return responseBody;
+    }
+
+    private APIGatewayV2HTTPResponse buildSuccessResponse(Map<String, Object> responseBody) throws Exception {
         String response = objectMapper.writeValueAsString(responseBody);
 
         return APIGatewayV2HTTPResponse.builder()
@@ -221,4 +968,27 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
                 .withBody(response)
                 .build();
     }
+
+    /**
+     * Corpo inválido é erro do cliente: repetir a mesma requisição não adianta,
+     * então a resposta é 400 e não um 500 que o cliente tentaria de novo.
+     */
+    private APIGatewayV2HTTPResponse buildBadRequestResponse(Exception e) {
+        String message = e instanceof JsonProcessingException
+                ? "Malformed JSON body: " + ((JsonProcessingException) e).getOriginalMessage()
+                : e.getMessage();
+        try {
+            return buildErrorResponse(400, message);
+        } catch (Exception serializationError) {
+            throw new RuntimeException(serializationError);
+        }
+    }
+
+    private APIGatewayV2HTTPResponse buildErrorResponse(int statusCode, String message) throws Exception {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(statusCode)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody(objectMapper.writeValueAsString(Map.of("message", message)))
+                .build();
+    }
 }
@@ -0,0 +1,223 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Leitor de corpos multipart/form-data que percorre as partes em streaming. O
+ * conteúdo de cada parte é copiado para um OutputStream à medida que é lido,
+ * mantendo em memória apenas um buffer de tamanho fixo.
+ */
+public class MultipartStreamReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE_LENGTH = 8 * 1024;
+    private static final int MAX_TEXT_PART_LENGTH = 64 * 1024;
+
+    private final InputStream input;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private boolean started;
+    private boolean partContentPending;
+    private String partName;
+    private String fileName;
+
+    public MultipartStreamReader(InputStream input, String boundary) {
+        this.input = input;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[BUFFER_SIZE + delimiter.length];
+        // O primeiro delimitador pode não ser precedido de CRLF.
+        this.buffer[0] = '\r';
+        this.buffer[1] = '\n';
+        this.limit = 2;
+    }
+
+    /**
+     * Extrai o boundary do cabeçalho Content-Type de uma requisição
+     * multipart/form-data.
+     */
+    public static String extractBoundary(String contentType) {
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+                String boundary = trimmed.substring("boundary=".length());
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary;
+            }
+        }
+        throw new IllegalArgumentException("Missing boundary in multipart Content-Type");
+    }
+
+    /**
+     * Avança para a próxima parte, descartando o conteúdo não lido da parte
+     * atual. Retorna false quando o delimitador final é encontrado.
+     */
+    public boolean nextPart() throws IOException {
+        if (!started) {
+            readUntilDelimiter(OutputStream.nullOutputStream());
+            started = true;
+        } else if (partContentPending) {
+            readUntilDelimiter(OutputStream.nullOutputStream());
+        }
+
+        partName = null;
+        fileName = null;
+        partContentPending = false;
+
+        ensureAvailable(2);
+        if (limit - position >= 2 && buffer[position] == '-' && buffer[position + 1] == '-') {
+            return false;
+        }
+        readLine();
+
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            if (line.toLowerCase(Locale.ROOT).startsWith("content-disposition:")) {
+                partName = extractDispositionParameter(line, "name");
+                fileName = extractDispositionParameter(line, "filename");
+            }
+        }
+
+        partContentPending = true;
+        return true;
+    }
+
+    public String getPartName() {
+        return partName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void readPartContent(OutputStream output) throws IOException {
+        readUntilDelimiter(output);
+        partContentPending = false;
+    }
+
+    public String readPartAsString() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        readPartContent(new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                if (output.size() + length > MAX_TEXT_PART_LENGTH) {
+                    throw new IllegalArgumentException("Multipart text field too large");
+                }
+                output.write(bytes, offset, length);
+            }
+        });
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private void readUntilDelimiter(OutputStream output) throws IOException {
+        while (true) {
+            ensureAvailable(delimiter.length);
+
+            int index = indexOfDelimiter();
+            if (index >= 0) {
+                output.write(buffer, position, index - position);
+                position = index + delimiter.length;
+                return;
+            }
+
+            if (eof) {
+                throw new IllegalArgumentException("Malformed multipart body: missing closing boundary");
+            }
+
+            // Mantém no buffer apenas o trecho que ainda pode ser início do delimitador.
+            int safeEnd = limit - (delimiter.length - 1);
+            if (safeEnd > position) {
+                output.write(buffer, position, safeEnd - position);
+                position = safeEnd;
+            }
+            fill();
+        }
+    }
+
+    private int indexOfDelimiter() {
+        int last = limit - delimiter.length;
+        for (int i = position; i <= last; i++) {
+            if (buffer[i] != delimiter[0]) {
+                continue;
+            }
+            int j = 1;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j]) {
+                j++;
+            }
+            if (j == delimiter.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true) {
+            ensureAvailable(2);
+            if (limit - position < 2) {
+                throw new IllegalArgumentException("Malformed multipart body: truncated headers");
+            }
+            if (buffer[position] == '\r' && buffer[position + 1] == '\n') {
+                position += 2;
+                return line.toString(StandardCharsets.UTF_8);
+            }
+            if (line.size() == MAX_HEADER_LINE_LENGTH) {
+                throw new IllegalArgumentException("Malformed multipart body: header line too long");
+            }
+            line.write(buffer[position++]);
+        }
+    }
+
+    private void ensureAvailable(int count) throws IOException {
+        while (limit - position < count && !eof) {
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private static String extractDispositionParameter(String header, String parameterName) {
+        for (String parameter : header.split(";")) {
+            String trimmed = parameter.trim();
+            int equals = trimmed.indexOf('=');
+            if (equals < 0 || !trimmed.substring(0, equals).trim().equalsIgnoreCase(parameterName)) {
+                continue;
+            }
+
+            String value = trimmed.substring(equals + 1).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            return value;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,481 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.AwsClients;
+import br.com.prognum.multi_tenant_ocr.common.utils.ClientProfile;
+import br.com.prognum.multi_tenant_ocr.common.utils.Config;
+import br.com.prognum.multi_tenant_ocr.common.utils.Metrics;
+import br.com.prognum.multi_tenant_ocr.common.utils.StageTimer;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+/**
+ * Lambda function do upload retomável de documentos grandes, apoiado no
+ * multipart upload do S3:
+ * <ul>
+ * <li>POST /documents/multipart inicia o upload e grava o estado UPLOADING;</li>
+ * <li>POST /documents/multipart/{requestId}/parts/{partNumber} devolve uma URL
+ * pré-assinada para o envio da parte diretamente ao S3;</li>
+ * <li>GET /documents/multipart/{requestId}/parts lista as partes já
+ * recebidas;</li>
+ * <li>POST /documents/multipart/{requestId}/complete conclui o upload e envia a
+ * mensagem para a fila de entrada.</li>
+ * </ul>
+ * As partes não passam pela Lambda: o limite de payload de uma invocação
+ * síncrona é menor que o tamanho mínimo de uma parte do S3 codificada em base64.
+ */
+public class ResumableUploadHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+
+    public static final String UPLOAD_MODE_MULTIPART = "MULTIPART";
+
+    private static final String INITIATE_ROUTE_KEY = "POST /documents/multipart";
+    private static final String PART_ROUTE_KEY = "POST /documents/multipart/{requestId}/parts/{partNumber}";
+    private static final String LIST_PARTS_ROUTE_KEY = "GET /documents/multipart/{requestId}/parts";
+    private static final String COMPLETE_ROUTE_KEY = "POST /documents/multipart/{requestId}/complete";
+    private static final String STATUS_UPLOADING = "UPLOADING";
+    private static final String STATUS_PROCESSING = "PROCESSING";
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    private static final int MAX_PARTS = 10000;
+    private static final Duration PART_URL_EXPIRATION = Duration.ofMinutes(15);
+    /**
+     * A conclusão de um upload com muitas partes pode levar mais que o timeout do
+     * perfil API; o S3 mantém a conexão viva enviando espaços enquanto monta o
+     * objeto, então basta ampliar o tempo total, ainda abaixo dos 29 s do API
+     * Gateway.
+     */
+    private static final int COMPLETE_REQUEST_TIMEOUT_MILLIS = 25_000;
+
+    private final AmazonS3 s3Client;
+    private final AmazonDynamoDB dynamoDbClient;
+    private final AmazonSQS sqsClient;
+    private final ObjectMapper objectMapper;
+    private final Config config;
+    private final StructuredLogger logger;
+    private final Metrics metrics;
+
+    public ResumableUploadHandler() {
+        this(AwsClients.s3(ClientProfile.API), AwsClients.dynamoDB(ClientProfile.API),
+                AwsClients.sqs(ClientProfile.API), TenantRegistry.getInstance());
+    }
+
+    public ResumableUploadHandler(AmazonS3 s3Client, AmazonDynamoDB dynamoDbClient, AmazonSQS sqsClient,
+            Config config) {
+        this.s3Client = s3Client;
+        this.dynamoDbClient = dynamoDbClient;
+        this.sqsClient = sqsClient;
+        this.config = config;
+        this.objectMapper = new ObjectMapper();
+        this.logger = StructuredLogger.getInstance();
+        this.metrics = Metrics.getInstance();
+    }
+
+    @Override
+    public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+        logger.startInvocation(context.getAwsRequestId());
+        metrics.startInvocation();
+        try {
+            String tenantId = event.getHeaders().get("x-tenant-id");
+            logger.setContext(tenantId, event.getPathParameters() != null ? event.getPathParameters().get("requestId")
+                    : event.getHeaders().get("x-request-id"), event.getHeaders().get("x-correlation-id"));
+            logger.info("Received event", "routeKey", event.getRouteKey());
+            metrics.setDimensions(tenantId, null);
+            if (!config.isKnownTenant(tenantId)) {
+                return buildErrorResponse(403, "Unknown tenant: " + tenantId);
+            }
+
+            switch (event.getRouteKey()) {
+            case INITIATE_ROUTE_KEY:
+                return initiateUpload(tenantId, event);
+            case PART_ROUTE_KEY:
+                return createPartUploadUrl(tenantId, event);
+            case LIST_PARTS_ROUTE_KEY:
+                return listUploadedParts(tenantId, event);
+            case COMPLETE_ROUTE_KEY:
+                return completeUpload(tenantId, event);
+            default:
+                return buildErrorResponse(404, "Unknown route: " + event.getRouteKey());
+            }
+
+        } catch (Exception e) {
+            logger.error("Request failed", e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.flush();
+            logger.flush();
+        }
+    }
+
+    private APIGatewayV2HTTPResponse initiateUpload(String tenantId, APIGatewayV2HTTPEvent event) throws Exception {
+
+        if (event.getBody() == null || event.getBody().isEmpty()) {
+            return buildErrorResponse(400, "Missing request body");
+        }
+        ApiRequest apiRequest;
+        try {
+            apiRequest = objectMapper.readValue(event.getBody(), ApiRequest.class);
+        } catch (JsonProcessingException e) {
+            // JSON malformado ou com campos desconhecidos é erro do cliente, não um 500.
+            logger.warn("Invalid request", e);
+            return buildErrorResponse(400, "Malformed JSON body: " + e.getOriginalMessage());
+        }
+        String requestId = event.getHeaders().get("x-request-id");
+        if (requestId == null) {
+            requestId = UUID.randomUUID().toString();
+        }
+        logger.setContext(null, requestId, apiRequest.getCorrelationId());
+        metrics.setDimensions(null, apiRequest.getDocumentType());
+
+        String bucketName = config.buildBucketName(tenantId);
+        String s3Key = String.format("tenants/%s/requests/%s", tenantId, requestId);
+        String timestamp = Instant.now().toString();
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("application/octet-stream");
+        metadata.addUserMetadata("tenant-id", tenantId);
+        metadata.addUserMetadata("request-id", requestId);
+
+        String uploadId = s3Client
+                .initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, s3Key, metadata))
+                .getUploadId();
+
+        Map<String, AttributeValue> item = buildDynamoDBKey(tenantId, requestId);
+        item.put("tenantId", new AttributeValue(tenantId));
+        item.put("requestId", new AttributeValue(requestId));
+        item.put("bucketName", new AttributeValue(bucketName));
+        item.put("bucketKey", new AttributeValue(s3Key));
+        item.put("outputQueueUrl", new AttributeValue(config.buildOutputQueueUrl(tenantId)));
+        item.put("status", new AttributeValue(STATUS_UPLOADING));
+        item.put("pendingStatus", new AttributeValue(STATUS_UPLOADING));
+        item.put("createdAt", new AttributeValue(timestamp));
+        item.put("updatedAt", new AttributeValue(timestamp));
+        item.put("documentType", new AttributeValue(apiRequest.getDocumentType()));
+        item.put("correlationId", new AttributeValue(apiRequest.getCorrelationId()));
+        item.put("uploadMode", new AttributeValue(UPLOAD_MODE_MULTIPART));
+        item.put("uploadId", new AttributeValue(uploadId));
+
+        StageTimer timer = metrics.startTimer("saveStateToDynamoDB");
+        try {
+            dynamoDbClient.putItem(new PutItemRequest().withTableName(config.buildTableName(tenantId))
+                    .withItem(item)
+                    .withConditionExpression("attribute_not_exists(pk)"));
+        } catch (ConditionalCheckFailedException e) {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, s3Key, uploadId));
+            return buildErrorResponse(409, String.format("Request %s already exists", requestId));
+        } finally {
+            timer.stop();
+        }
+        logger.info("Multipart upload initiated", "uploadId", uploadId);
+
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("tenantId", tenantId);
+        responseBody.put("requestId", requestId);
+        responseBody.put("uploadId", uploadId);
+        responseBody.put("status", STATUS_UPLOADING);
+        responseBody.put("createdAt", timestamp);
+        responseBody.put("minPartSize", MIN_PART_SIZE);
+        responseBody.put("maxParts", MAX_PARTS);
+
+        return buildSuccessResponse(responseBody);
+    }
+
+    private APIGatewayV2HTTPResponse createPartUploadUrl(String tenantId, APIGatewayV2HTTPEvent event)
+            throws Exception {
+
+        String requestId = event.getPathParameters().get("requestId");
+        int partNumber;
+        try {
+            partNumber = Integer.parseInt(event.getPathParameters().get("partNumber"));
+        } catch (NumberFormatException e) {
+            return buildErrorResponse(400, "Invalid part number");
+        }
+        if (partNumber < 1 || partNumber > MAX_PARTS) {
+            return buildErrorResponse(400, String.format("Part number must be between 1 and %d", MAX_PARTS));
+        }
+
+        Map<String, AttributeValue> item = getUploadItem(tenantId, requestId);
+        if (item == null) {
+            return buildErrorResponse(404, String.format("Multipart upload not found for request %s", requestId));
+        }
+        if (!STATUS_UPLOADING.equals(item.get("status").getS())) {
+            return buildErrorResponse(409, String.format("Upload of request %s is already complete", requestId));
+        }
+
+        Date expiration = Date.from(Instant.now().plus(PART_URL_EXPIRATION));
+        GeneratePresignedUrlRequest presignedUrlRequest = new GeneratePresignedUrlRequest(
+                item.get("bucketName").getS(), item.get("bucketKey").getS(), HttpMethod.PUT)
+                .withExpiration(expiration);
+        presignedUrlRequest.addRequestParameter("uploadId", item.get("uploadId").getS());
+        presignedUrlRequest.addRequestParameter("partNumber", String.valueOf(partNumber));
+        URL uploadUrl = s3Client.generatePresignedUrl(presignedUrlRequest);
+
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("requestId", requestId);
+        responseBody.put("partNumber", partNumber);
+        responseBody.put("uploadUrl", uploadUrl.toString());
+        responseBody.put("uploadExpiresAt", expiration.toInstant().toString());
+
+        return buildSuccessResponse(responseBody);
+    }
+
+    private APIGatewayV2HTTPResponse listUploadedParts(String tenantId, APIGatewayV2HTTPEvent event)
+            throws Exception {
+
+        String requestId = event.getPathParameters().get("requestId");
+        Map<String, AttributeValue> item = getUploadItem(tenantId, requestId);
+        if (item == null) {
+            return buildErrorResponse(404, String.format("Multipart upload not found for request %s", requestId));
+        }
+
+        List<Map<String, Object>> parts = new ArrayList<>();
+        if (STATUS_UPLOADING.equals(item.get("status").getS())) {
+            for (PartSummary part : listParts(item)) {
+                Map<String, Object> partBody = new HashMap<>();
+                partBody.put("partNumber", part.getPartNumber());
+                partBody.put("size", part.getSize());
+                partBody.put("etag", part.getETag());
+                parts.add(partBody);
+            }
+        }
+
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("requestId", requestId);
+        responseBody.put("status", item.get("status").getS());
+        responseBody.put("parts", parts);
+
+        return buildSuccessResponse(responseBody);
+    }
+
+    /**
+     * Conclui o multipart upload com as partes registradas no S3 e envia a
+     * mensagem para a fila de entrada. A operação é idempotente: se o cliente
+     * perder a resposta e repetir a chamada, o upload já concluído não é refeito e
+     * a mensagem só é enviada por quem marcar enqueuedAt no item, não importa
+     * quanto tempo depois a chamada seja repetida.
+     */
+    private APIGatewayV2HTTPResponse completeUpload(String tenantId, APIGatewayV2HTTPEvent event) throws Exception {
+
+        String requestId = event.getPathParameters().get("requestId");
+        Map<String, AttributeValue> item = getUploadItem(tenantId, requestId);
+        if (item == null) {
+            return buildErrorResponse(404, String.format("Multipart upload not found for request %s", requestId));
+        }
+
+        logger.setContext(null, null, item.get("correlationId").getS());
+        metrics.setDimensions(null, item.get("documentType").getS());
+
+        String status = item.get("status").getS();
+        String timestamp = Instant.now().toString();
+        if (STATUS_UPLOADING.equals(status)) {
+            String bucketName = item.get("bucketName").getS();
+            String s3Key = item.get("bucketKey").getS();
+
+            List<PartETag> partETags = new ArrayList<>();
+            try {
+                for (PartSummary part : listParts(item)) {
+                    partETags.add(new PartETag(part.getPartNumber(), part.getETag()));
+                }
+                if (partETags.isEmpty()) {
+                    return buildErrorResponse(400, "No parts uploaded");
+                }
+
+                s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, s3Key,
+                        item.get("uploadId").getS(), partETags)
+                        .withSdkRequestTimeout(COMPLETE_REQUEST_TIMEOUT_MILLIS));
+            } catch (AmazonS3Exception e) {
+                // Uma chamada anterior pode ter concluído o upload sem atualizar o estado.
+                if (!"NoSuchUpload".equals(e.getErrorCode()) || !s3Client.doesObjectExist(bucketName, s3Key)) {
+                    throw e;
+                }
+            }
+
+            markAsProcessing(tenantId, requestId, timestamp);
+            status = STATUS_PROCESSING;
+            logger.info("Multipart upload completed");
+        }
+
+        if (STATUS_PROCESSING.equals(status) && item.get("enqueuedAt") == null
+                && markAsEnqueued(tenantId, requestId, timestamp)) {
+            try {
+                sendMessageToQueue(tenantId, requestId, item);
+            } catch (Exception e) {
+                // Libera a marca para que a próxima chamada de conclusão envie a mensagem.
+                unmarkAsEnqueued(tenantId, requestId);
+                throw e;
+            }
+        }
+
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("tenantId", tenantId);
+        responseBody.put("requestId", requestId);
+        responseBody.put("status", status);
+        responseBody.put("updatedAt", timestamp);
+
+        return buildSuccessResponse(responseBody);
+    }
+
+    private List<PartSummary> listParts(Map<String, AttributeValue> item) {
+        ListPartsRequest listPartsRequest = new ListPartsRequest(item.get("bucketName").getS(),
+                item.get("bucketKey").getS(), item.get("uploadId").getS());
+
+        List<PartSummary> parts = new ArrayList<>();
+        PartListing partListing;
+        do {
+            partListing = s3Client.listParts(listPartsRequest);
+            parts.addAll(partListing.getParts());
+            listPartsRequest.setPartNumberMarker(partListing.getNextPartNumberMarker());
+        } while (partListing.isTruncated());
+
+        parts.sort(Comparator.comparingInt(PartSummary::getPartNumber));
+        return parts;
+    }
+
+    private Map<String, AttributeValue> getUploadItem(String tenantId, String requestId) {
+        Map<String, AttributeValue> item = dynamoDbClient.getItem(new GetItemRequest()
+                .withTableName(config.buildTableName(tenantId))
+                .withKey(buildDynamoDBKey(tenantId, requestId))
+                .withConsistentRead(true)).getItem();
+
+        if (item == null || item.get("uploadMode") == null
+                || !UPLOAD_MODE_MULTIPART.equals(item.get("uploadMode").getS())) {
+            return null;
+        }
+        return item;
+    }
+
+    private void markAsProcessing(String tenantId, String requestId, String timestamp) {
+        try {
+            dynamoDbClient.updateItem(new UpdateItemRequest().withTableName(config.buildTableName(tenantId))
+                    .withKey(buildDynamoDBKey(tenantId, requestId))
+                    .withUpdateExpression("SET #status = :status, pendingStatus = :status, updatedAt = :updatedAt")
+                    .withConditionExpression("#status = :uploading")
+                    .withExpressionAttributeNames(Map.of("#status", "status"))
+                    .withExpressionAttributeValues(Map.of(":status",
+                            new AttributeValue(STATUS_PROCESSING),
+                            ":uploading",
+                            new AttributeValue(STATUS_UPLOADING),
+                            ":updatedAt",
+                            new AttributeValue(timestamp))));
+        } catch (ConditionalCheckFailedException e) {
+            // Outra chamada concorrente de conclusão já atualizou o estado.
+        }
+    }
+
+    /**
+     * Reserva o envio da mensagem: só a chamada que grava enqueuedAt enfileira o
+     * documento. Retorna false se outra chamada já o fez.
+     */
+    private boolean markAsEnqueued(String tenantId, String requestId, String timestamp) {
+        try {
+            dynamoDbClient.updateItem(new UpdateItemRequest().withTableName(config.buildTableName(tenantId))
+                    .withKey(buildDynamoDBKey(tenantId, requestId))
+                    .withUpdateExpression("SET enqueuedAt = :enqueuedAt")
+                    .withConditionExpression("#status = :processing AND attribute_not_exists(enqueuedAt)")
+                    .withExpressionAttributeNames(Map.of("#status", "status"))
+                    .withExpressionAttributeValues(Map.of(":processing",
+                            new AttributeValue(STATUS_PROCESSING),
+                            ":enqueuedAt",
+                            new AttributeValue(timestamp))));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    private void unmarkAsEnqueued(String tenantId, String requestId) {
+        try {
+            dynamoDbClient.updateItem(new UpdateItemRequest().withTableName(config.buildTableName(tenantId))
+                    .withKey(buildDynamoDBKey(tenantId, requestId))
+                    .withUpdateExpression("REMOVE enqueuedAt"));
+        } catch (Exception e) {
+            logger.error("Failed to clear enqueuedAt", e);
+        }
+    }
+
+    private void sendMessageToQueue(String tenantId, String requestId, Map<String, AttributeValue> item)
+            throws Exception {
+
+        SqsRequest sqsRequest = new SqsRequest();
+        sqsRequest.setTenantId(tenantId);
+        sqsRequest.setRequestId(requestId);
+        sqsRequest.setCorrelationId(item.get("correlationId").getS());
+        sqsRequest.setDocumentType(item.get("documentType").getS());
+        sqsRequest.setBucketName(item.get("bucketName").getS());
+        sqsRequest.setBucketKey(item.get("bucketKey").getS());
+        sqsRequest.setOutputQueueUrl(item.get("outputQueueUrl").getS());
+        sqsRequest.setTimestamp(item.get("createdAt").getS());
+
+        SendMessageRequest sendMessageRequest = new SendMessageRequest()
+                .withQueueUrl(config.buildInputQueueUrl(tenantId))
+                .withMessageBody(objectMapper.writeValueAsString(sqsRequest))
+                .withMessageGroupId(tenantId)
+                .withMessageDeduplicationId(requestId);
+
+        StageTimer timer = metrics.startTimer("sendMessageToQueue");
+        try {
+            sqsClient.sendMessage(sendMessageRequest);
+        } finally {
+            timer.stop();
+        }
+        logger.info("Message sent to input queue", "messageGroupId", tenantId);
+    }
+
+    private Map<String, AttributeValue> buildDynamoDBKey(String tenantId, String requestId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("pk", new AttributeValue("TENANT_ID#" + tenantId));
+        key.put("sk", new AttributeValue("REQUEST_ID#" + requestId));
+        return key;
+    }
+
+    private APIGatewayV2HTTPResponse buildErrorResponse(int statusCode, String message) throws Exception {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(statusCode)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody(objectMapper.writeValueAsString(Map.of("message", message)))
+                .build();
+    }
+
+    private APIGatewayV2HTTPResponse buildSuccessResponse(Map<String, Object> responseBody) throws Exception {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(200)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody(objectMapper.writeValueAsString(responseBody))
+                .build();
+    }
+}
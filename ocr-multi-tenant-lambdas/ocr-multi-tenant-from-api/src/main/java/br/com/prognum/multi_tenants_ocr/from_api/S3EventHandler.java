@@ -0,0 +1,205 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification.S3EventNotificationRecord;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.AwsClients;
+import br.com.prognum.multi_tenant_ocr.common.utils.ClientProfile;
+import br.com.prognum.multi_tenant_ocr.common.utils.Config;
+import br.com.prognum.multi_tenant_ocr.common.utils.Metrics;
+import br.com.prognum.multi_tenant_ocr.common.utils.MetricsScope;
+import br.com.prognum.multi_tenant_ocr.common.utils.RequestLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.StageTimer;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+/**
+ * Lambda function acionada pelo S3 quando um documento enviado por URL
+ * pré-assinada (POST /documents/uploads) chega ao bucket do tenant. Envia para
+ * a fila de entrada do tenant a mesma mensagem do fluxo de POST /documents.
+ */
+public class S3EventHandler implements RequestHandler<S3Event, Void> {
+
+    public static final String UPLOAD_MODE_PRESIGNED = "PRESIGNED";
+
+    private final AmazonDynamoDB dynamoDbClient;
+    private final AmazonSQS sqsClient;
+    private final ObjectMapper objectMapper;
+    private final Config config;
+    private final StructuredLogger logger;
+    private final Metrics metrics;
+
+    public S3EventHandler() {
+        this(AwsClients.dynamoDB(ClientProfile.WORKER), AwsClients.sqs(ClientProfile.WORKER),
+                TenantRegistry.getInstance());
+    }
+
+    public S3EventHandler(AmazonDynamoDB dynamoDbClient, AmazonSQS sqsClient, Config config) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.sqsClient = sqsClient;
+        this.config = config;
+        this.objectMapper = new ObjectMapper();
+        this.logger = StructuredLogger.getInstance();
+        this.metrics = Metrics.getInstance();
+    }
+
+    @Override
+    public Void handleRequest(S3Event event, Context context) {
+        logger.startInvocation(context.getAwsRequestId());
+        metrics.startInvocation();
+        try {
+            for (S3EventNotificationRecord record : event.getRecords()) {
+                processRecord(record);
+            }
+            return null;
+
+        } catch (Exception e) {
+            logger.error("S3 event processing failed", e);
+            throw new RuntimeException(e);
+        } finally {
+            metrics.flush();
+            logger.flush();
+        }
+    }
+
+    private void processRecord(S3EventNotificationRecord record) throws Exception {
+        String s3Key = record.getS3().getObject().getUrlDecodedKey();
+        String[] keyParts = s3Key.split("/");
+
+        if (keyParts.length != 4 || !"tenants".equals(keyParts[0]) || !"requests".equals(keyParts[2])) {
+            logger.info("Ignoring object outside the requests prefix", "s3Key", s3Key);
+            return;
+        }
+
+        String tenantId = keyParts[1];
+        String requestId = keyParts[3];
+        RequestLogger log = logger.forRequest(tenantId, requestId, null);
+
+        if (!config.isKnownTenant(tenantId)) {
+            log.warn("Ignoring object of unknown tenant", "s3Key", s3Key);
+            return;
+        }
+
+        String bucketName = record.getS3().getBucket().getName();
+        if (!config.buildBucketName(tenantId).equals(bucketName)) {
+            log.warn("Ignoring object outside the tenant bucket", "bucketName", bucketName, "s3Key", s3Key);
+            return;
+        }
+
+        Map<String, AttributeValue> item = markAsUploaded(tenantId, requestId);
+        if (item == null) {
+            log.info("Ignoring object not created by a direct upload", "s3Key", s3Key);
+            return;
+        }
+
+        SqsRequest sqsRequest = buildSqsRequest(item);
+        MetricsScope scope = metrics.forDimensions(tenantId, sqsRequest.getDocumentType());
+        Long size = record.getS3().getObject().getSizeAsLong();
+        if (size != null) {
+            scope.recordBytes("documentBytes", size);
+        }
+
+        StageTimer timer = scope.startTimer("sendMessageToQueue");
+        try {
+            sendMessageToQueue(tenantId, requestId, sqsRequest);
+        } catch (Exception e) {
+            // Sem desfazer a marca, a nova tentativa do evento seria ignorada e o
+            // documento nunca chegaria à fila.
+            unmarkAsUploaded(tenantId, requestId);
+            throw e;
+        } finally {
+            timer.stop();
+        }
+        logger.forRequest(tenantId, requestId, sqsRequest.getCorrelationId())
+                .info("Message sent to input queue", "messageGroupId", tenantId);
+    }
+
+    /**
+     * Registra a chegada do objeto e devolve o item atualizado. A condição garante
+     * que apenas uploads diretos sejam enfileirados aqui: objetos gravados pelo
+     * POST /documents já foram enviados à fila pelo {@link Handler}. Só a primeira
+     * chegada enfileira; um novo PUT pela mesma URL pré-assinada ou a reentrega do
+     * evento pelo S3 encontram uploadedAt preenchido e são ignorados.
+     */
+    private Map<String, AttributeValue> markAsUploaded(String tenantId, String requestId) {
+        UpdateItemRequest updateItemRequest = new UpdateItemRequest().withTableName(config.buildTableName(tenantId))
+                .withKey(buildKey(tenantId, requestId))
+                .withUpdateExpression("SET uploadedAt = :uploadedAt")
+                .withConditionExpression(
+                        "attribute_exists(pk) AND uploadMode = :uploadMode AND attribute_not_exists(uploadedAt)")
+                .withExpressionAttributeValues(Map.of(":uploadedAt",
+                        new AttributeValue(Instant.now().toString()),
+                        ":uploadMode",
+                        new AttributeValue(UPLOAD_MODE_PRESIGNED)))
+                .withReturnValues(ReturnValue.ALL_NEW);
+
+        try {
+            return dynamoDbClient.updateItem(updateItemRequest).getAttributes();
+        } catch (ConditionalCheckFailedException e) {
+            return null;
+        }
+    }
+
+    private void unmarkAsUploaded(String tenantId, String requestId) {
+        UpdateItemRequest updateItemRequest = new UpdateItemRequest().withTableName(config.buildTableName(tenantId))
+                .withKey(buildKey(tenantId, requestId))
+                .withUpdateExpression("REMOVE uploadedAt");
+
+        try {
+            dynamoDbClient.updateItem(updateItemRequest);
+        } catch (Exception e) {
+            logger.forRequest(tenantId, requestId, null).error("Failed to clear uploadedAt", e);
+        }
+    }
+
+    private Map<String, AttributeValue> buildKey(String tenantId, String requestId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("pk", new AttributeValue("TENANT_ID#" + tenantId));
+        key.put("sk", new AttributeValue("REQUEST_ID#" + requestId));
+        return key;
+    }
+
+    private SqsRequest buildSqsRequest(Map<String, AttributeValue> item) {
+        SqsRequest sqsRequest = new SqsRequest();
+        sqsRequest.setTenantId(getString(item, "tenantId"));
+        sqsRequest.setRequestId(getString(item, "requestId"));
+        sqsRequest.setCorrelationId(getString(item, "correlationId"));
+        sqsRequest.setDocumentType(getString(item, "documentType"));
+        sqsRequest.setBucketName(getString(item, "bucketName"));
+        sqsRequest.setBucketKey(getString(item, "bucketKey"));
+        sqsRequest.setOutputQueueUrl(getString(item, "outputQueueUrl"));
+        sqsRequest.setTimestamp(getString(item, "createdAt"));
+
+        return sqsRequest;
+    }
+
+    private String getString(Map<String, AttributeValue> item, String attributeName) {
+        AttributeValue value = item.get(attributeName);
+        return value != null ? value.getS() : null;
+    }
+
+    private void sendMessageToQueue(String tenantId, String requestId, SqsRequest sqsRequest) throws Exception {
+
+        SendMessageRequest sendMessageRequest = new SendMessageRequest()
+                .withQueueUrl(config.buildInputQueueUrl(tenantId))
+                .withMessageBody(objectMapper.writeValueAsString(sqsRequest))
+                .withMessageGroupId(tenantId)
+                .withMessageDeduplicationId(requestId);
+
+        sqsClient.sendMessage(sendMessageRequest);
+    }
+}
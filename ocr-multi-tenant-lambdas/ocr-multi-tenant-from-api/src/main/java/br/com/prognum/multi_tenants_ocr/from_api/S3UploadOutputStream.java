@@ -0,0 +1,161 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+/**
+ * OutputStream que envia para o S3 o conteúdo escrito sem manter o documento
+ * inteiro em memória. Documentos de até {@code partSize} bytes são enviados com
+ * um único putObject; acima disso o conteúdo é enviado em partes via multipart
+ * upload, reaproveitando sempre o mesmo buffer.
+ */
+public class S3UploadOutputStream extends OutputStream {
+
+    public static final int DEFAULT_PART_SIZE = 5 * 1024 * 1024;
+
+    private final AmazonS3 s3Client;
+    private final String bucketName;
+    private final String key;
+    private final ObjectMetadata metadata;
+    private final byte[] buffer;
+    private final List<PartETag> partETags = new ArrayList<>();
+
+    private int position;
+    private long size;
+    private String uploadId;
+    private boolean closed;
+
+    public S3UploadOutputStream(AmazonS3 s3Client, String bucketName, String key, ObjectMetadata metadata) {
+        this(s3Client, bucketName, key, metadata, DEFAULT_PART_SIZE);
+    }
+
+    public S3UploadOutputStream(AmazonS3 s3Client, String bucketName, String key, ObjectMetadata metadata,
+            int partSize) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.metadata = metadata;
+        this.buffer = new byte[partSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == buffer.length) {
+            uploadPart();
+        }
+        buffer[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (position == buffer.length) {
+                uploadPart();
+            }
+            int chunk = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+            size += chunk;
+        }
+    }
+
+    /**
+     * Finaliza o upload. Se nenhuma parte foi enviada ainda, o conteúdo é enviado
+     * com um único putObject; caso contrário a última parte é enviada e o
+     * multipart upload é concluído.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            if (uploadId == null) {
+                metadata.setContentLength(position);
+                s3Client.putObject(new PutObjectRequest(bucketName, key,
+                        new ByteArrayInputStream(buffer, 0, position), metadata));
+                return;
+            }
+
+            if (position > 0) {
+                uploadPart();
+            }
+            s3Client.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+        } catch (RuntimeException e) {
+            abortMultipartUpload();
+            throw e;
+        }
+    }
+
+    /**
+     * Descarta o upload em andamento, removendo as partes já enviadas. Deve ser
+     * usado no lugar de {@link #close()} quando a escrita do documento falhar.
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        abortMultipartUpload();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    private void uploadPart() {
+        if (uploadId == null) {
+            uploadId = s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key, metadata))
+                    .getUploadId();
+        }
+
+        UploadPartRequest uploadPartRequest = new UploadPartRequest().withBucketName(bucketName)
+                .withKey(key)
+                .withUploadId(uploadId)
+                .withPartNumber(partETags.size() + 1)
+                .withInputStream(new ByteArrayInputStream(buffer, 0, position))
+                .withPartSize(position);
+
+        try {
+            partETags.add(s3Client.uploadPart(uploadPartRequest).getPartETag());
+        } catch (RuntimeException e) {
+            closed = true;
+            abortMultipartUpload();
+            throw e;
+        }
+        position = 0;
+    }
+
+    private void abortMultipartUpload() {
+        if (uploadId != null) {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+            uploadId = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream already closed");
+        }
+    }
+}
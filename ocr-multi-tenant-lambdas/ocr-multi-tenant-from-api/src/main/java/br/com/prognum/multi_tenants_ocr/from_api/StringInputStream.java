@@ -0,0 +1,42 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import java.io.InputStream;
+
+/**
+ * InputStream que lê os caracteres de uma String ASCII (como o corpo base64
+ * entregue pelo API Gateway) sem copiá-la para um byte[].
+ */
+public class StringInputStream extends InputStream {
+    private final String value;
+    private int position;
+
+    public StringInputStream(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public int read() {
+        return position < value.length() ? value.charAt(position++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= value.length()) {
+            return -1;
+        }
+
+        int count = Math.min(length, value.length() - position);
+        for (int i = 0; i < count; i++) {
+            bytes[offset + i] = (byte) value.charAt(position++);
+        }
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return value.length() - position;
+    }
+}
@@ -0,0 +1,165 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.AwsClients;
+import br.com.prognum.multi_tenant_ocr.common.utils.ClientProfile;
+import br.com.prognum.multi_tenant_ocr.common.utils.Config;
+import br.com.prognum.multi_tenant_ocr.common.utils.PublicAddresses;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+/**
+ * Lambda function do cadastro do webhook do tenant:
+ * <ul>
+ * <li>PUT /webhook grava a URL de callback e devolve um novo segredo de
+ * assinatura;</li>
+ * <li>DELETE /webhook remove o cadastro.</li>
+ * </ul>
+ * O cadastro fica no item TENANT_ID#{tenantId} / WEBHOOK da tabela do tenant e
+ * é lido pelo process_queue ao gravar cada resultado.
+ */
+public class WebhookHandler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+
+    private static final String REGISTER_ROUTE_KEY = "PUT /webhook";
+    private static final String DELETE_ROUTE_KEY = "DELETE /webhook";
+    private static final String WEBHOOK_SORT_KEY = "WEBHOOK";
+    private static final int SECRET_BYTES = 32;
+
+    private final AmazonDynamoDB dynamoDbClient;
+    private final ObjectMapper objectMapper;
+    private final Config config;
+    private final SecureRandom secureRandom;
+    private final StructuredLogger logger;
+
+    public WebhookHandler() {
+        this(AwsClients.dynamoDB(ClientProfile.API), TenantRegistry.getInstance());
+    }
+
+    public WebhookHandler(AmazonDynamoDB dynamoDbClient, Config config) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.config = config;
+        this.objectMapper = new ObjectMapper();
+        this.secureRandom = new SecureRandom();
+        this.logger = StructuredLogger.getInstance();
+    }
+
+    @Override
+    public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+        logger.startInvocation(context.getAwsRequestId());
+        try {
+            String tenantId = event.getHeaders().get("x-tenant-id");
+            logger.setContext(tenantId, null, event.getHeaders().get("x-correlation-id"));
+            logger.info("Received event", "routeKey", event.getRouteKey());
+            if (!config.isKnownTenant(tenantId)) {
+                return buildErrorResponse(403, "Unknown tenant: " + tenantId);
+            }
+
+            switch (event.getRouteKey()) {
+            case REGISTER_ROUTE_KEY:
+                return registerWebhook(tenantId, event);
+            case DELETE_ROUTE_KEY:
+                return deleteWebhook(tenantId);
+            default:
+                return buildErrorResponse(404, "Unknown route: " + event.getRouteKey());
+            }
+
+        } catch (Exception e) {
+            logger.error("Request failed", e);
+            throw new RuntimeException(e);
+        } finally {
+            logger.flush();
+        }
+    }
+
+    private APIGatewayV2HTTPResponse registerWebhook(String tenantId, APIGatewayV2HTTPEvent event) throws Exception {
+        JsonNode body = event.getBody() != null ? objectMapper.readTree(event.getBody()) : null;
+        String url = body != null ? body.path("url").textValue() : null;
+        if (url == null) {
+            return buildErrorResponse(400, "'url' is required");
+        }
+
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return buildErrorResponse(400, "'url' is not a valid URL");
+        }
+        if (!"https".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            return buildErrorResponse(400, "'url' must be an absolute https URL");
+        }
+        // A entrega verifica de novo, pois o DNS pode mudar depois do cadastro.
+        try {
+            if (!PublicAddresses.resolvesToPublicAddresses(uri.getHost())) {
+                return buildErrorResponse(400, "'url' must resolve to public addresses only");
+            }
+        } catch (UnknownHostException e) {
+            return buildErrorResponse(400, "'url' host cannot be resolved");
+        }
+
+        byte[] secretBytes = new byte[SECRET_BYTES];
+        secureRandom.nextBytes(secretBytes);
+        String secret = Base64.getUrlEncoder().withoutPadding().encodeToString(secretBytes);
+        String timestamp = Instant.now().toString();
+
+        Map<String, AttributeValue> item = buildDynamoDBKey(tenantId);
+        item.put("url", new AttributeValue(uri.toString()));
+        item.put("secret", new AttributeValue(secret));
+        item.put("updatedAt", new AttributeValue(timestamp));
+        dynamoDbClient.putItem(new PutItemRequest().withTableName(config.buildTableName(tenantId)).withItem(item));
+
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("tenantId", tenantId);
+        responseBody.put("url", uri.toString());
+        responseBody.put("secret", secret);
+        responseBody.put("updatedAt", timestamp);
+        return buildSuccessResponse(responseBody);
+    }
+
+    private APIGatewayV2HTTPResponse deleteWebhook(String tenantId) throws Exception {
+        dynamoDbClient.deleteItem(
+                new DeleteItemRequest().withTableName(config.buildTableName(tenantId)).withKey(buildDynamoDBKey(tenantId)));
+
+        return buildSuccessResponse(Map.of("tenantId", tenantId));
+    }
+
+    private Map<String, AttributeValue> buildDynamoDBKey(String tenantId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("pk", new AttributeValue("TENANT_ID#" + tenantId));
+        key.put("sk", new AttributeValue(WEBHOOK_SORT_KEY));
+        return key;
+    }
+
+    private APIGatewayV2HTTPResponse buildErrorResponse(int statusCode, String message) throws Exception {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(statusCode)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody(objectMapper.writeValueAsString(Map.of("message", message)))
+                .build();
+    }
+
+    private APIGatewayV2HTTPResponse buildSuccessResponse(Map<String, Object> responseBody) throws Exception {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(200)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody(objectMapper.writeValueAsString(responseBody))
+                .build();
+    }
+}
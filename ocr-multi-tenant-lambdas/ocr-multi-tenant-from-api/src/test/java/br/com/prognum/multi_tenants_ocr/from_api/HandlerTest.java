@@ -0,0 +1,203 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+public class HandlerTest {
+
+    private static final String TENANT_ID = "tenant-a";
+    private static final String BATCH_ROUTE_KEY = "POST /documents/batch";
+    private static final String DOCUMENTS_ROUTE_KEY = "POST /documents";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Os erros de validação acontecem antes de qualquer chamada à AWS, então os clientes ficam nulos.
+    private final Handler handler = new Handler(null, null, null, registry());
+
+    @Test
+    public void malformedBatchBodyIsBadRequest() throws Exception {
+        assertBadRequest(handler.handleRequest(batchEvent("{\"documentos\": [{\"requestId\": "), new TestContext()),
+                "Malformed JSON body");
+    }
+
+    @Test
+    public void batchWithoutDocumentArrayIsBadRequest() throws Exception {
+        assertBadRequest(handler.handleRequest(batchEvent("{\"documentos\": {}}"), new TestContext()),
+                "'documentos' must be an array");
+    }
+
+    @Test
+    public void emptyBatchIsBadRequest() throws Exception {
+        assertBadRequest(handler.handleRequest(batchEvent("{\"documentos\": []}"), new TestContext()),
+                "Batch request has no documents");
+    }
+
+    @Test
+    public void oversizedBatchIsBadRequest() throws Exception {
+        StringBuilder body = new StringBuilder("{\"documentos\": [");
+        for (int i = 0; i <= 100; i++) {
+            body.append(i > 0 ? "," : "").append("{\"requestId\": \"r-").append(i).append("\"}");
+        }
+        body.append("]}");
+
+        assertBadRequest(handler.handleRequest(batchEvent(body.toString()), new TestContext()),
+                "at most 100 documents");
+    }
+
+    @Test
+    public void duplicateRequestIdInBatchIsBadRequest() throws Exception {
+        assertBadRequest(handler.handleRequest(
+                batchEvent("{\"documentos\": [{\"requestId\": \"r-1\"}, {\"requestId\": \"r-1\"}]}"),
+                new TestContext()), "Duplicate requestId in batch: r-1");
+    }
+
+    @Test
+    public void binaryBodyWithoutDocumentIsBadRequestAndSavesNothing() throws Exception {
+        RecordingDynamoDB dynamo = new RecordingDynamoDB();
+        Handler handler = new Handler(null, dynamo, null, registry());
+
+        assertBadRequest(handler.handleRequest(event(DOCUMENTS_ROUTE_KEY, "application/octet-stream", ""),
+                new TestContext()), "Missing document in request body");
+        assertEquals(List.of(), dynamo.calls);
+    }
+
+    @Test
+    public void multipartBodyWithoutBoundaryIsBadRequest() throws Exception {
+        assertBadRequest(handler.handleRequest(event(DOCUMENTS_ROUTE_KEY, "multipart/form-data", "--x--"),
+                new TestContext()), "Missing boundary");
+    }
+
+    @Test
+    public void jsonBodyWithoutDocumentIsBadRequestAndMarksStateFailed() throws Exception {
+        RecordingDynamoDB dynamo = new RecordingDynamoDB();
+        Handler handler = new Handler(null, dynamo, null, registry());
+
+        assertBadRequest(handler.handleRequest(event(DOCUMENTS_ROUTE_KEY, "application/json",
+                "{\"tipoDocumento\": \"RG\", \"correlationId\": \"c-1\"}"), new TestContext()),
+                "Missing 'documento' field");
+        // O estado já tinha sido gravado a partir dos metadados; fica FAILED em vez de PROCESSING.
+        assertEquals(List.of("putItem", "updateItem"), dynamo.calls);
+    }
+
+    static TenantRegistry registry() {
+        return new TenantRegistry("table-<tenantId>", "bucket-<tenantId>", "input-<tenantId>", "output-<tenantId>",
+                null, List.of(TENANT_ID));
+    }
+
+    private APIGatewayV2HTTPEvent batchEvent(String body) {
+        return event(BATCH_ROUTE_KEY, "application/json", body);
+    }
+
+    static APIGatewayV2HTTPEvent event(String routeKey, String contentType, String body) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("x-tenant-id", TENANT_ID);
+        headers.put("content-type", contentType);
+
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setRouteKey(routeKey);
+        event.setHeaders(headers);
+        event.setBody(body);
+        return event;
+    }
+
+    private void assertBadRequest(APIGatewayV2HTTPResponse response, String expectedMessage) throws Exception {
+        assertEquals(400, response.getStatusCode());
+        String message = objectMapper.readTree(response.getBody()).path("message").textValue();
+        assertTrue(message.contains(expectedMessage), message);
+    }
+
+    static class RecordingDynamoDB extends AbstractAmazonDynamoDB {
+        final List<String> calls = new CopyOnWriteArrayList<>();
+
+        @Override
+        public PutItemResult putItem(PutItemRequest request) {
+            calls.add("putItem");
+            return new PutItemResult();
+        }
+
+        @Override
+        public UpdateItemResult updateItem(UpdateItemRequest request) {
+            calls.add("updateItem");
+            return new UpdateItemResult();
+        }
+    }
+
+    static class TestContext implements Context {
+        @Override
+        public String getAwsRequestId() {
+            return "test-request";
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return null;
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return null;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "from-api";
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return "$LATEST";
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return null;
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return 30_000;
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            return 512;
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class MultipartStreamReaderTest {
+
+    private static final String BOUNDARY = "----form-boundary-7MA4YWxk";
+
+    @Test
+    public void readsTextPartsAndDocument() throws IOException {
+        byte[] document = randomBytes(1000);
+        MultipartStreamReader reader = new MultipartStreamReader(
+                new ByteArrayInputStream(buildBody(BOUNDARY, "RG", "corr-1", document, true)), BOUNDARY);
+
+        assertTrue(reader.nextPart());
+        assertEquals("tipoDocumento", reader.getPartName());
+        assertNull(reader.getFileName());
+        assertEquals("RG", reader.readPartAsString());
+
+        assertTrue(reader.nextPart());
+        assertEquals("correlationId", reader.getPartName());
+        assertEquals("corr-1", reader.readPartAsString());
+
+        assertTrue(reader.nextPart());
+        assertEquals("documento", reader.getPartName());
+        assertEquals("doc.pdf", reader.getFileName());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        reader.readPartContent(content);
+        assertArrayEquals(document, content.toByteArray());
+
+        assertFalse(reader.nextPart());
+    }
+
+    /**
+     * Leituras de poucos bytes por vez fazem o delimitador cair dividido entre
+     * duas recargas do buffer em todas as posições possíveis.
+     */
+    @Test
+    public void findsDelimiterSplitAcrossReads() throws IOException {
+        byte[] document = randomBytes(3 * 64 * 1024 + 17);
+        byte[] body = buildBody(BOUNDARY, "RG", "corr-1", document, true);
+
+        for (int chunkSize = 1; chunkSize <= BOUNDARY.length() + 5; chunkSize++) {
+            assertArrayEquals(document, readDocument(new ChunkedInputStream(body, chunkSize), BOUNDARY),
+                    "chunk size " + chunkSize);
+        }
+    }
+
+    /**
+     * Conteúdo com um prefixo do delimitador ("\r\n--" seguido de parte do
+     * boundary) não pode encerrar a parte nem ser perdido.
+     */
+    @Test
+    public void keepsPartialDelimiterInsideContent() throws IOException {
+        byte[] document = ("abc\r\n--" + BOUNDARY.substring(0, 10) + "xyz\r\n-").getBytes(StandardCharsets.US_ASCII);
+        byte[] body = buildBody(BOUNDARY, "RG", "corr-1", document, true);
+
+        assertArrayEquals(document, readDocument(new ByteArrayInputStream(body), BOUNDARY));
+        assertArrayEquals(document, readDocument(new ChunkedInputStream(body, 3), BOUNDARY));
+    }
+
+    @Test
+    public void rejectsMissingClosingBoundary() throws IOException {
+        byte[] body = buildBody(BOUNDARY, "RG", "corr-1", randomBytes(200), false);
+        MultipartStreamReader reader = new MultipartStreamReader(new ChunkedInputStream(body, 7), BOUNDARY);
+
+        assertTrue(reader.nextPart());
+        assertTrue(reader.nextPart());
+        assertTrue(reader.nextPart());
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> reader.readPartContent(OutputStream.nullOutputStream()));
+        assertTrue(exception.getMessage().contains("missing closing boundary"));
+    }
+
+    @Test
+    public void rejectsBodyWithoutAnyBoundary() {
+        MultipartStreamReader reader = new MultipartStreamReader(
+                new ByteArrayInputStream("not a multipart body".getBytes(StandardCharsets.US_ASCII)), BOUNDARY);
+
+        assertThrows(IllegalArgumentException.class, reader::nextPart);
+    }
+
+    @Test
+    public void extractsQuotedBoundary() throws IOException {
+        String boundary = "simple boundary:with=chars";
+        String contentType = "multipart/form-data; charset=utf-8; boundary=\"" + boundary + "\"";
+        assertEquals(boundary, MultipartStreamReader.extractBoundary(contentType));
+
+        byte[] document = randomBytes(500);
+        byte[] body = buildBody(boundary, "RG", "corr-1", document, true);
+        assertArrayEquals(document,
+                readDocument(new ChunkedInputStream(body, 5), MultipartStreamReader.extractBoundary(contentType)));
+    }
+
+    @Test
+    public void extractsUnquotedBoundary() {
+        assertEquals(BOUNDARY, MultipartStreamReader.extractBoundary("multipart/form-data; Boundary=" + BOUNDARY));
+        assertThrows(IllegalArgumentException.class,
+                () -> MultipartStreamReader.extractBoundary("multipart/form-data; charset=utf-8"));
+    }
+
+    private static byte[] readDocument(InputStream input, String boundary) throws IOException {
+        MultipartStreamReader reader = new MultipartStreamReader(input, boundary);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        while (reader.nextPart()) {
+            if ("documento".equals(reader.getPartName())) {
+                reader.readPartContent(content);
+            }
+        }
+        return content.toByteArray();
+    }
+
+    private static byte[] buildBody(String boundary, String documentType, String correlationId, byte[] document,
+            boolean closed) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"tipoDocumento\"\r\n\r\n"
+                + documentType + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"correlationId\"\r\n\r\n"
+                + correlationId + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"documento\"; filename=\"doc.pdf\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(document);
+        if (closed) {
+            body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        return body.toByteArray();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    /** Entrega no máximo {@code chunkSize} bytes por chamada de read. */
+    private static final class ChunkedInputStream extends InputStream {
+        private final byte[] content;
+        private final int chunkSize;
+        private int position;
+
+        private ChunkedInputStream(byte[] content, int chunkSize) {
+            this.content = content;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read() {
+            return position < content.length ? content[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (position == content.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, chunkSize), content.length - position);
+            System.arraycopy(content, position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+    }
+}
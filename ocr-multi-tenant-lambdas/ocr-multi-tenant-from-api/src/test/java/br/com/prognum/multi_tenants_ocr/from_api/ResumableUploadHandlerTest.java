@@ -0,0 +1,46 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ResumableUploadHandlerTest {
+
+    private static final String INITIATE_ROUTE_KEY = "POST /documents/multipart";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // O corpo é validado antes de iniciar o multipart upload, então os clientes ficam nulos.
+    private final ResumableUploadHandler handler = new ResumableUploadHandler(null, null, null,
+            HandlerTest.registry());
+
+    @Test
+    public void malformedInitiateBodyIsBadRequest() throws Exception {
+        assertBadRequest(initiate("{\"tipoDocumento\": "), "Malformed JSON body");
+    }
+
+    @Test
+    public void initiateBodyWithUnknownFieldIsBadRequest() throws Exception {
+        assertBadRequest(initiate("{\"tipoDocumento\": \"RG\", \"tamanho\": 10}"), "Malformed JSON body");
+    }
+
+    @Test
+    public void emptyInitiateBodyIsBadRequest() throws Exception {
+        assertBadRequest(initiate(""), "Missing request body");
+    }
+
+    private APIGatewayV2HTTPResponse initiate(String body) {
+        return handler.handleRequest(HandlerTest.event(INITIATE_ROUTE_KEY, "application/json", body),
+                new HandlerTest.TestContext());
+    }
+
+    private void assertBadRequest(APIGatewayV2HTTPResponse response, String expectedMessage) throws Exception {
+        assertEquals(400, response.getStatusCode());
+        String message = objectMapper.readTree(response.getBody()).path("message").textValue();
+        assertTrue(message.contains(expectedMessage), message);
+    }
+}
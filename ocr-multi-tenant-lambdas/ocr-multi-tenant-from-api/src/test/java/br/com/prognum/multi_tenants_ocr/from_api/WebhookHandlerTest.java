@@ -0,0 +1,77 @@
+package br.com.prognum.multi_tenants_ocr.from_api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+public class WebhookHandlerTest {
+
+    private static final long REFRESH_INTERVAL_MILLIS = 100;
+
+    @Test
+    public void tenantAddedToSourceIsAcceptedWithoutRestart() throws Exception {
+        List<String> tenantSource = new CopyOnWriteArrayList<>(List.of("tenant-a"));
+        List<String> deletedTables = new CopyOnWriteArrayList<>();
+        TenantRegistry registry = new TenantRegistry("table-<tenantId>", "bucket-<tenantId>", null, null, null,
+                () -> List.copyOf(tenantSource), REFRESH_INTERVAL_MILLIS);
+        WebhookHandler handler = new WebhookHandler(new AbstractAmazonDynamoDB() {
+            @Override
+            public DeleteItemResult deleteItem(DeleteItemRequest request) {
+                deletedTables.add(request.getTableName());
+                return new DeleteItemResult();
+            }
+        }, registry);
+
+        assertEquals(403, handler.handleRequest(deleteWebhook("tenant-b"), new HandlerTest.TestContext())
+                .getStatusCode());
+
+        tenantSource.add("tenant-b");
+        Thread.sleep(REFRESH_INTERVAL_MILLIS + 50);
+
+        assertEquals(200, handler.handleRequest(deleteWebhook("tenant-b"), new HandlerTest.TestContext())
+                .getStatusCode());
+        assertEquals(List.of("table-tenant-b"), deletedTables);
+    }
+
+    @Test
+    public void failedRefreshKeepsKnownTenants() throws Exception {
+        List<Collection<String>> loads = new CopyOnWriteArrayList<>(List.of(List.of("tenant-a")));
+        TenantRegistry registry = new TenantRegistry("table-<tenantId>", "bucket-<tenantId>", null, null, null,
+                () -> {
+                    if (loads.isEmpty()) {
+                        throw new IllegalStateException("source unavailable");
+                    }
+                    return loads.remove(0);
+                }, REFRESH_INTERVAL_MILLIS);
+        WebhookHandler handler = new WebhookHandler(new AbstractAmazonDynamoDB() {
+            @Override
+            public DeleteItemResult deleteItem(DeleteItemRequest request) {
+                return new DeleteItemResult();
+            }
+        }, registry);
+
+        Thread.sleep(REFRESH_INTERVAL_MILLIS + 50);
+
+        assertEquals(200, handler.handleRequest(deleteWebhook("tenant-a"), new HandlerTest.TestContext())
+                .getStatusCode());
+    }
+
+    private APIGatewayV2HTTPEvent deleteWebhook(String tenantId) {
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setRouteKey("DELETE /webhook");
+        event.setHeaders(Map.of("x-tenant-id", tenantId));
+        return event;
+    }
+}
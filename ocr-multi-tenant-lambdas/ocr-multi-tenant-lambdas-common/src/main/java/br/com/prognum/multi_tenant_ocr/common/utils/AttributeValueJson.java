@@ -0,0 +1,142 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Conversão entre documentos JSON e atributos map/list da DynamoDB, para que o
+ * resultado do OCR seja gravado estruturado no item e devolvido pela API sem
+ * passar por Map&lt;String, Object&gt;.
+ */
+public class AttributeValueJson {
+
+	/**
+	 * Limites do tipo Number da DynamoDB: até 38 dígitos significativos e
+	 * magnitude entre 1E-130 e 9.99...E+125.
+	 */
+	private static final int MAX_NUMBER_PRECISION = 38;
+	private static final int MIN_NUMBER_EXPONENT = -130;
+	private static final int MAX_NUMBER_EXPONENT = 125;
+
+	private AttributeValueJson() {
+	}
+
+	public static AttributeValue toAttributeValue(JsonNode node) {
+		switch (node.getNodeType()) {
+		case OBJECT:
+			Map<String, AttributeValue> map = new LinkedHashMap<>();
+			Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				map.put(field.getKey(), toAttributeValue(field.getValue()));
+			}
+			return new AttributeValue().withM(map);
+		case ARRAY:
+			List<AttributeValue> list = new ArrayList<>(node.size());
+			for (JsonNode element : node) {
+				list.add(toAttributeValue(element));
+			}
+			return new AttributeValue().withL(list);
+		case STRING:
+			return new AttributeValue(node.textValue());
+		case NUMBER:
+			// Um número fora dos limites da DynamoDB faz a instrução inteira falhar sem
+			// chance de retentativa; gravado como string, o resultado é preservado.
+			if (!isValidNumber(node)) {
+				return new AttributeValue(node.asText());
+			}
+			String number = node.isIntegralNumber() ? node.bigIntegerValue().toString()
+					: node.decimalValue().toPlainString();
+			return new AttributeValue().withN(number);
+		case BOOLEAN:
+			return new AttributeValue().withBOOL(node.booleanValue());
+		case BINARY:
+			try {
+				return new AttributeValue().withB(ByteBuffer.wrap(node.binaryValue()));
+			} catch (IOException e) {
+				throw new IllegalArgumentException(e);
+			}
+		default:
+			return new AttributeValue().withNULL(true);
+		}
+	}
+
+	/**
+	 * Indica se o número cabe no tipo Number da DynamoDB. Zeros à esquerda e à
+	 * direita não contam como dígitos significativos; um double que estourou na
+	 * leitura (Infinity) nunca cabe.
+	 */
+	static boolean isValidNumber(JsonNode node) {
+		if ((node.isDouble() || node.isFloat()) && !Double.isFinite(node.doubleValue())) {
+			return false;
+		}
+		BigDecimal value = node.decimalValue();
+		if (value.signum() == 0) {
+			return true;
+		}
+		BigDecimal normalized = value.stripTrailingZeros();
+		int exponent = normalized.precision() - normalized.scale() - 1;
+		return normalized.precision() <= MAX_NUMBER_PRECISION && exponent >= MIN_NUMBER_EXPONENT
+				&& exponent <= MAX_NUMBER_EXPONENT;
+	}
+
+	/**
+	 * Escreve o atributo diretamente no gerador, sem montar uma árvore
+	 * intermediária. Números são copiados como estão gravados na tabela.
+	 */
+	public static void writeJson(AttributeValue value, JsonGenerator generator) throws IOException {
+		if (value.getM() != null) {
+			generator.writeStartObject();
+			for (Map.Entry<String, AttributeValue> entry : value.getM().entrySet()) {
+				generator.writeFieldName(entry.getKey());
+				writeJson(entry.getValue(), generator);
+			}
+			generator.writeEndObject();
+		} else if (value.getL() != null) {
+			generator.writeStartArray();
+			for (AttributeValue element : value.getL()) {
+				writeJson(element, generator);
+			}
+			generator.writeEndArray();
+		} else if (value.getS() != null) {
+			generator.writeString(value.getS());
+		} else if (value.getN() != null) {
+			generator.writeNumber(value.getN());
+		} else if (value.getBOOL() != null) {
+			generator.writeBoolean(value.getBOOL());
+		} else if (value.getB() != null) {
+			generator.writeBinary(toByteArray(value.getB()));
+		} else if (value.getSS() != null) {
+			generator.writeStartArray();
+			for (String element : value.getSS()) {
+				generator.writeString(element);
+			}
+			generator.writeEndArray();
+		} else if (value.getNS() != null) {
+			generator.writeStartArray();
+			for (String element : value.getNS()) {
+				generator.writeNumber(element);
+			}
+			generator.writeEndArray();
+		} else {
+			generator.writeNull();
+		}
+	}
+
+	private static byte[] toByteArray(ByteBuffer buffer) {
+		ByteBuffer duplicate = buffer.duplicate();
+		byte[] bytes = new byte[duplicate.remaining()];
+		duplicate.get(bytes);
+		return bytes;
+	}
+}
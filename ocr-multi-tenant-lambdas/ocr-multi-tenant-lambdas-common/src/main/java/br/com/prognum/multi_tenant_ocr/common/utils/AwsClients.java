@@ -0,0 +1,112 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.EC2ContainerCredentialsProviderWrapper;
+import com.amazonaws.auth.EnvironmentVariableCredentialsProvider;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+
+/**
+ * Clientes AWS compartilhados pelos handlers de um container, criados na
+ * primeira vez em que são pedidos.
+ *
+ * <p>
+ * Os builders do SDK, sem configuração, percorrem as cadeias padrão de região e
+ * de credenciais (variáveis de ambiente, propriedades do sistema, arquivos de
+ * perfil, endpoints de container e de EC2) e cada cliente monta seu próprio
+ * pool HTTP. Aqui a região vem direto de AWS_REGION e as credenciais de um único
+ * provider escolhido pelo ambiente: as variáveis AWS_ACCESS_KEY_ID/
+ * AWS_SECRET_ACCESS_KEY/AWS_SESSION_TOKEN, ou, quando a função usa SnapStart (em
+ * que essas variáveis não existem), o endpoint de credenciais do container. O
+ * pool de cada cliente é dimensionado pelo {@link ClientProfile} e as conexões
+ * ociosas são fechadas antes de o lado remoto derrubá-las.
+ */
+public final class AwsClients {
+	private static final String AWS_REGION = "AWS_REGION";
+	private static final String AWS_ACCESS_KEY_ID = "AWS_ACCESS_KEY_ID";
+	private static final int CONNECTION_MAX_IDLE_MILLIS = 30_000;
+	private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2_000;
+
+	private static final Map<ClientProfile, AmazonDynamoDB> dynamoDbClients = new ConcurrentHashMap<>();
+	private static final Map<ClientProfile, AmazonS3> s3Clients = new ConcurrentHashMap<>();
+	private static final Map<ClientProfile, AmazonSQS> sqsClients = new ConcurrentHashMap<>();
+
+	private AwsClients() {
+	}
+
+	public static AmazonDynamoDB dynamoDB(ClientProfile profile) {
+		return dynamoDbClients.computeIfAbsent(profile, AwsClients::buildDynamoDB);
+	}
+
+	public static AmazonS3 s3(ClientProfile profile) {
+		return s3Clients.computeIfAbsent(profile, AwsClients::buildS3);
+	}
+
+	public static AmazonSQS sqs(ClientProfile profile) {
+		return sqsClients.computeIfAbsent(profile, AwsClients::buildSqs);
+	}
+
+	/**
+	 * Cria um cliente novo, fora do compartilhamento (usado pelo priming, que
+	 * encerra o cliente em seguida).
+	 */
+	public static AmazonDynamoDB buildDynamoDB(ClientProfile profile) {
+		return AmazonDynamoDBClientBuilder.standard()
+				.withRegion(region())
+				.withCredentials(credentials())
+				.withClientConfiguration(clientConfiguration(profile))
+				.build();
+	}
+
+	public static AmazonS3 buildS3(ClientProfile profile) {
+		return AmazonS3ClientBuilder.standard()
+				.withRegion(region())
+				.withCredentials(credentials())
+				.withClientConfiguration(clientConfiguration(profile).withUseExpectContinue(false))
+				.build();
+	}
+
+	public static AmazonSQS buildSqs(ClientProfile profile) {
+		return AmazonSQSClientBuilder.standard()
+				.withRegion(region())
+				.withCredentials(credentials())
+				.withClientConfiguration(clientConfiguration(profile))
+				.build();
+	}
+
+	private static ClientConfiguration clientConfiguration(ClientProfile profile) {
+		return new ClientConfiguration()
+				.withConnectionTimeout(profile.getConnectionTimeoutMillis())
+				.withSocketTimeout(profile.getSocketTimeoutMillis())
+				.withRequestTimeout(profile.getRequestTimeoutMillis())
+				.withMaxConnections(profile.getMaxConnections())
+				.withTcpKeepAlive(true)
+				.withConnectionMaxIdleMillis(CONNECTION_MAX_IDLE_MILLIS)
+				.withValidateAfterInactivityMillis(VALIDATE_AFTER_INACTIVITY_MILLIS)
+				.withCacheResponseMetadata(false)
+				.withDisableSocketProxy(true);
+	}
+
+	private static String region() {
+		String region = System.getenv(AWS_REGION);
+		if (region == null) {
+			throw new IllegalStateException(AWS_REGION + " is not set");
+		}
+		return region;
+	}
+
+	private static AWSCredentialsProvider credentials() {
+		if (System.getenv(AWS_ACCESS_KEY_ID) != null) {
+			return new EnvironmentVariableCredentialsProvider();
+		}
+		return new EC2ContainerCredentialsProviderWrapper();
+	}
+}
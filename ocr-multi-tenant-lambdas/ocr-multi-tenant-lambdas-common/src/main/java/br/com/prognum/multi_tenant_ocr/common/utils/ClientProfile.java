@@ -0,0 +1,47 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+/**
+ * Timeouts e tamanho do pool dos clientes AWS, conforme o tipo de handler.
+ */
+public enum ClientProfile {
+	/**
+	 * Handlers atrás do API Gateway, que corta a requisição em 29 s: cada chamada
+	 * precisa falhar cedo para sobrar tempo de responder.
+	 */
+	API(1_000, 5_000, 10_000, 16),
+
+	/**
+	 * Consumidores de filas e eventos, que processam lotes em paralelo e podem
+	 * esperar mais por cada chamada.
+	 */
+	WORKER(1_000, 10_000, 20_000, 32);
+
+	private final int connectionTimeoutMillis;
+	private final int socketTimeoutMillis;
+	private final int requestTimeoutMillis;
+	private final int maxConnections;
+
+	ClientProfile(int connectionTimeoutMillis, int socketTimeoutMillis, int requestTimeoutMillis,
+			int maxConnections) {
+		this.connectionTimeoutMillis = connectionTimeoutMillis;
+		this.socketTimeoutMillis = socketTimeoutMillis;
+		this.requestTimeoutMillis = requestTimeoutMillis;
+		this.maxConnections = maxConnections;
+	}
+
+	public int getConnectionTimeoutMillis() {
+		return connectionTimeoutMillis;
+	}
+
+	public int getSocketTimeoutMillis() {
+		return socketTimeoutMillis;
+	}
+
+	public int getRequestTimeoutMillis() {
+		return requestTimeoutMillis;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+}
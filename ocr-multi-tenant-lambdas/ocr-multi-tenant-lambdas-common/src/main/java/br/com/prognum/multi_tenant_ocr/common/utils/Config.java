@@ -1,6 +1,12 @@
 package br.com.prognum.multi_tenant_ocr.common.utils;
 
+import java.util.Collection;
+
 public interface Config {
+    public Collection<String> getTenantIds();
+
+    public boolean isKnownTenant(String tenantId);
+
     public String buildTableName(String tenantId);
 
     public String buildBucketName(String tenantId);
@@ -8,4 +14,6 @@ public interface Config {
     public String buildInputQueueUrl(String tenantId);
 
     public String buildOutputQueueUrl(String tenantId);
+
+    public String getWebhookRetryQueueUrl();
 }
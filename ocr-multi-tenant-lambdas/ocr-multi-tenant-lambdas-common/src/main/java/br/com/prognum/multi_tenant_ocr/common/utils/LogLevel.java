@@ -0,0 +1,22 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.util.Locale;
+
+public enum LogLevel {
+	DEBUG, INFO, WARN, ERROR;
+
+	/**
+	 * Lê o nível pelo nome, sem diferenciar maiúsculas; nomes ausentes ou
+	 * desconhecidos resultam em {@code defaultLevel}.
+	 */
+	public static LogLevel parse(String name, LogLevel defaultLevel) {
+		if (name == null || name.isBlank()) {
+			return defaultLevel;
+		}
+		try {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return defaultLevel;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Regras de redação dos campos dos registros de log. Segredos nunca são
+ * escritos; o conteúdo de documentos aparece só como tamanho; corpos de
+ * requisição e demais textos longos são truncados.
+ */
+final class LogRedactor {
+	static final int MAX_BODY_LENGTH = 256;
+	static final int MAX_VALUE_LENGTH = 2048;
+	static final int MAX_STACK_FRAMES = 20;
+
+	private static final Set<String> SECRET_FIELDS = Set.of("secret", "client_secret", "clientsecret", "token",
+			"access_token", "accesstoken", "authorization", "password");
+	private static final Set<String> DOCUMENT_FIELDS = Set.of("documento", "document", "content", "base64");
+	private static final Set<String> BODY_FIELDS = Set.of("body", "payload", "messagebody", "event");
+
+	private LogRedactor() {
+	}
+
+	static Object redact(String field, Object value) {
+		if (!(value instanceof String)) {
+			return value;
+		}
+		String text = (String) value;
+		String normalized = field.toLowerCase(Locale.ROOT);
+
+		if (SECRET_FIELDS.contains(normalized)) {
+			return "[REDACTED]";
+		}
+		if (DOCUMENT_FIELDS.contains(normalized)) {
+			return String.format("[REDACTED %d chars]", text.length());
+		}
+		return truncate(text, BODY_FIELDS.contains(normalized) ? MAX_BODY_LENGTH : MAX_VALUE_LENGTH);
+	}
+
+	static String truncate(String text, int maxLength) {
+		if (text == null || text.length() <= maxLength) {
+			return text;
+		}
+		return text.substring(0, maxLength) + String.format("...[%d chars]", text.length());
+	}
+
+	/**
+	 * Classe, mensagem e as primeiras {@value #MAX_STACK_FRAMES} linhas da pilha,
+	 * seguidas da causa raiz quando houver.
+	 */
+	static String describe(Throwable error) {
+		StringBuilder description = new StringBuilder(error.toString());
+		StackTraceElement[] frames = error.getStackTrace();
+		for (int i = 0; i < Math.min(frames.length, MAX_STACK_FRAMES); i++) {
+			description.append("\n\tat ").append(frames[i]);
+		}
+		if (frames.length > MAX_STACK_FRAMES) {
+			description.append("\n\t... ").append(frames.length - MAX_STACK_FRAMES).append(" more");
+		}
+
+		Throwable cause = error.getCause();
+		while (cause != null && cause.getCause() != null && cause.getCause() != cause) {
+			cause = cause.getCause();
+		}
+		if (cause != null && cause != error) {
+			description.append("\nCaused by: ").append(cause);
+		}
+		return truncate(description.toString(), MAX_VALUE_LENGTH * 4);
+	}
+}
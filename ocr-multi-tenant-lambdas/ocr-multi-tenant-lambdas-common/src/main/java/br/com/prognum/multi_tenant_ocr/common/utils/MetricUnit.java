@@ -0,0 +1,18 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+/**
+ * Unidades aceitas pelo CloudWatch usadas pelas métricas dos handlers.
+ */
+public enum MetricUnit {
+	MILLISECONDS("Milliseconds"), BYTES("Bytes"), COUNT("Count");
+
+	private final String emfName;
+
+	MetricUnit(String emfName) {
+		this.emfName = emfName;
+	}
+
+	public String getEmfName() {
+		return emfName;
+	}
+}
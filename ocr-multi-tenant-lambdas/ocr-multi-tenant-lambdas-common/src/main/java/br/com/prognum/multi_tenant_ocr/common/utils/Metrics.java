@@ -0,0 +1,273 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Métricas por etapa dos handlers no CloudWatch Embedded Metric Format (EMF).
+ *
+ * <p>
+ * Durante a invocação os valores (durações, contagens, tamanhos) só são
+ * acumulados em memória, agrupados pelas dimensões tenantId e documentType. Em
+ * {@link #flush()}, ao fim da invocação, cada grupo vira um documento EMF
+ * escrito no stdout pelo {@link StructuredLogger}; o CloudWatch Logs extrai as
+ * métricas das linhas, sem chamadas de rede pelo handler. Todos os valores de
+ * uma métrica vão num array, então o CloudWatch calcula percentis sobre a
+ * distribuição completa (no máximo {@value #MAX_VALUES_PER_METRIC} valores por
+ * documento; acima disso são escritos vários documentos).
+ *
+ * <p>
+ * O documentType vem do cliente e cada valor distinto cria uma série de
+ * métricas cobrada à parte; por isso só os tipos de
+ * {@code documentTypes} viram dimensão, e os demais são agrupados em
+ * {@value #OTHER_DOCUMENT_TYPE}.
+ */
+public final class Metrics {
+	public static final String DEFAULT_NAMESPACE = "OcrMultiTenant";
+	public static final String DOCUMENT_TYPES = "METRICS_DOCUMENT_TYPES";
+	public static final String OTHER_DOCUMENT_TYPE = "OTHER";
+
+	private static final int MAX_VALUES_PER_METRIC = 100;
+	private static final String FUNCTION_NAME = System.getenv("AWS_LAMBDA_FUNCTION_NAME");
+
+	private static volatile Metrics instance;
+
+	private final String namespace;
+	private final StructuredLogger logger;
+	private final Set<String> documentTypes;
+	private final JsonFactory jsonFactory = new JsonFactory();
+	private final Map<List<String>, Map<String, MetricValues>> values = new ConcurrentHashMap<>();
+
+	private volatile MetricsScope invocation;
+
+	public Metrics(String namespace, StructuredLogger logger) {
+		this(namespace, logger, Collections.emptySet());
+	}
+
+	public Metrics(String namespace, StructuredLogger logger, Set<String> documentTypes) {
+		this.namespace = namespace;
+		this.logger = logger;
+		this.documentTypes = Set.copyOf(documentTypes);
+		this.invocation = new MetricsScope(this, null, null);
+	}
+
+	/**
+	 * Instância compartilhada do container, no namespace da variável
+	 * METRICS_NAMESPACE (padrão {@value #DEFAULT_NAMESPACE}) e com os tipos de
+	 * documento de {@value #DOCUMENT_TYPES}, separados por vírgulas.
+	 */
+	public static Metrics getInstance() {
+		Metrics metrics = instance;
+		if (metrics == null) {
+			synchronized (Metrics.class) {
+				metrics = instance;
+				if (metrics == null) {
+					String namespace = System.getenv("METRICS_NAMESPACE");
+					metrics = new Metrics(namespace != null && !namespace.isBlank() ? namespace : DEFAULT_NAMESPACE,
+							StructuredLogger.getInstance(), parseDocumentTypes(System.getenv(DOCUMENT_TYPES)));
+					instance = metrics;
+				}
+			}
+		}
+		return metrics;
+	}
+
+	public static Set<String> parseDocumentTypes(String documentTypes) {
+		Set<String> result = new HashSet<>();
+		if (documentTypes != null) {
+			for (String documentType : documentTypes.split(",")) {
+				if (!documentType.isBlank()) {
+					result.add(documentType.trim());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Início de uma invocação: descarta valores não publicados e limpa as
+	 * dimensões da anterior.
+	 */
+	public void startInvocation() {
+		values.clear();
+		invocation = new MetricsScope(this, null, null);
+	}
+
+	/**
+	 * Dimensões das métricas registradas diretamente por esta instância até o fim
+	 * da invocação. Valores nulos mantêm o que já estava definido.
+	 */
+	public void setDimensions(String tenantId, String documentType) {
+		MetricsScope current = invocation;
+		invocation = new MetricsScope(this, tenantId != null ? tenantId : current.getTenantId(),
+				documentType != null ? toDimension(documentType) : current.getDocumentType());
+	}
+
+	public MetricsScope forDimensions(String tenantId, String documentType) {
+		return new MetricsScope(this, tenantId, toDimension(documentType));
+	}
+
+	private String toDimension(String documentType) {
+		if (documentType == null) {
+			return null;
+		}
+		return documentTypes.contains(documentType) ? documentType : OTHER_DOCUMENT_TYPE;
+	}
+
+	/**
+	 * Cronômetro registrado com as dimensões da invocação no momento em que
+	 * termina, para etapas que começam antes de o documentType ser conhecido.
+	 */
+	public StageTimer startTimer(String name) {
+		return new StageTimer(millis -> invocation.record(name, millis, MetricUnit.MILLISECONDS));
+	}
+
+	public void count(String name, long count) {
+		invocation.count(name, count);
+	}
+
+	public void recordBytes(String name, long bytes) {
+		invocation.recordBytes(name, bytes);
+	}
+
+	void record(MetricsScope scope, String name, double value, MetricUnit unit) {
+		values.computeIfAbsent(Arrays.asList(scope.getTenantId(), scope.getDocumentType()),
+				key -> new ConcurrentHashMap<>()).computeIfAbsent(name, key -> new MetricValues(unit)).add(value);
+	}
+
+	/**
+	 * Publica os valores acumulados na invocação. Deve ser chamado antes do
+	 * {@link StructuredLogger#flush()}.
+	 */
+	public void flush() {
+		long timestamp = System.currentTimeMillis();
+		for (Map.Entry<List<String>, Map<String, MetricValues>> group : values.entrySet()) {
+			Map<String, MetricValues> snapshot = new LinkedHashMap<>(group.getValue());
+			try {
+				for (String document : render(timestamp, group.getKey(), snapshot)) {
+					logger.emit(document);
+				}
+			} catch (IOException e) {
+				logger.warn("Failed to render metrics", e);
+			}
+		}
+		values.clear();
+	}
+
+	private List<String> render(long timestamp, List<String> dimensions, Map<String, MetricValues> metrics)
+			throws IOException {
+
+		Map<String, double[]> series = new LinkedHashMap<>();
+		int maxLength = 0;
+		for (Map.Entry<String, MetricValues> metric : metrics.entrySet()) {
+			double[] metricValues = metric.getValue().snapshot();
+			series.put(metric.getKey(), metricValues);
+			maxLength = Math.max(maxLength, metricValues.length);
+		}
+
+		List<String> documents = new ArrayList<>();
+		for (int offset = 0; offset < maxLength; offset += MAX_VALUES_PER_METRIC) {
+			documents.add(renderDocument(timestamp, dimensions, metrics, series, offset));
+		}
+		return documents;
+	}
+
+	private String renderDocument(long timestamp, List<String> dimensions, Map<String, MetricValues> metrics,
+			Map<String, double[]> series, int offset) throws IOException {
+
+		String tenantId = dimensions.get(0);
+		String documentType = dimensions.get(1);
+
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator json = jsonFactory.createGenerator(writer)) {
+			json.writeStartObject();
+			json.writeObjectFieldStart("_aws");
+			json.writeNumberField("Timestamp", timestamp);
+			json.writeArrayFieldStart("CloudWatchMetrics");
+			json.writeStartObject();
+			json.writeStringField("Namespace", namespace);
+			json.writeArrayFieldStart("Dimensions");
+			json.writeStartArray();
+			if (tenantId != null) {
+				json.writeString("tenantId");
+			}
+			if (documentType != null) {
+				json.writeString("documentType");
+			}
+			json.writeEndArray();
+			json.writeEndArray();
+			json.writeArrayFieldStart("Metrics");
+			for (Map.Entry<String, double[]> metric : series.entrySet()) {
+				if (metric.getValue().length > offset) {
+					json.writeStartObject();
+					json.writeStringField("Name", metric.getKey());
+					json.writeStringField("Unit", metrics.get(metric.getKey()).unit.getEmfName());
+					json.writeEndObject();
+				}
+			}
+			json.writeEndArray();
+			json.writeEndObject();
+			json.writeEndArray();
+			json.writeEndObject();
+
+			if (tenantId != null) {
+				json.writeStringField("tenantId", tenantId);
+			}
+			if (documentType != null) {
+				json.writeStringField("documentType", documentType);
+			}
+			if (FUNCTION_NAME != null) {
+				json.writeStringField("function", FUNCTION_NAME);
+			}
+
+			for (Map.Entry<String, double[]> metric : series.entrySet()) {
+				double[] metricValues = metric.getValue();
+				if (metricValues.length <= offset) {
+					continue;
+				}
+				int end = Math.min(offset + MAX_VALUES_PER_METRIC, metricValues.length);
+				if (end - offset == 1) {
+					json.writeNumberField(metric.getKey(), metricValues[offset]);
+				} else {
+					json.writeFieldName(metric.getKey());
+					json.writeArray(metricValues, offset, end - offset);
+				}
+			}
+			json.writeEndObject();
+		}
+		return writer.toString();
+	}
+
+	private static final class MetricValues {
+		private final MetricUnit unit;
+		private double[] values = new double[8];
+		private int size;
+
+		private MetricValues(MetricUnit unit) {
+			this.unit = unit;
+		}
+
+		private synchronized void add(double value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		private synchronized double[] snapshot() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
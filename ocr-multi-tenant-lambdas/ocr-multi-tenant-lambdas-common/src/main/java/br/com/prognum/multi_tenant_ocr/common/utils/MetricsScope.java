@@ -0,0 +1,41 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+/**
+ * Métricas de um par de dimensões tenantId/documentType; dimensões nulas ficam
+ * de fora do registro.
+ */
+public final class MetricsScope {
+	private final Metrics metrics;
+	private final String tenantId;
+	private final String documentType;
+
+	MetricsScope(Metrics metrics, String tenantId, String documentType) {
+		this.metrics = metrics;
+		this.tenantId = tenantId;
+		this.documentType = documentType;
+	}
+
+	String getTenantId() {
+		return tenantId;
+	}
+
+	String getDocumentType() {
+		return documentType;
+	}
+
+	public StageTimer startTimer(String name) {
+		return new StageTimer(millis -> record(name, millis, MetricUnit.MILLISECONDS));
+	}
+
+	public void count(String name, long count) {
+		record(name, count, MetricUnit.COUNT);
+	}
+
+	public void recordBytes(String name, long bytes) {
+		record(name, bytes, MetricUnit.BYTES);
+	}
+
+	public void record(String name, double value, MetricUnit unit) {
+		metrics.record(this, name, value, unit);
+	}
+}
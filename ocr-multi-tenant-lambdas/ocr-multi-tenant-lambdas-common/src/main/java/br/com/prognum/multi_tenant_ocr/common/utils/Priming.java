@@ -0,0 +1,105 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+import org.crac.Core;
+import org.crac.Resource;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Apoio ao priming dos handlers antes do snapshot do SnapStart.
+ *
+ * <p>
+ * As chamadas de teste ("dry-run") usam clientes descartáveis, encerrados logo
+ * em seguida: o que fica aquecido no snapshot são as classes, os marshallers e
+ * a pilha TLS/HTTP do SDK, e não conexões que estariam mortas no restore. Os
+ * recursos de nome {@value #PRIMING_NAME} não existem, então as chamadas falham
+ * depois de percorrer todo o caminho de serialização, assinatura e rede; essas
+ * falhas são esperadas e ignoradas. Tabelas e filas são da própria conta; no S3,
+ * onde os nomes de bucket são globais, o priming usa o bucket de um tenant da
+ * função (ver {@link #primeS3(Config)}).
+ */
+public final class Priming {
+	public static final String PRIMING_NAME = "ocr-multi-tenant-priming";
+
+	// Fora do prefixo tenants/, que é o das chaves dos requests e resultados.
+	private static final String PRIMING_KEY = "priming/" + PRIMING_NAME;
+
+	private Priming() {
+	}
+
+	/**
+	 * Registra o recurso no contexto global do CRaC. Fora do SnapStart o contexto
+	 * não faz nada.
+	 */
+	public static void register(Resource resource) {
+		Core.getGlobalContext().register(resource);
+	}
+
+	/**
+	 * Serializa cada exemplo e lê o JSON de volta para o mesmo tipo, criando os
+	 * serializers e deserializers do ObjectMapper.
+	 */
+	public static void primeJson(ObjectMapper objectMapper, Object... samples) {
+		for (Object sample : samples) {
+			try {
+				objectMapper.readValue(objectMapper.writeValueAsBytes(sample), sample.getClass());
+			} catch (Exception e) {
+				// Priming é o melhor esforço; o handler funciona sem ele.
+			}
+		}
+	}
+
+	public static void primeDynamoDB(Consumer<AmazonDynamoDB> dryRun) {
+		AmazonDynamoDB client = AwsClients.buildDynamoDB(ClientProfile.API);
+		try {
+			dryRun.accept(client);
+		} catch (RuntimeException e) {
+			// Falha esperada: o recurso de priming não existe.
+		} finally {
+			client.shutdown();
+		}
+	}
+
+	/**
+	 * Priming do S3 com um HEAD de uma chave inexistente no bucket do primeiro
+	 * tenant da função. Um bucket de nome fixo poderia ser criado por qualquer
+	 * conta e passaria a receber as requisições do priming. Sem tenants
+	 * configurados, o S3 fica sem priming.
+	 */
+	public static void primeS3(Config config) {
+		Iterator<String> tenantIds = config.getTenantIds().iterator();
+		if (!tenantIds.hasNext()) {
+			return;
+		}
+		String bucketName = config.buildBucketName(tenantIds.next());
+		primeS3(client -> client.getObjectMetadata(bucketName, PRIMING_KEY));
+	}
+
+	public static void primeS3(Consumer<AmazonS3> dryRun) {
+		AmazonS3 client = AwsClients.buildS3(ClientProfile.API);
+		try {
+			dryRun.accept(client);
+		} catch (RuntimeException e) {
+			// Falha esperada: o recurso de priming não existe.
+		} finally {
+			client.shutdown();
+		}
+	}
+
+	public static void primeSqs(Consumer<AmazonSQS> dryRun) {
+		AmazonSQS client = AwsClients.buildSqs(ClientProfile.API);
+		try {
+			dryRun.accept(client);
+		} catch (RuntimeException e) {
+			// Falha esperada: o recurso de priming não existe.
+		} finally {
+			client.shutdown();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Verifica se um host de callback resolve apenas para endereços públicos. Usado
+ * no cadastro e na entrega dos webhooks, para que uma URL de tenant não faça as
+ * Lambdas enviarem requisições assinadas a destinos internos (loopback,
+ * link-local como o endpoint de metadados, redes privadas da VPC).
+ */
+public final class PublicAddresses {
+
+	private PublicAddresses() {
+	}
+
+	/**
+	 * Resolve o host e retorna true se todos os endereços forem públicos; basta
+	 * um endereço interno para o host ser recusado.
+	 */
+	public static boolean resolvesToPublicAddresses(String host) throws UnknownHostException {
+		for (InetAddress address : InetAddress.getAllByName(host)) {
+			if (!isPublic(address)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static boolean isPublic(InetAddress address) {
+		if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+				|| address.isSiteLocalAddress() || address.isMulticastAddress()) {
+			return false;
+		}
+
+		byte[] bytes = address.getAddress();
+		if (bytes.length == 4) {
+			int first = bytes[0] & 0xff;
+			int second = bytes[1] & 0xff;
+			// 0.0.0.0/8, 100.64.0.0/10 (CGNAT), 198.18.0.0/15 e 240.0.0.0/4 (reservados).
+			return first != 0 && !(first == 100 && (second & 0xc0) == 64) && !(first == 198 && (second & 0xfe) == 18)
+					&& first < 240;
+		}
+		// fc00::/7 (unique local); endereços IPv4 mapeados já chegam como Inet4Address.
+		return (bytes[0] & 0xfe) != 0xfc;
+	}
+}
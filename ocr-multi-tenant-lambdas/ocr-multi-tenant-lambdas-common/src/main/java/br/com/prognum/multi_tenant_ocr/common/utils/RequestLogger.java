@@ -0,0 +1,56 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+/**
+ * Logger de um item da invocação (documento de um lote, mensagem de um evento
+ * SQS): os registros levam o tenantId, o requestId e o correlationId do item em
+ * vez dos da invocação.
+ */
+public final class RequestLogger {
+	private final StructuredLogger logger;
+	private final String tenantId;
+	private final String requestId;
+	private final String correlationId;
+
+	RequestLogger(StructuredLogger logger, String tenantId, String requestId, String correlationId) {
+		this.logger = logger;
+		this.tenantId = tenantId;
+		this.requestId = requestId;
+		this.correlationId = correlationId;
+	}
+
+	public String getTenantId() {
+		return tenantId;
+	}
+
+	public String getRequestId() {
+		return requestId;
+	}
+
+	public String getCorrelationId() {
+		return correlationId;
+	}
+
+	public boolean isDebugEnabled() {
+		return logger.isDebugEnabled();
+	}
+
+	public void debug(String message, Object... fields) {
+		logger.log(LogLevel.DEBUG, this, message, null, fields);
+	}
+
+	public void info(String message, Object... fields) {
+		logger.log(LogLevel.INFO, this, message, null, fields);
+	}
+
+	public void warn(String message, Object... fields) {
+		logger.log(LogLevel.WARN, this, message, null, fields);
+	}
+
+	public void warn(String message, Throwable error, Object... fields) {
+		logger.log(LogLevel.WARN, this, message, error, fields);
+	}
+
+	public void error(String message, Throwable error, Object... fields) {
+		logger.log(LogLevel.ERROR, this, message, error, fields);
+	}
+}
@@ -0,0 +1,26 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Cronômetro de uma etapa. {@link #stop()} registra a duração em milissegundos
+ * uma única vez; chamadas seguintes são ignoradas, o que permite usá-lo num
+ * bloco finally mesmo quando a etapa já foi encerrada antes.
+ */
+public final class StageTimer {
+	private final long start = System.nanoTime();
+	private final DoubleConsumer sink;
+	private boolean stopped;
+
+	StageTimer(DoubleConsumer sink) {
+		this.sink = sink;
+	}
+
+	public void stop() {
+		if (stopped) {
+			return;
+		}
+		stopped = true;
+		sink.accept((System.nanoTime() - start) / 1_000_000.0);
+	}
+}
@@ -0,0 +1,329 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Log estruturado dos handlers: cada registro é uma linha JSON com nível,
+ * horário, mensagem, tenantId, requestId, correlationId e o awsRequestId da
+ * invocação, além dos campos informados em pares nome/valor.
+ *
+ * <p>
+ * O handler só monta o registro e o coloca numa fila limitada; a redação, a
+ * serialização e a escrita no stdout são feitas por uma thread própria. Com a
+ * fila cheia o registro é descartado (e o descarte contado), para que o log
+ * nunca segure o processamento. {@link #flush()} deve ser chamado ao fim de
+ * cada invocação, antes de o ambiente ser congelado.
+ *
+ * <p>
+ * Os registros DEBUG saem quando LOG_LEVEL=DEBUG ou, com nível maior, numa
+ * amostra de LOG_DEBUG_SAMPLE_RATE das invocações (todos os registros DEBUG da
+ * invocação amostrada).
+ */
+public final class StructuredLogger {
+	private static final int QUEUE_CAPACITY = 4096;
+	private static final long FLUSH_TIMEOUT_MILLIS = 2000;
+	private static final double DEFAULT_DEBUG_SAMPLE_RATE = 0.01;
+	private static final String FUNCTION_NAME = System.getenv("AWS_LAMBDA_FUNCTION_NAME");
+
+	private static volatile StructuredLogger instance;
+
+	private final LogLevel level;
+	private final double debugSampleRate;
+	private final BlockingQueue<Object> queue;
+	private final AtomicLong dropped = new AtomicLong();
+	private final JsonFactory jsonFactory = new JsonFactory();
+	private final Writer out;
+
+	private volatile RequestLogger invocation;
+	private volatile String awsRequestId;
+	private volatile boolean debugSampled;
+
+	public StructuredLogger(LogLevel level, double debugSampleRate, PrintStream out, int queueCapacity) {
+		this.level = level;
+		this.debugSampleRate = debugSampleRate;
+		this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.invocation = new RequestLogger(this, null, null, null);
+
+		Thread writer = new Thread(this::writeLoop, "ocr-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Logger compartilhado pelos handlers do container, configurado pelas
+	 * variáveis LOG_LEVEL (padrão INFO) e LOG_DEBUG_SAMPLE_RATE (padrão 0.01).
+	 */
+	public static StructuredLogger getInstance() {
+		StructuredLogger logger = instance;
+		if (logger == null) {
+			synchronized (StructuredLogger.class) {
+				logger = instance;
+				if (logger == null) {
+					logger = new StructuredLogger(LogLevel.parse(System.getenv("LOG_LEVEL"), LogLevel.INFO),
+							parseSampleRate(System.getenv("LOG_DEBUG_SAMPLE_RATE")), System.out, QUEUE_CAPACITY);
+					instance = logger;
+				}
+			}
+		}
+		return logger;
+	}
+
+	private static double parseSampleRate(String value) {
+		if (value == null || value.isBlank()) {
+			return DEFAULT_DEBUG_SAMPLE_RATE;
+		}
+		try {
+			return Math.max(0, Math.min(1, Double.parseDouble(value.trim())));
+		} catch (NumberFormatException e) {
+			return DEFAULT_DEBUG_SAMPLE_RATE;
+		}
+	}
+
+	/**
+	 * Início de uma invocação: limpa o contexto da anterior e sorteia se os
+	 * registros DEBUG desta invocação serão escritos.
+	 */
+	public void startInvocation(String awsRequestId) {
+		this.awsRequestId = awsRequestId;
+		this.invocation = new RequestLogger(this, null, null, null);
+		this.debugSampled = level != LogLevel.DEBUG && debugSampleRate > 0
+				&& ThreadLocalRandom.current().nextDouble() < debugSampleRate;
+	}
+
+	/**
+	 * Define o contexto dos registros feitos diretamente por este logger até o
+	 * fim da invocação. Valores nulos mantêm o que já estava definido.
+	 */
+	public void setContext(String tenantId, String requestId, String correlationId) {
+		RequestLogger current = invocation;
+		invocation = new RequestLogger(this, tenantId != null ? tenantId : current.getTenantId(),
+				requestId != null ? requestId : current.getRequestId(),
+				correlationId != null ? correlationId : current.getCorrelationId());
+	}
+
+	/** Logger com o contexto atual da invocação. */
+	public RequestLogger current() {
+		return invocation;
+	}
+
+	public RequestLogger forRequest(String tenantId, String requestId, String correlationId) {
+		return new RequestLogger(this, tenantId, requestId, correlationId);
+	}
+
+	public boolean isDebugEnabled() {
+		return level == LogLevel.DEBUG || debugSampled;
+	}
+
+	public void debug(String message, Object... fields) {
+		log(LogLevel.DEBUG, invocation, message, null, fields);
+	}
+
+	public void info(String message, Object... fields) {
+		log(LogLevel.INFO, invocation, message, null, fields);
+	}
+
+	public void warn(String message, Object... fields) {
+		log(LogLevel.WARN, invocation, message, null, fields);
+	}
+
+	public void warn(String message, Throwable error, Object... fields) {
+		log(LogLevel.WARN, invocation, message, error, fields);
+	}
+
+	public void error(String message, Throwable error, Object... fields) {
+		log(LogLevel.ERROR, invocation, message, error, fields);
+	}
+
+	/**
+	 * Aguarda a escrita dos registros enfileirados até aqui, por no máximo
+	 * {@value #FLUSH_TIMEOUT_MILLIS} ms.
+	 */
+	public void flush() {
+		CountDownLatch written = new CountDownLatch(1);
+		try {
+			if (queue.offer(written, FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				written.await(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Enfileira uma linha já serializada (documentos EMF), escrita na ordem dos
+	 * demais registros.
+	 */
+	void emit(String line) {
+		if (!queue.offer(line)) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	void log(LogLevel recordLevel, RequestLogger context, String message, Throwable error, Object[] fields) {
+		if (recordLevel == LogLevel.DEBUG ? !isDebugEnabled() : recordLevel.compareTo(level) < 0) {
+			return;
+		}
+
+		// Valores mutáveis viram texto aqui; Strings, números e exceções seguem como estão.
+		Object[] values = fields;
+		for (int i = 1; i < fields.length; i += 2) {
+			Object value = fields[i];
+			if (value != null && !(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+				if (values == fields) {
+					values = fields.clone();
+				}
+				values[i] = String.valueOf(value);
+			}
+		}
+
+		LogRecord record = new LogRecord(System.currentTimeMillis(), recordLevel, context, awsRequestId, message,
+				error, values);
+		if (!queue.offer(record)) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	private void writeLoop() {
+		List<Object> batch = new ArrayList<>();
+		while (true) {
+			try {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+
+				for (Object item : batch) {
+					if (item instanceof LogRecord) {
+						writeQuietly((LogRecord) item);
+					} else if (item instanceof String) {
+						writeQuietly((String) item);
+					} else {
+						writeDropped();
+						flushQuietly();
+						((CountDownLatch) item).countDown();
+					}
+				}
+				flushQuietly();
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void writeQuietly(LogRecord record) {
+		try {
+			write(record);
+		} catch (Exception e) {
+			// O log não pode derrubar o handler; o registro com problema é perdido.
+		}
+	}
+
+	private void writeQuietly(String line) {
+		try {
+			out.write(line);
+			out.write('\n');
+		} catch (IOException e) {
+			// Sem stdout não há para onde escrever.
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			// Idem.
+		}
+	}
+
+	private void writeDropped() {
+		long count = dropped.getAndSet(0);
+		if (count > 0) {
+			writeQuietly(new LogRecord(System.currentTimeMillis(), LogLevel.WARN, invocation, awsRequestId,
+					"Log records dropped: queue full", null, new Object[] { "dropped", count }));
+		}
+	}
+
+	private void write(LogRecord record) throws IOException {
+		JsonGenerator json = jsonFactory.createGenerator(out);
+		json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+
+		json.writeStartObject();
+		json.writeStringField("timestamp", Instant.ofEpochMilli(record.timestamp).toString());
+		json.writeStringField("level", record.level.name());
+		json.writeStringField("message", LogRedactor.truncate(record.message, LogRedactor.MAX_VALUE_LENGTH));
+		json.writeStringField("tenantId", record.context.getTenantId());
+		json.writeStringField("requestId", record.context.getRequestId());
+		json.writeStringField("correlationId", record.context.getCorrelationId());
+		json.writeStringField("awsRequestId", record.awsRequestId);
+		if (FUNCTION_NAME != null) {
+			json.writeStringField("function", FUNCTION_NAME);
+		}
+
+		Object[] fields = record.fields;
+		for (int i = 0; i + 1 < fields.length; i += 2) {
+			String name = String.valueOf(fields[i]);
+			writeField(json, name, LogRedactor.redact(name, fields[i + 1]));
+		}
+		if (record.error != null) {
+			json.writeStringField("error", LogRedactor.describe(record.error));
+		}
+		json.writeEndObject();
+		json.close();
+		out.write('\n');
+	}
+
+	private void writeField(JsonGenerator json, String name, Object value) throws IOException {
+		json.writeFieldName(name);
+		if (value == null) {
+			json.writeNull();
+		} else if (value instanceof Integer || value instanceof Long) {
+			json.writeNumber(((Number) value).longValue());
+		} else if (value instanceof Number) {
+			json.writeNumber(((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			json.writeBoolean((Boolean) value);
+		} else {
+			json.writeString(value.toString());
+		}
+	}
+
+	private static final class LogRecord {
+		private final long timestamp;
+		private final LogLevel level;
+		private final RequestLogger context;
+		private final String awsRequestId;
+		private final String message;
+		private final Throwable error;
+		private final Object[] fields;
+
+		private LogRecord(long timestamp, LogLevel level, RequestLogger context, String awsRequestId, String message,
+				Throwable error, Object[] fields) {
+			this.timestamp = timestamp;
+			this.level = level;
+			this.context = context;
+			this.awsRequestId = awsRequestId;
+			this.message = message;
+			this.error = error;
+			this.fields = fields;
+		}
+	}
+}
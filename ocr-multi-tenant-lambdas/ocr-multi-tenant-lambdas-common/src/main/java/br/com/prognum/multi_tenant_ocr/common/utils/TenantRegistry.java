@@ -0,0 +1,227 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.crac.Context;
+import org.crac.Resource;
+
+/**
+ * {@link Config} com os recursos de cada tenant resolvidos na carga: os
+ * templates são aplicados uma única vez por tenant e o resultado fica num mapa
+ * imutável, de modo que cada consulta é um lookup O(1) sem System.getenv nem
+ * String.replace. Tenants fora da lista de tenants conhecidos são rejeitados
+ * antes de qualquer chamada à AWS.
+ *
+ * <p>
+ * A lista de tenants vem de {@code tenantSource} e é recarregada quando passa
+ * de {@code refreshIntervalMillis}, na própria thread que faz a consulta (uma
+ * de cada vez; as demais seguem com a lista atual). O mapa novo substitui o
+ * anterior de uma vez, e se a recarga falhar a lista anterior continua valendo
+ * até o próximo intervalo. Ao restaurar um snapshot do SnapStart a lista é
+ * recarregada na hora, já que o snapshot pode ser bem mais antigo que o
+ * intervalo.
+ *
+ * <p>
+ * Com a fonte padrão, a variável de ambiente {@value #TENANT_IDS}, a lista só
+ * muda publicando uma nova versão da função; uma fonte externa (por exemplo um
+ * parâmetro de configuração) passada a {@link #fromEnvironment(Supplier)}
+ * permite cadastrar tenants sem reiniciar os containers.
+ */
+public class TenantRegistry implements Config, Resource {
+	public static final String TENANT_IDS = "TENANT_IDS";
+	public static final String TENANT_REFRESH_INTERVAL_IN_SECS = "TENANT_REFRESH_INTERVAL_IN_SECS";
+
+	private static final String TEMPLATE = "<tenantId>";
+	private static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 300_000;
+
+	private static volatile TenantRegistry instance;
+
+	private final String tableNameTemplate;
+	private final String bucketNameTemplate;
+	private final String inputQueueUrlTemplate;
+	private final String outputQueueUrlTemplate;
+	private final String webhookRetryQueueUrl;
+	private final Supplier<Collection<String>> tenantSource;
+	private final long refreshIntervalMillis;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	private volatile Map<String, TenantResources> tenants = Collections.emptyMap();
+	private volatile long loadedAt;
+
+	/**
+	 * Registry com uma lista fixa de tenants, que nunca é recarregada.
+	 */
+	public TenantRegistry(String tableNameTemplate, String bucketNameTemplate, String inputQueueUrlTemplate,
+			String outputQueueUrlTemplate, String webhookRetryQueueUrl, Collection<String> tenantIds) {
+		this(tableNameTemplate, bucketNameTemplate, inputQueueUrlTemplate, outputQueueUrlTemplate,
+				webhookRetryQueueUrl, () -> tenantIds, Long.MAX_VALUE);
+	}
+
+	public TenantRegistry(String tableNameTemplate, String bucketNameTemplate, String inputQueueUrlTemplate,
+			String outputQueueUrlTemplate, String webhookRetryQueueUrl, Supplier<Collection<String>> tenantSource,
+			long refreshIntervalMillis) {
+		this.tableNameTemplate = tableNameTemplate;
+		this.bucketNameTemplate = bucketNameTemplate;
+		this.inputQueueUrlTemplate = inputQueueUrlTemplate;
+		this.outputQueueUrlTemplate = outputQueueUrlTemplate;
+		this.webhookRetryQueueUrl = webhookRetryQueueUrl;
+		this.tenantSource = tenantSource;
+		this.refreshIntervalMillis = refreshIntervalMillis;
+		refresh();
+	}
+
+	/**
+	 * Registry do container, configurado pelas variáveis de ambiente da função. A
+	 * lista de tenants vem de {@value #TENANT_IDS}, separada por vírgulas.
+	 */
+	public static TenantRegistry getInstance() {
+		if (instance == null) {
+			synchronized (TenantRegistry.class) {
+				if (instance == null) {
+					instance = fromEnvironment(() -> parseTenantIds(System.getenv(TENANT_IDS)));
+					Priming.register(instance);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Registry configurado pelas variáveis de ambiente da função, com a lista de
+	 * tenants lida de {@code tenantSource} e recarregada a cada
+	 * {@value #TENANT_REFRESH_INTERVAL_IN_SECS} segundos (5 minutos por padrão).
+	 */
+	public static TenantRegistry fromEnvironment(Supplier<Collection<String>> tenantSource) {
+		String refreshInterval = System.getenv(TENANT_REFRESH_INTERVAL_IN_SECS);
+		long refreshIntervalMillis = refreshInterval != null ? Long.parseLong(refreshInterval) * 1000
+				: DEFAULT_REFRESH_INTERVAL_MILLIS;
+
+		return new TenantRegistry(System.getenv("TABLE_NAME_TEMPLATE"), System.getenv("BUCKET_NAME_TEMPLATE"),
+				System.getenv("INPUT_QUEUE_URL_TEMPLATE"), System.getenv("OUTPUT_QUEUE_URL_TEMPLATE"),
+				System.getenv("WEBHOOK_RETRY_QUEUE_URL"), tenantSource, refreshIntervalMillis);
+	}
+
+	public static Collection<String> parseTenantIds(String tenantIds) {
+		if (tenantIds == null || tenantIds.isBlank()) {
+			return Collections.emptyList();
+		}
+
+		Collection<String> result = new ArrayList<>();
+		for (String tenantId : tenantIds.split(",")) {
+			if (!tenantId.isBlank()) {
+				result.add(tenantId.trim());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Recarrega a lista de tenants e resolve os recursos dos que são novos; os
+	 * registros dos tenants que continuam cadastrados são reaproveitados.
+	 */
+	public void refresh() {
+		Map<String, TenantResources> current = tenants;
+		Map<String, TenantResources> loaded = new HashMap<>();
+		for (String tenantId : tenantSource.get()) {
+			TenantResources resources = current.get(tenantId);
+			loaded.put(tenantId, resources != null ? resources : resolve(tenantId));
+		}
+
+		tenants = Map.copyOf(loaded);
+		loadedAt = System.currentTimeMillis();
+	}
+
+	@Override
+	public void beforeCheckpoint(Context<? extends Resource> context) {
+	}
+
+	@Override
+	public void afterRestore(Context<? extends Resource> context) {
+		refreshSafely();
+	}
+
+	@Override
+	public Collection<String> getTenantIds() {
+		refreshIfStale();
+		return tenants.keySet();
+	}
+
+	public TenantResources getTenant(String tenantId) {
+		refreshIfStale();
+		return tenantId != null ? tenants.get(tenantId) : null;
+	}
+
+	@Override
+	public boolean isKnownTenant(String tenantId) {
+		return getTenant(tenantId) != null;
+	}
+
+	@Override
+	public String buildTableName(String tenantId) {
+		return getRequiredTenant(tenantId).getTableName();
+	}
+
+	@Override
+	public String buildBucketName(String tenantId) {
+		return getRequiredTenant(tenantId).getBucketName();
+	}
+
+	@Override
+	public String buildInputQueueUrl(String tenantId) {
+		return getRequiredTenant(tenantId).getInputQueueUrl();
+	}
+
+	@Override
+	public String buildOutputQueueUrl(String tenantId) {
+		return getRequiredTenant(tenantId).getOutputQueueUrl();
+	}
+
+	@Override
+	public String getWebhookRetryQueueUrl() {
+		return webhookRetryQueueUrl;
+	}
+
+	private TenantResources getRequiredTenant(String tenantId) {
+		TenantResources resources = getTenant(tenantId);
+		if (resources == null) {
+			throw new UnknownTenantException(tenantId);
+		}
+		return resources;
+	}
+
+	private void refreshIfStale() {
+		if (System.currentTimeMillis() - loadedAt < refreshIntervalMillis || !refreshing.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			refreshSafely();
+		} finally {
+			refreshing.set(false);
+		}
+	}
+
+	private void refreshSafely() {
+		try {
+			refresh();
+		} catch (RuntimeException e) {
+			// Mantém a lista anterior e tenta de novo no próximo intervalo.
+			loadedAt = System.currentTimeMillis();
+		}
+	}
+
+	private TenantResources resolve(String tenantId) {
+		return new TenantResources(tenantId, apply(tableNameTemplate, tenantId), apply(bucketNameTemplate, tenantId),
+				apply(inputQueueUrlTemplate, tenantId), apply(outputQueueUrlTemplate, tenantId));
+	}
+
+	private static String apply(String template, String tenantId) {
+		return template != null ? template.replace(TEMPLATE, tenantId) : null;
+	}
+}
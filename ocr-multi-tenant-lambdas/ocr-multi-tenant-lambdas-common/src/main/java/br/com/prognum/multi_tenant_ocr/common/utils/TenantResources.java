@@ -0,0 +1,43 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+/**
+ * Nomes e URLs dos recursos de um tenant, resolvidos uma única vez a partir dos
+ * templates da configuração. Recursos cujo template não está configurado na
+ * função ficam nulos.
+ */
+public final class TenantResources {
+	private final String tenantId;
+	private final String tableName;
+	private final String bucketName;
+	private final String inputQueueUrl;
+	private final String outputQueueUrl;
+
+	public TenantResources(String tenantId, String tableName, String bucketName, String inputQueueUrl,
+			String outputQueueUrl) {
+		this.tenantId = tenantId;
+		this.tableName = tableName;
+		this.bucketName = bucketName;
+		this.inputQueueUrl = inputQueueUrl;
+		this.outputQueueUrl = outputQueueUrl;
+	}
+
+	public String getTenantId() {
+		return tenantId;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public String getBucketName() {
+		return bucketName;
+	}
+
+	public String getInputQueueUrl() {
+		return inputQueueUrl;
+	}
+
+	public String getOutputQueueUrl() {
+		return outputQueueUrl;
+	}
+}
@@ -0,0 +1,14 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+/**
+ * Lançada ao pedir os recursos de um tenant que não está cadastrado no
+ * {@link TenantRegistry}.
+ */
+public class UnknownTenantException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	public UnknownTenantException(String tenantId) {
+		super("Unknown tenant: " + tenantId);
+	}
+}
@@ -0,0 +1,49 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AttributeValueJsonTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void keepsNumbersWithinDynamoDBLimitsAsNumbers() throws Exception {
+		String[] numbers = { "0", "-17", "3.25", "1E+125", "-9.5E+125", "1E-130",
+				"12345678901234567890123456789012345678", "10000000000000000000000000000000000000000000000" };
+
+		for (String number : numbers) {
+			AttributeValue value = AttributeValueJson.toAttributeValue(objectMapper.readTree(number));
+			assertNull(value.getS(), number);
+			assertEquals(0, new BigDecimal(number).compareTo(new BigDecimal(value.getN())),
+					number);
+		}
+	}
+
+	@Test
+	public void storesNumbersOutsideDynamoDBLimitsAsStrings() throws Exception {
+		String[] numbers = { "123456789012345678901234567890123456789", "1E+126", "-1E+126", "1E-131", "1E+400" };
+
+		for (String number : numbers) {
+			AttributeValue value = AttributeValueJson.toAttributeValue(objectMapper.readTree(number));
+			assertNull(value.getN(), number);
+			assertEquals(objectMapper.readTree(number).asText(), value.getS(), number);
+		}
+	}
+
+	@Test
+	public void fallsBackOnlyForTheOffendingField() throws Exception {
+		AttributeValue value = AttributeValueJson
+				.toAttributeValue(objectMapper.readTree("{\"pagina\": 1, \"hash\": 1E+200}"));
+
+		assertEquals("1", value.getM().get("pagina").getN());
+		assertEquals("1.0E200", value.getM().get("hash").getS());
+	}
+}
@@ -0,0 +1,43 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class MetricsTest {
+
+	@Test
+	public void unknownDocumentTypesShareOneDimension() {
+		Metrics metrics = new Metrics("Test", StructuredLogger.getInstance(), Set.of("RG", "CNH"));
+
+		assertEquals("RG", metrics.forDimensions("tenant-a", "RG").getDocumentType());
+		assertEquals(Metrics.OTHER_DOCUMENT_TYPE, metrics.forDimensions("tenant-a", "rg").getDocumentType());
+		assertEquals(Metrics.OTHER_DOCUMENT_TYPE, metrics.forDimensions("tenant-a", "x".repeat(500)).getDocumentType());
+		assertNull(metrics.forDimensions("tenant-a", null).getDocumentType());
+	}
+
+	@Test
+	public void invocationDimensionIsBounded() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StructuredLogger logger = new StructuredLogger(LogLevel.INFO, 0, new PrintStream(out), 100);
+		Metrics metrics = new Metrics("Test", logger, Metrics.parseDocumentTypes(" RG , CNH,"));
+
+		metrics.startInvocation();
+		metrics.setDimensions("tenant-a", "client-chosen-" + System.nanoTime());
+		metrics.count("documents", 1);
+		metrics.flush();
+		logger.flush();
+
+		String emf = out.toString(StandardCharsets.UTF_8);
+		assertTrue(emf.contains("\"documentType\":\"OTHER\""), emf);
+		assertFalse(emf.contains("client-chosen-"), emf);
+	}
+}
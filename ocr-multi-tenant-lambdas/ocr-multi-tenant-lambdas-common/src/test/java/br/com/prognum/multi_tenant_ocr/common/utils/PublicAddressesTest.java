@@ -0,0 +1,38 @@
+package br.com.prognum.multi_tenant_ocr.common.utils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.junit.jupiter.api.Test;
+
+public class PublicAddressesTest {
+
+	@Test
+	public void rejectsInternalAddresses() throws UnknownHostException {
+		String[] internal = { "127.0.0.1", "0.0.0.0", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+				"100.64.0.1", "198.18.0.1", "224.0.0.1", "255.255.255.255", "::1", "::", "fe80::1", "fd00:ec2::254",
+				"::ffff:127.0.0.1", "::ffff:10.0.0.1" };
+
+		for (String address : internal) {
+			assertFalse(PublicAddresses.isPublic(InetAddress.getByName(address)), address);
+		}
+	}
+
+	@Test
+	public void acceptsPublicAddresses() throws UnknownHostException {
+		String[] external = { "8.8.8.8", "52.94.236.248", "100.128.0.1", "172.32.0.1", "2600:1f18::1" };
+
+		for (String address : external) {
+			assertTrue(PublicAddresses.isPublic(InetAddress.getByName(address)), address);
+		}
+	}
+
+	@Test
+	public void rejectsLocalHostNames() throws UnknownHostException {
+		assertFalse(PublicAddresses.resolvesToPublicAddresses("localhost"));
+		assertFalse(PublicAddresses.resolvesToPublicAddresses("[::1]"));
+	}
+}
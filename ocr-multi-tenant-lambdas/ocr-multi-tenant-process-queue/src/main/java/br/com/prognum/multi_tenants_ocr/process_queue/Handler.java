@@ -1,132 +1,601 @@
 package br.com.prognum.multi_tenants_ocr.process_queue;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.crac.Resource;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchExecuteStatementRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementError;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchStatementResponse;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent.MessageAttribute;
 import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import br.com.prognum.multi_tenant_ocr.common.utils.AttributeValueJson;
+import br.com.prognum.multi_tenant_ocr.common.utils.AwsClients;
+import br.com.prognum.multi_tenant_ocr.common.utils.ClientProfile;
 import br.com.prognum.multi_tenant_ocr.common.utils.Config;
-import br.com.prognum.multi_tenant_ocr.common.utils.ConfigImpl;
+import br.com.prognum.multi_tenant_ocr.common.utils.Metrics;
+import br.com.prognum.multi_tenant_ocr.common.utils.MetricsScope;
+import br.com.prognum.multi_tenant_ocr.common.utils.Priming;
+import br.com.prognum.multi_tenant_ocr.common.utils.RequestLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.StageTimer;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+public class Handler implements RequestHandler<SQSEvent, SQSBatchResponse>, Resource {
 
-public class Handler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+	private static final int MAX_CONCURRENCY = 10;
+	private static final int MAX_BATCH_STATEMENTS = 25;
+	private static final int MAX_BATCH_ATTEMPTS = 3;
+	private static final long BATCH_RETRY_BASE_DELAY_MILLIS = 50;
+	private static final int MAX_INLINE_RESULT_BYTES = 64 * 1024;
+	private static final long WEBHOOK_DELIVERY_BUDGET_MILLIS = 2000;
+	private static final long WEBHOOK_CACHE_TTL_MILLIS = 60_000;
+	private static final int WEBHOOK_MAX_CONCURRENCY_PER_ENDPOINT = 4;
+	private static final Duration WEBHOOK_REQUEST_TIMEOUT = Duration.ofSeconds(5);
 
 	private final AmazonDynamoDB dynamoDbClient;
+	private final AmazonS3 s3Client;
 	private final ObjectMapper objectMapper;
 	private final Config config;
+	private final WebhookRegistry webhookRegistry;
+	private final WebhookDispatcher webhookDispatcher;
+	private final ExecutorService executor;
+	private final StructuredLogger logger;
+	private final Metrics metrics;
 
 	public Handler() {
-		this(AmazonDynamoDBClientBuilder.standard().build(), new ConfigImpl());
+		this(AwsClients.dynamoDB(ClientProfile.WORKER), AwsClients.s3(ClientProfile.WORKER),
+				AwsClients.sqs(ClientProfile.WORKER),
+				HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build(), TenantRegistry.getInstance());
+		Priming.register(this);
 	}
 
-	public Handler(AmazonDynamoDB dynamoDbClient, Config config) {
+	public Handler(AmazonDynamoDB dynamoDbClient, AmazonS3 s3Client, AmazonSQS sqsClient, HttpClient httpClient,
+			Config config) {
 		this.dynamoDbClient = dynamoDbClient;
+		this.s3Client = s3Client;
 		this.objectMapper = new ObjectMapper();
 		this.config = config;
+		this.logger = StructuredLogger.getInstance();
+		this.metrics = Metrics.getInstance();
+		this.webhookRegistry = new WebhookRegistry(dynamoDbClient, config, WEBHOOK_CACHE_TTL_MILLIS);
+		this.webhookDispatcher = new WebhookDispatcher(httpClient, objectMapper, sqsClient,
+				config.getWebhookRetryQueueUrl(), WEBHOOK_MAX_CONCURRENCY_PER_ENDPOINT, WEBHOOK_REQUEST_TIMEOUT);
+		this.executor = Executors.newFixedThreadPool(MAX_CONCURRENCY, runnable -> {
+			Thread thread = new Thread(runnable, "process-queue-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Priming antes do snapshot do SnapStart: passa uma mensagem de exemplo pelo
+	 * parse e pela montagem do UPDATE e executa, com clientes descartáveis, as
+	 * chamadas do handler. O HttpClient dos webhooks não é usado, para não levar
+	 * conexões para o snapshot.
+	 */
+	@Override
+	public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+		SQSMessage message = new SQSMessage();
+		message.setMessageId(Priming.PRIMING_NAME);
+		message.setMessageAttributes(Map.of());
+		message.setBody(String.format("{\"tenantId\":\"%1$s\",\"requestId\":\"%1$s\",\"campos\":{\"nome\":\"x\"}}",
+				Priming.PRIMING_NAME));
+
+		try {
+			SqsResponse response = parseSqsResponse(message);
+			BatchStatementRequest statement = buildUpdateStatement(Priming.PRIMING_NAME, response);
+			WebhookNotification notification = new WebhookNotification();
+			notification.setTenantId(response.getTenantId());
+			notification.setRequestId(response.getRequestId());
+			notification.setResult(response.getResult());
+			Priming.primeJson(objectMapper, notification);
+			Priming.primeDynamoDB(
+					client -> client.batchExecuteStatement(new BatchExecuteStatementRequest().withStatements(statement)));
+		} catch (IOException e) {
+			// Priming é o melhor esforço; o handler funciona sem ele.
+		}
+		Priming.primeS3(config);
+		Priming.primeSqs(client -> client.getQueueUrl(Priming.PRIMING_NAME));
+	}
+
+	@Override
+	public void afterRestore(org.crac.Context<? extends Resource> context) {
+		// Os clientes do priming já foram encerrados; os do handler não abriram conexões antes do snapshot.
 	}
 
 	@Override
 	public SQSBatchResponse handleRequest(SQSEvent event, Context context) {
-		context.getLogger().log(String.format("Received event: %s", event));
-		List<SQSBatchResponse.BatchItemFailure> batchItemFailures = new ArrayList<>();
+		logger.startInvocation(context.getAwsRequestId());
+		metrics.startInvocation();
+		StageTimer timer = metrics.startTimer("processBatch");
+		try {
+			return processBatch(event);
+		} finally {
+			timer.stop();
+			metrics.flush();
+			logger.flush();
+		}
+	}
+
+	private SQSBatchResponse processBatch(SQSEvent event) {
+		logger.info("Received batch", "messages", event.getRecords().size());
+		if (logger.isDebugEnabled()) {
+			for (SQSMessage message : event.getRecords()) {
+				logger.debug("Received message", "messageId", message.getMessageId(), "body", message.getBody());
+			}
+		}
+
+		Set<String> failedMessageIds = ConcurrentHashMap.newKeySet();
+		Set<String> invalidGroups = new HashSet<>();
+		Map<String, List<SqsResponse>> responsesByTable = new LinkedHashMap<>();
 
 		for (SQSMessage message : event.getRecords()) {
+			String messageGroupId = getMessageGroupId(message);
+			if (messageGroupId != null && invalidGroups.contains(messageGroupId)) {
+				// Uma mensagem anterior do grupo é inválida e volta para a fila; as seguintes
+				// voltam junto sem serem aplicadas, como em updateTable.
+				failedMessageIds.add(message.getMessageId());
+				continue;
+			}
+
 			try {
-				processMessage(message);
+				SqsResponse sqsResponse = parseSqsResponse(message);
+				String tableName = config.buildTableName(sqsResponse.getTenantId());
+				responsesByTable.computeIfAbsent(tableName, key -> new ArrayList<>()).add(sqsResponse);
 			} catch (Exception e) {
-				e.printStackTrace();
-				batchItemFailures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+				logger.warn("Invalid message", e, "messageId", message.getMessageId());
+				failedMessageIds.add(message.getMessageId());
+				if (messageGroupId != null) {
+					invalidGroups.add(messageGroupId);
+				}
 			}
 		}
 
+		// As tabelas (tenants, e portanto MessageGroupIds) correm em paralelo; dentro
+		// de uma tabela os lotes são aplicados em sequência, na ordem das mensagens.
+		List<CompletableFuture<Void>> updates = new ArrayList<>();
+		for (Map.Entry<String, List<SqsResponse>> entry : responsesByTable.entrySet()) {
+			updates.add(CompletableFuture
+					.runAsync(() -> failedMessageIds.addAll(updateTable(entry.getKey(), entry.getValue())), executor));
+		}
+		CompletableFuture.allOf(updates.toArray(new CompletableFuture[0])).join();
+
+		List<SQSBatchResponse.BatchItemFailure> batchItemFailures = toBatchItemFailures(event.getRecords(),
+				failedMessageIds);
+
+		Set<String> returnedMessageIds = new HashSet<>();
+		batchItemFailures.forEach(failure -> returnedMessageIds.add(failure.getItemIdentifier()));
+		List<SqsResponse> processed = new ArrayList<>();
+		responsesByTable.values().forEach(responses -> responses.stream()
+				.filter(response -> !returnedMessageIds.contains(response.getMessageId()))
+				.forEach(processed::add));
+		notifyWebhooks(processed);
+
 		return new SQSBatchResponse(batchItemFailures);
 	}
 
-	private void processMessage(SQSMessage message) throws JsonProcessingException {
-		SqsResponse sqsResponse = parseSqsResponse(message);
+	/**
+	 * Notifica os webhooks dos tenants sobre os resultados gravados. As entregas
+	 * correm em paralelo e a invocação espera por elas no máximo
+	 * {@link #WEBHOOK_DELIVERY_BUDGET_MILLIS}; o que não foi entregue com sucesso
+	 * nesse prazo segue pela fila de retentativa, para que um endpoint lento não
+	 * atrase a ingestão. A entrega é "at least once": o cabeçalho X-Ocr-Request-Id
+	 * permite ao tenant descartar duplicatas.
+	 */
+	private void notifyWebhooks(List<SqsResponse> responses) {
+		Map<WebhookNotification, CompletableFuture<WebhookDispatcher.Outcome>> deliveries = new LinkedHashMap<>();
+
+		for (SqsResponse response : responses) {
+			try {
+				Optional<WebhookEndpoint> endpoint = webhookRegistry.find(response.getTenantId());
+				if (endpoint.isPresent()) {
+					WebhookNotification notification = buildWebhookNotification(response);
+					deliveries.put(notification, webhookDispatcher.deliver(endpoint.get(), notification, 1));
+				}
+			} catch (Exception e) {
+				forResponse(response).warn("Failed to notify webhook", e);
+			}
+		}
+
+		if (deliveries.isEmpty()) {
+			return;
+		}
+
+		try {
+			CompletableFuture.allOf(deliveries.values().toArray(new CompletableFuture[0]))
+					.get(WEBHOOK_DELIVERY_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (Exception e) {
+			// Entregas pendentes ou com erro seguem para a fila de retentativa abaixo.
+		}
+
+		int retries = 0;
+		int rejected = 0;
+		for (Map.Entry<WebhookNotification, CompletableFuture<WebhookDispatcher.Outcome>> delivery : deliveries
+				.entrySet()) {
+			CompletableFuture<WebhookDispatcher.Outcome> future = delivery.getValue();
+			future.cancel(false);
+			WebhookDispatcher.Outcome outcome = future.isDone() && !future.isCompletedExceptionally()
+					? future.join()
+					: WebhookDispatcher.Outcome.RETRY;
+			if (outcome == WebhookDispatcher.Outcome.DELIVERED) {
+				continue;
+			}
+			if (outcome == WebhookDispatcher.Outcome.REJECTED) {
+				// O dispatcher já registrou o motivo; uma nova tentativa teria o mesmo resultado.
+				rejected++;
+				continue;
+			}
+
+			retries++;
+			try {
+				webhookDispatcher.scheduleRetry(delivery.getKey(), 2);
+			} catch (Exception e) {
+				logger.forRequest(delivery.getKey().getTenantId(), delivery.getKey().getRequestId(), null)
+						.warn("Failed to schedule webhook retry", e);
+			}
+		}
+
+		logger.info("Webhook notifications", "delivered", deliveries.size() - retries - rejected, "rejected", rejected,
+				"scheduledForRetry", retries);
+	}
+
+	private RequestLogger forResponse(SqsResponse response) {
+		return logger.forRequest(response.getTenantId(), response.getRequestId(), null);
+	}
 
-		updateDynamoDB(sqsResponse);
+	private WebhookNotification buildWebhookNotification(SqsResponse response) {
+		WebhookNotification notification = new WebhookNotification();
+		notification.setTenantId(response.getTenantId());
+		notification.setRequestId(response.getRequestId());
+		notification.setStatus("PROCESSED");
+		notification.setProcessedAt(Instant.now().toString());
+		notification.setResult(response.getResult());
+		return notification;
 	}
 
-	private SqsResponse parseSqsResponse(SQSMessage message) throws JsonProcessingException {
-		SqsResponse sqsResponse = new SqsResponse();
+	/**
+	 * Monta a lista de falhas do lote. Em filas FIFO, depois da primeira falha de
+	 * um MessageGroupId as mensagens seguintes do mesmo grupo também são
+	 * devolvidas, para que o SQS as reentregue na ordem original. Algumas delas
+	 * podem já ter sido aplicadas, mas apenas as do mesmo lote de
+	 * BatchExecuteStatement da falha, que nunca tem duas mensagens do mesmo item
+	 * (ver {@link #updateTable}); reaplicá-las depois da mensagem que falhou mantém
+	 * a ordem por requestId. As que seguem uma mensagem inválida nem chegam a ser
+	 * aplicadas (ver {@link #processBatch}).
+	 */
+	private List<SQSBatchResponse.BatchItemFailure> toBatchItemFailures(List<SQSMessage> messages,
+			Set<String> failedMessageIds) {
+
+		List<SQSBatchResponse.BatchItemFailure> batchItemFailures = new ArrayList<>();
+		Set<String> failedGroups = new HashSet<>();
+
+		for (SQSMessage message : messages) {
+			String messageGroupId = getMessageGroupId(message);
 
-		Map<String, Object> messageBody = objectMapper.readValue(message.getBody(),
-				new TypeReference<Map<String, Object>>() {
-				});
+			boolean failed = failedMessageIds.contains(message.getMessageId())
+					|| (messageGroupId != null && failedGroups.contains(messageGroupId));
+			if (failed) {
+				batchItemFailures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+				if (messageGroupId != null) {
+					failedGroups.add(messageGroupId);
+				}
+			}
+		}
+
+		return batchItemFailures;
+	}
+
+	/**
+	 * Lê a mensagem da fila com uma única passada pelo corpo. Resultados pequenos
+	 * viram uma árvore JSON que será gravada como map na tabela; nos grandes, que
+	 * vão para o S3 byte a byte, o parser só procura tenantId e requestId no
+	 * primeiro nível e pula o restante.
+	 */
+	SqsResponse parseSqsResponse(SQSMessage message) throws IOException {
+		SqsResponse sqsResponse = new SqsResponse();
+		sqsResponse.setMessageId(message.getMessageId());
+		sqsResponse.setTenantId(getMessageAttribute(message, "tenantId"));
+		sqsResponse.setRequestId(getMessageAttribute(message, "requestId"));
 
-		Map<String, Object> result = new HashMap<>();
-		result.put("messageId", message.getMessageId());
-		result.put("receiptHandle", message.getReceiptHandle());
-		result.put("body", messageBody);
-		result.put("attributes", message.getAttributes());
-		result.put("messageAttributes", message.getMessageAttributes());
-		sqsResponse.setMessage(objectMapper.writeValueAsString(result));
+		byte[] content = message.getBody().getBytes(StandardCharsets.UTF_8);
 
-		MessageAttribute requestIdAttributeValue = message.getMessageAttributes().get("requestId");
-		String requestId = requestIdAttributeValue != null ? requestIdAttributeValue.getStringValue() : null;
-		requestId = requestId == null ? (String) messageBody.get("requestId") : requestId;
-		sqsResponse.setRequestId(requestId);
+		if (content.length > MAX_INLINE_RESULT_BYTES) {
+			sqsResponse.setRawResult(content);
+			if (sqsResponse.getTenantId() == null || sqsResponse.getRequestId() == null) {
+				readIdentifiers(content, sqsResponse);
+			}
+		} else {
+			JsonNode result = objectMapper.readTree(content);
+			sqsResponse.setResult(result);
+			if (sqsResponse.getTenantId() == null) {
+				sqsResponse.setTenantId(result.path("tenantId").textValue());
+			}
+			if (sqsResponse.getRequestId() == null) {
+				sqsResponse.setRequestId(result.path("requestId").textValue());
+			}
+		}
 
-		MessageAttribute tenantIdAttributeValue = message.getMessageAttributes().get("tenantId");
-		String tenantId = tenantIdAttributeValue != null ? tenantIdAttributeValue.getStringValue() : null;
-		tenantId = tenantId == null ? (String) messageBody.get("tenantId") : tenantId;
-		sqsResponse.setTenantId(tenantId);
+		if (sqsResponse.getTenantId() == null || sqsResponse.getRequestId() == null) {
+			throw new IllegalArgumentException(
+					String.format("Message %s has no tenantId/requestId", message.getMessageId()));
+		}
 
 		return sqsResponse;
 	}
 
-	private void updateDynamoDB(SqsResponse response) {
-		Map<String, AttributeValue> key = buildDynamoDBKey(response.getTenantId(), response.getRequestId());
-		UpdateItemRequest updateRequest = buildUpdateRequest(response, key);
+	private String getMessageGroupId(SQSMessage message) {
+		Map<String, String> attributes = message.getAttributes();
+		return attributes != null ? attributes.get("MessageGroupId") : null;
+	}
+
+	private String getMessageAttribute(SQSMessage message, String name) {
+		Map<String, MessageAttribute> messageAttributes = message.getMessageAttributes();
+		MessageAttribute attribute = messageAttributes != null ? messageAttributes.get(name) : null;
+		return attribute != null ? attribute.getStringValue() : null;
+	}
+
+	private void readIdentifiers(byte[] content, SqsResponse sqsResponse) throws IOException {
+		try (JsonParser parser = objectMapper.getFactory().createParser(content)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IllegalArgumentException("OCR result is not a JSON object");
+			}
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+
+				if ("tenantId".equals(fieldName) && sqsResponse.getTenantId() == null) {
+					sqsResponse.setTenantId(parser.getValueAsString());
+				} else if ("requestId".equals(fieldName) && sqsResponse.getRequestId() == null) {
+					sqsResponse.setRequestId(parser.getValueAsString());
+				} else {
+					parser.skipChildren();
+				}
+
+				if (sqsResponse.getTenantId() != null && sqsResponse.getRequestId() != null) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aplica os resultados de uma tabela em lotes sequenciais, na ordem das
+	 * mensagens. O BatchExecuteStatement não ordena as instruções de uma chamada,
+	 * então um lote é fechado antes de repetir um requestId: dentro dele as
+	 * atualizações são de itens distintos e comutam. No primeiro lote com falha o
+	 * processamento da tabela para e as mensagens seguintes são devolvidas sem
+	 * serem aplicadas, para que nenhuma mensagem mais antiga de um item seja
+	 * reaplicada por cima de uma mais nova.
+	 */
+	private List<String> updateTable(String tableName, List<SqsResponse> responses) {
+		List<String> failedMessageIds = new ArrayList<>();
+		List<SqsResponse> chunk = new ArrayList<>();
+		Set<String> chunkRequestIds = new HashSet<>();
+
+		for (int i = 0; i <= responses.size(); i++) {
+			SqsResponse response = i < responses.size() ? responses.get(i) : null;
+			boolean flush = response == null || chunk.size() == MAX_BATCH_STATEMENTS
+					|| chunkRequestIds.contains(response.getRequestId());
+
+			if (flush && !chunk.isEmpty()) {
+				try {
+					failedMessageIds.addAll(updateDynamoDB(tableName, chunk));
+				} catch (Exception e) {
+					logger.warn("BatchExecuteStatement failed", e, "tableName", tableName, "statements",
+							chunk.size());
+					chunk.forEach(failed -> failedMessageIds.add(failed.getMessageId()));
+				}
+
+				if (!failedMessageIds.isEmpty()) {
+					responses.subList(i, responses.size())
+							.forEach(skipped -> failedMessageIds.add(skipped.getMessageId()));
+					break;
+				}
+				chunk = new ArrayList<>();
+				chunkRequestIds.clear();
+			}
+
+			if (response != null) {
+				chunk.add(response);
+				chunkRequestIds.add(response.getRequestId());
+			}
+		}
 
-		dynamoDbClient.updateItem(updateRequest);
+		return failedMessageIds;
 	}
 
-	private Map<String, AttributeValue> buildDynamoDBKey(String tenantId, String requestId) {
-		Map<String, AttributeValue> key = new HashMap<>();
-		key.put("pk", new AttributeValue("TENANT_ID#" + tenantId));
-		key.put("sk", new AttributeValue("REQUEST_ID#" + requestId));
-		return key;
+	/**
+	 * Aplica um lote com BatchExecuteStatement (até {@link #MAX_BATCH_STATEMENTS}
+	 * instruções PartiQL por chamada). Instruções recusadas por throttling são
+	 * reenviadas com backoff; as demais falhas são devolvidas como os messageIds
+	 * que devem voltar para a fila.
+	 */
+	private List<String> updateDynamoDB(String tableName, List<SqsResponse> responses) {
+		// Todas as respostas de uma tabela são do mesmo tenant.
+		MetricsScope scope = metrics.forDimensions(responses.get(0).getTenantId(), null);
+		scope.count("messages", responses.size());
+		StageTimer timer = scope.startTimer("updateDynamoDB");
+		try {
+			List<String> failedMessageIds = updateDynamoDB(tableName, responses, scope);
+			scope.count("failedMessages", failedMessageIds.size());
+			return failedMessageIds;
+		} finally {
+			timer.stop();
+		}
+	}
+
+	private List<String> updateDynamoDB(String tableName, List<SqsResponse> responses, MetricsScope scope) {
+		List<String> failedMessageIds = new ArrayList<>();
+		List<SqsResponse> pending = new ArrayList<>();
+
+		for (SqsResponse response : responses) {
+			try {
+				if (response.getRawResult() != null) {
+					scope.recordBytes("offloadedResultBytes", response.getRawResult().length);
+				}
+				offloadLargeResult(response);
+				pending.add(response);
+			} catch (Exception e) {
+				forResponse(response).warn("Failed to store result in S3", e);
+				failedMessageIds.add(response.getMessageId());
+			}
+		}
+
+		for (int attempt = 0; attempt < MAX_BATCH_ATTEMPTS && !pending.isEmpty(); attempt++) {
+			if (attempt > 0) {
+				sleep(BATCH_RETRY_BASE_DELAY_MILLIS << (attempt - 1));
+			}
+
+			List<BatchStatementRequest> statements = new ArrayList<>();
+			for (SqsResponse response : pending) {
+				statements.add(buildUpdateStatement(tableName, response));
+			}
+
+			List<BatchStatementResponse> statementResponses = dynamoDbClient
+					.batchExecuteStatement(new BatchExecuteStatementRequest().withStatements(statements))
+					.getResponses();
+
+			List<SqsResponse> retry = new ArrayList<>();
+			for (int i = 0; i < pending.size(); i++) {
+				BatchStatementError error = statementResponses.get(i).getError();
+				if (error == null) {
+					continue;
+				}
+
+				SqsResponse response = pending.get(i);
+				if (isRetryable(error) && attempt < MAX_BATCH_ATTEMPTS - 1) {
+					retry.add(response);
+				} else {
+					forResponse(response).warn("Failed to update request", "code", error.getCode(), "errorMessage",
+							error.getMessage());
+					failedMessageIds.add(response.getMessageId());
+				}
+			}
+			pending = retry;
+		}
+
+		return failedMessageIds;
 	}
 
-	private UpdateItemRequest buildUpdateRequest(SqsResponse response, Map<String, AttributeValue> key) {
-		Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-		Map<String, String> expressionAttributeNames = new HashMap<>();
-		StringBuilder updateExpression = new StringBuilder();
-		buildUpdateExpression(response, expressionAttributeValues, expressionAttributeNames, updateExpression);
+	/**
+	 * Resultados acima de {@link #MAX_INLINE_RESULT_BYTES} são gravados no bucket
+	 * do tenant em tenants/{tenantId}/results/{requestId}; o item guarda apenas a
+	 * chave, o tamanho e o SHA-256 do objeto. Resultados pequenos continuam inline.
+	 */
+	private void offloadLargeResult(SqsResponse response) {
+		byte[] content = response.getRawResult();
+		if (content == null) {
+			return;
+		}
+
+		String resultKey = String.format("tenants/%s/results/%s", response.getTenantId(), response.getRequestId());
+
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentLength(content.length);
+		metadata.setContentType("application/json");
+
+		s3Client.putObject(new PutObjectRequest(config.buildBucketName(response.getTenantId()), resultKey,
+				new ByteArrayInputStream(content), metadata));
 
-		return new UpdateItemRequest().withTableName(config.buildTableName(response.getTenantId())).withKey(key)
-				.withUpdateExpression(updateExpression.toString())
-				.withExpressionAttributeNames(expressionAttributeNames)
-				.withExpressionAttributeValues(expressionAttributeValues)
-				.withConditionExpression("attribute_exists(pk) AND attribute_exists(sk)");
+		response.setResultKey(resultKey);
+		response.setResultSize(content.length);
+		response.setResultChecksum(sha256(content));
+		response.setRawResult(null);
+	}
+
+	private String sha256(byte[] content) {
+		try {
+			return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
 	}
 
-	private void buildUpdateExpression(SqsResponse response, Map<String, AttributeValue> expressionAttributeValues,
-			Map<String, String> expressionAttributeNames, StringBuilder updateExpression) {
+	/**
+	 * O UPDATE do PartiQL só altera itens existentes: se a chave não existir a
+	 * instrução falha com ConditionalCheckFailed, como a antiga condição
+	 * attribute_exists(pk) AND attribute_exists(sk).
+	 */
+	BatchStatementRequest buildUpdateStatement(String tableName, SqsResponse response) {
+		AttributeValue status = new AttributeValue("PROCESSED");
+		AttributeValue updatedAt = new AttributeValue(Instant.now().toString());
+		AttributeValue pk = new AttributeValue("TENANT_ID#" + response.getTenantId());
+		AttributeValue sk = new AttributeValue("REQUEST_ID#" + response.getRequestId());
 
-		expressionAttributeValues.put(":queueResult", new AttributeValue(response.getMessage()));
+		if (response.getResultKey() != null) {
+			String statement = String.format("UPDATE \"%s\" SET \"queueResultKey\" = ? SET \"queueResultSize\" = ? "
+					+ "SET \"queueResultChecksum\" = ? SET \"status\" = ? SET \"updatedAt\" = ? "
+					+ "REMOVE \"queueResult\" REMOVE \"pendingStatus\" WHERE \"pk\" = ? AND \"sk\" = ?", tableName);
 
-		expressionAttributeValues.put(":status", new AttributeValue("PROCESSED"));
-		expressionAttributeValues.put(":updatedAt", new AttributeValue(Instant.now().toString()));
+			return new BatchStatementRequest().withStatement(statement)
+					.withParameters(new AttributeValue(response.getResultKey()),
+							new AttributeValue().withN(Long.toString(response.getResultSize())),
+							new AttributeValue(response.getResultChecksum()),
+							status, updatedAt, pk, sk);
+		}
+
+		// Remove o ponteiro de um resultado grande anterior (reentrega do OCR): o
+		// to_api consulta queueResultKey antes de queueResult.
+		String statement = String.format("UPDATE \"%s\" SET \"queueResult\" = ? SET \"status\" = ? "
+				+ "SET \"updatedAt\" = ? REMOVE \"queueResultKey\" REMOVE \"queueResultSize\" "
+				+ "REMOVE \"queueResultChecksum\" REMOVE \"pendingStatus\" WHERE \"pk\" = ? AND \"sk\" = ?",
+				tableName);
+
+		return new BatchStatementRequest().withStatement(statement)
+				.withParameters(AttributeValueJson.toAttributeValue(response.getResult()), status, updatedAt, pk, sk);
+	}
 
-		updateExpression.append("SET queueResult = :queueResult, #status = :status, updatedAt = :updatedAt");
-		expressionAttributeNames.put("#status", "status");
+	private boolean isRetryable(BatchStatementError error) {
+		String code = error.getCode();
+		return "ThrottlingError".equals(code) || "ProvisionedThroughputExceeded".equals(code)
+				|| "RequestLimitExceeded".equals(code) || "InternalServerError".equals(code);
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -1,18 +1,35 @@
 package br.com.prognum.multi_tenants_ocr.process_queue;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 /**
  * DTO que representa a mensagem recebida da fila OUTPUT_QUEUE com o resultado
- * do processamento OCR.
+ * do processamento OCR. Apenas tenantId e requestId são lidos; o corpo segue
+ * como árvore JSON (resultados inline) ou como os bytes originais (resultados
+ * gravados no S3), sem ser reserializado.
  */
 public class SqsResponse {
 
+	private String messageId;
 	private String tenantId;
 	private String requestId;
-	private String message;
+	private JsonNode result;
+	private byte[] rawResult;
+	private String resultKey;
+	private long resultSize;
+	private String resultChecksum;
 
 	public SqsResponse() {
 	}
 
+	public String getMessageId() {
+		return messageId;
+	}
+
+	public void setMessageId(String messageId) {
+		this.messageId = messageId;
+	}
+
 	public String getTenantId() {
 		return tenantId;
 	}
@@ -29,17 +46,54 @@ public class SqsResponse {
 		this.requestId = requestId;
 	}
 
-	public String getMessage() {
-		return message;
+	public JsonNode getResult() {
+		return result;
+	}
+
+	public void setResult(JsonNode result) {
+		this.result = result;
+	}
+
+	public byte[] getRawResult() {
+		return rawResult;
+	}
+
+	public void setRawResult(byte[] rawResult) {
+		this.rawResult = rawResult;
+	}
+
+	/**
+	 * Chave do objeto no bucket do tenant quando o resultado é grande demais para
+	 * ficar no item da tabela; null quando o resultado fica inline.
+	 */
+	public String getResultKey() {
+		return resultKey;
+	}
+
+	public void setResultKey(String resultKey) {
+		this.resultKey = resultKey;
+	}
+
+	public long getResultSize() {
+		return resultSize;
+	}
+
+	public void setResultSize(long resultSize) {
+		this.resultSize = resultSize;
+	}
+
+	public String getResultChecksum() {
+		return resultChecksum;
 	}
 
-	public void setMessage(String message) {
-		this.message = message;
+	public void setResultChecksum(String resultChecksum) {
+		this.resultChecksum = resultChecksum;
 	}
 
 	@Override
 	public String toString() {
-		return "SqsResponse [tenantId=" + tenantId + ", requestId=" + requestId + ", message=" + message + "]";
+		return "SqsResponse [messageId=" + messageId + ", tenantId=" + tenantId + ", requestId=" + requestId + ", result=" + result
+				+ ", resultKey=" + resultKey + ", resultSize=" + resultSize + ", resultChecksum=" + resultChecksum + "]";
 	}
 
 }
\ No newline at end of file
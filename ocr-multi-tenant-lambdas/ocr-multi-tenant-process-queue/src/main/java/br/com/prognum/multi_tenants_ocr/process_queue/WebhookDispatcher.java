@@ -0,0 +1,265 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.PublicAddresses;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+
+/**
+ * Entrega notificações aos webhooks dos tenants. As chamadas HTTP são
+ * assíncronas e compartilham um único HttpClient (e seu pool de conexões); cada
+ * endpoint tem no máximo {@code maxConcurrencyPerEndpoint} chamadas em
+ * andamento, e as demais aguardam na fila daquele endpoint, de modo que um
+ * endpoint lento não ocupa a capacidade dos outros.
+ *
+ * <p>
+ * Cada notificação é assinada com HMAC-SHA256 do segredo do tenant sobre
+ * "{timestamp}.{corpo}", enviada no cabeçalho X-Ocr-Signature no formato
+ * "t={timestamp},v1={hex}". Entregas que falham por erro de rede, timeout,
+ * 408, 429 ou 5xx são reenviadas pela fila de retentativa com atraso exponencial
+ * (ver {@link WebhookRetryHandler}); as demais respostas são definitivas e a
+ * notificação é descartada com um aviso no log. Hosts que resolvem para
+ * endereços internos são recusados na hora da entrega.
+ */
+public class WebhookDispatcher {
+
+	public static final String ATTEMPT_ATTRIBUTE = "attempt";
+
+	/** Resultado de uma entrega. */
+	public enum Outcome {
+		DELIVERED,
+		/** Falha transitória: a notificação volta pela fila de retentativa. */
+		RETRY,
+		/** Recusa definitiva do endpoint ou destino não permitido: não há nova tentativa. */
+		REJECTED;
+
+		public static Outcome forStatusCode(int statusCode) {
+			if (statusCode / 100 == 2) {
+				return DELIVERED;
+			}
+			if (statusCode == 408 || statusCode == 429 || statusCode / 100 == 5) {
+				return RETRY;
+			}
+			return REJECTED;
+		}
+	}
+
+	private static final int MAX_RETRY_DELAY_SECONDS = 900;
+	private static final int RETRY_BASE_DELAY_SECONDS = 30;
+
+	private final HttpClient httpClient;
+	private final ObjectMapper objectMapper;
+	private final AmazonSQS sqsClient;
+	private final String retryQueueUrl;
+	private final int maxConcurrencyPerEndpoint;
+	private final Duration requestTimeout;
+	private final Predicate<InetAddress> allowedAddress;
+	private final StructuredLogger logger;
+	private final Map<URI, EndpointLimiter> limiters = new ConcurrentHashMap<>();
+
+	public WebhookDispatcher(HttpClient httpClient, ObjectMapper objectMapper, AmazonSQS sqsClient,
+			String retryQueueUrl, int maxConcurrencyPerEndpoint, Duration requestTimeout) {
+		this(httpClient, objectMapper, sqsClient, retryQueueUrl, maxConcurrencyPerEndpoint, requestTimeout,
+				PublicAddresses::isPublic);
+	}
+
+	/**
+	 * @param allowedAddress endereços para os quais a entrega é permitida; fora
+	 *                       dos testes, apenas os públicos
+	 */
+	public WebhookDispatcher(HttpClient httpClient, ObjectMapper objectMapper, AmazonSQS sqsClient,
+			String retryQueueUrl, int maxConcurrencyPerEndpoint, Duration requestTimeout,
+			Predicate<InetAddress> allowedAddress) {
+		this.httpClient = httpClient;
+		this.objectMapper = objectMapper;
+		this.sqsClient = sqsClient;
+		this.retryQueueUrl = retryQueueUrl;
+		this.maxConcurrencyPerEndpoint = maxConcurrencyPerEndpoint;
+		this.requestTimeout = requestTimeout;
+		this.allowedAddress = allowedAddress;
+		this.logger = StructuredLogger.getInstance();
+	}
+
+	/**
+	 * Agenda a entrega e devolve um future com o {@link Outcome}; falhas de rede e
+	 * timeouts terminam o future com exceção e, como RETRY, justificam nova
+	 * tentativa. Cancelar o future antes de a chamada sair da fila do endpoint
+	 * evita o envio.
+	 */
+	public CompletableFuture<Outcome> deliver(WebhookEndpoint endpoint, WebhookNotification notification,
+			int attempt) {
+
+		CompletableFuture<Outcome> result = new CompletableFuture<>();
+
+		HttpRequest request;
+		try {
+			if (!isAllowedHost(endpoint.getUrl().getHost())) {
+				logger.forRequest(notification.getTenantId(), notification.getRequestId(), null)
+						.warn("Webhook host resolves to a non-public address, dropping notification", "url",
+								endpoint.getUrl());
+				result.complete(Outcome.REJECTED);
+				return result;
+			}
+			request = buildRequest(endpoint, notification, attempt);
+		} catch (Exception e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+
+		limiters.computeIfAbsent(endpoint.getUrl(), url -> new EndpointLimiter())
+				.submit(new PendingRequest(request, notification, result));
+		return result;
+	}
+
+	/**
+	 * Envia a notificação para a fila de retentativa com atraso exponencial
+	 * ({@value #RETRY_BASE_DELAY_SECONDS}s, dobrando a cada tentativa, até o
+	 * máximo de 15 minutos do SQS).
+	 */
+	public void scheduleRetry(WebhookNotification notification, int attempt) throws JsonProcessingException {
+		long delay = Math.min((long) RETRY_BASE_DELAY_SECONDS << Math.min(attempt - 1, 10), MAX_RETRY_DELAY_SECONDS);
+
+		sqsClient.sendMessage(new SendMessageRequest().withQueueUrl(retryQueueUrl)
+				.withMessageBody(objectMapper.writeValueAsString(notification))
+				.withDelaySeconds((int) delay)
+				.withMessageAttributes(Map.of(ATTEMPT_ATTRIBUTE,
+						new MessageAttributeValue().withDataType("Number").withStringValue(Integer.toString(attempt)))));
+	}
+
+	/**
+	 * Verificado a cada entrega, e não só no cadastro, porque o DNS do host pode
+	 * passar a apontar para um endereço interno depois.
+	 */
+	private boolean isAllowedHost(String host) throws UnknownHostException {
+		for (InetAddress address : InetAddress.getAllByName(host)) {
+			if (!allowedAddress.test(address)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Outcome toOutcome(PendingRequest pending, int statusCode) {
+		Outcome outcome = Outcome.forStatusCode(statusCode);
+		if (outcome == Outcome.REJECTED) {
+			logger.forRequest(pending.notification.getTenantId(), pending.notification.getRequestId(), null)
+					.warn("Webhook rejected notification, not retrying", "url", pending.request.uri(),
+							"statusCode", statusCode);
+		}
+		return outcome;
+	}
+
+	private HttpRequest buildRequest(WebhookEndpoint endpoint, WebhookNotification notification, int attempt)
+			throws JsonProcessingException, NoSuchAlgorithmException, InvalidKeyException {
+
+		String body = objectMapper.writeValueAsString(notification);
+		long timestamp = Instant.now().getEpochSecond();
+
+		return HttpRequest.newBuilder(endpoint.getUrl())
+				.timeout(requestTimeout)
+				.header("Content-Type", "application/json")
+				.header("X-Ocr-Request-Id", notification.getRequestId())
+				.header("X-Ocr-Delivery-Attempt", Integer.toString(attempt))
+				.header("X-Ocr-Signature", String.format("t=%d,v1=%s", timestamp,
+						sign(endpoint.getSecret(), timestamp + "." + body)))
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+	}
+
+	private String sign(String secret, String payload) throws NoSuchAlgorithmException, InvalidKeyException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+
+		StringBuilder signature = new StringBuilder();
+		for (byte b : mac.doFinal(payload.getBytes(StandardCharsets.UTF_8))) {
+			signature.append(String.format("%02x", b));
+		}
+		return signature.toString();
+	}
+
+	/**
+	 * Limita as chamadas simultâneas a um endpoint; as excedentes esperam numa
+	 * fila e são disparadas conforme as anteriores terminam.
+	 */
+	private class EndpointLimiter {
+		private final Queue<PendingRequest> waiting = new ArrayDeque<>();
+		private int active;
+
+		private void submit(PendingRequest pending) {
+			synchronized (this) {
+				if (active >= maxConcurrencyPerEndpoint) {
+					waiting.add(pending);
+					return;
+				}
+				active++;
+			}
+			send(pending);
+		}
+
+		private void send(PendingRequest pending) {
+			httpClient.sendAsync(pending.request, HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, error) -> {
+						if (error != null) {
+							pending.result.completeExceptionally(error);
+						} else {
+							pending.result.complete(toOutcome(pending, response.statusCode()));
+						}
+						next();
+					});
+		}
+
+		private void next() {
+			PendingRequest pending;
+			synchronized (this) {
+				do {
+					pending = waiting.poll();
+				} while (pending != null && pending.result.isDone());
+
+				if (pending == null) {
+					active--;
+					return;
+				}
+			}
+			send(pending);
+		}
+	}
+
+	private static class PendingRequest {
+		private final HttpRequest request;
+		private final WebhookNotification notification;
+		private final CompletableFuture<Outcome> result;
+
+		private PendingRequest(HttpRequest request, WebhookNotification notification,
+				CompletableFuture<Outcome> result) {
+			this.request = request;
+			this.notification = notification;
+			this.result = result;
+		}
+	}
+
+}
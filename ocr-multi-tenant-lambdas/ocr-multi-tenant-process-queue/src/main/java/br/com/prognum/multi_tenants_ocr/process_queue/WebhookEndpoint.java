@@ -0,0 +1,32 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import java.net.URI;
+
+/**
+ * URL de callback cadastrada pelo tenant e o segredo usado para assinar as
+ * notificações enviadas a ela.
+ */
+public class WebhookEndpoint {
+
+	private final URI url;
+	private final String secret;
+
+	public WebhookEndpoint(URI url, String secret) {
+		this.url = url;
+		this.secret = secret;
+	}
+
+	public URI getUrl() {
+		return url;
+	}
+
+	public String getSecret() {
+		return secret;
+	}
+
+	@Override
+	public String toString() {
+		return "WebhookEndpoint [url=" + url + "]";
+	}
+
+}
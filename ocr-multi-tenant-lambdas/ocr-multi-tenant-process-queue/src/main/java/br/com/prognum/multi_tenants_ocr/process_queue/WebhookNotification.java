@@ -0,0 +1,69 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Corpo da notificação enviada ao webhook do tenant quando o resultado do OCR é
+ * gravado. O resultado só vai junto quando está inline na tabela; resultados
+ * grandes devem ser buscados em GET /documents.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WebhookNotification {
+
+	private String tenantId;
+	private String requestId;
+	private String status;
+	private String processedAt;
+	private JsonNode result;
+
+	public WebhookNotification() {
+	}
+
+	public String getTenantId() {
+		return tenantId;
+	}
+
+	public void setTenantId(String tenantId) {
+		this.tenantId = tenantId;
+	}
+
+	public String getRequestId() {
+		return requestId;
+	}
+
+	public void setRequestId(String requestId) {
+		this.requestId = requestId;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getProcessedAt() {
+		return processedAt;
+	}
+
+	public void setProcessedAt(String processedAt) {
+		this.processedAt = processedAt;
+	}
+
+	public JsonNode getResult() {
+		return result;
+	}
+
+	public void setResult(JsonNode result) {
+		this.result = result;
+	}
+
+	@Override
+	public String toString() {
+		return "WebhookNotification [tenantId=" + tenantId + ", requestId=" + requestId + ", status=" + status
+				+ ", processedAt=" + processedAt + "]";
+	}
+
+}
@@ -0,0 +1,71 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.Config;
+
+/**
+ * Lê o webhook cadastrado por cada tenant (item TENANT_ID#{tenantId} /
+ * WEBHOOK da tabela do tenant). O resultado, inclusive a ausência de cadastro,
+ * fica em cache por {@code ttlMillis} para não custar uma leitura por mensagem.
+ */
+public class WebhookRegistry {
+
+	public static final String WEBHOOK_SORT_KEY = "WEBHOOK";
+
+	private final AmazonDynamoDB dynamoDbClient;
+	private final Config config;
+	private final long ttlMillis;
+	private final Map<String, CachedEndpoint> endpoints = new ConcurrentHashMap<>();
+
+	public WebhookRegistry(AmazonDynamoDB dynamoDbClient, Config config, long ttlMillis) {
+		this.dynamoDbClient = dynamoDbClient;
+		this.config = config;
+		this.ttlMillis = ttlMillis;
+	}
+
+	public Optional<WebhookEndpoint> find(String tenantId) {
+		long now = System.currentTimeMillis();
+		CachedEndpoint cached = endpoints.get(tenantId);
+		if (cached != null && cached.expiresAt > now) {
+			return cached.endpoint;
+		}
+
+		Optional<WebhookEndpoint> endpoint = load(tenantId);
+		endpoints.put(tenantId, new CachedEndpoint(endpoint, now + ttlMillis));
+		return endpoint;
+	}
+
+	private Optional<WebhookEndpoint> load(String tenantId) {
+		GetItemRequest getItemRequest = new GetItemRequest().withTableName(config.buildTableName(tenantId))
+				.withKey(Map.of("pk", new AttributeValue("TENANT_ID#" + tenantId), "sk",
+						new AttributeValue(WEBHOOK_SORT_KEY)))
+				.withProjectionExpression("#url, secret")
+				.withExpressionAttributeNames(Map.of("#url", "url"));
+
+		Map<String, AttributeValue> item = dynamoDbClient.getItem(getItemRequest).getItem();
+		if (item == null || item.get("url") == null || item.get("secret") == null) {
+			return Optional.empty();
+		}
+
+		return Optional.of(new WebhookEndpoint(URI.create(item.get("url").getS()), item.get("secret").getS()));
+	}
+
+	private static class CachedEndpoint {
+		private final Optional<WebhookEndpoint> endpoint;
+		private final long expiresAt;
+
+		private CachedEndpoint(Optional<WebhookEndpoint> endpoint, long expiresAt) {
+			this.endpoint = endpoint;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.MessageAttribute;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.AwsClients;
+import br.com.prognum.multi_tenant_ocr.common.utils.ClientProfile;
+import br.com.prognum.multi_tenant_ocr.common.utils.Config;
+import br.com.prognum.multi_tenant_ocr.common.utils.RequestLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+/**
+ * Lambda function que consome a fila de retentativa de webhooks. Cada mensagem
+ * é uma {@link WebhookNotification} com o número da tentativa em atributo; em
+ * caso de nova falha transitória ela volta para a fila com atraso maior, até
+ * {@link #MAX_ATTEMPTS} tentativas; recusas definitivas do endpoint encerram as
+ * tentativas.
+ */
+public class WebhookRetryHandler implements RequestHandler<SQSEvent, SQSBatchResponse> {
+
+	private static final int MAX_ATTEMPTS = 8;
+	private static final long WEBHOOK_CACHE_TTL_MILLIS = 60_000;
+	private static final int WEBHOOK_MAX_CONCURRENCY_PER_ENDPOINT = 4;
+	private static final Duration WEBHOOK_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+	private final ObjectMapper objectMapper;
+	private final WebhookRegistry webhookRegistry;
+	private final WebhookDispatcher webhookDispatcher;
+	private final StructuredLogger logger;
+
+	public WebhookRetryHandler() {
+		Config config = TenantRegistry.getInstance();
+		this.objectMapper = new ObjectMapper();
+		this.webhookRegistry = new WebhookRegistry(AwsClients.dynamoDB(ClientProfile.WORKER), config,
+				WEBHOOK_CACHE_TTL_MILLIS);
+		this.webhookDispatcher = new WebhookDispatcher(
+				HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build(), objectMapper,
+				AwsClients.sqs(ClientProfile.WORKER), config.getWebhookRetryQueueUrl(),
+				WEBHOOK_MAX_CONCURRENCY_PER_ENDPOINT, WEBHOOK_REQUEST_TIMEOUT);
+		this.logger = StructuredLogger.getInstance();
+	}
+
+	public WebhookRetryHandler(ObjectMapper objectMapper, WebhookRegistry webhookRegistry,
+			WebhookDispatcher webhookDispatcher) {
+		this.objectMapper = objectMapper;
+		this.webhookRegistry = webhookRegistry;
+		this.webhookDispatcher = webhookDispatcher;
+		this.logger = StructuredLogger.getInstance();
+	}
+
+	@Override
+	public SQSBatchResponse handleRequest(SQSEvent event, Context context) {
+		logger.startInvocation(context.getAwsRequestId());
+		try {
+			return processBatch(event);
+		} finally {
+			logger.flush();
+		}
+	}
+
+	private SQSBatchResponse processBatch(SQSEvent event) {
+		List<SQSBatchResponse.BatchItemFailure> batchItemFailures = new ArrayList<>();
+		List<CompletableFuture<Void>> retries = new ArrayList<>();
+
+		for (SQSMessage message : event.getRecords()) {
+			try {
+				retries.add(retry(message).exceptionally(error -> {
+					logger.warn("Webhook retry failed", error, "messageId", message.getMessageId());
+					synchronized (batchItemFailures) {
+						batchItemFailures.add(new SQSBatchResponse.BatchItemFailure(message.getMessageId()));
+					}
+					return null;
+				}));
+			} catch (Exception e) {
+				logger.warn("Invalid webhook retry message", e, "messageId", message.getMessageId());
+			}
+		}
+		CompletableFuture.allOf(retries.toArray(new CompletableFuture[0])).join();
+
+		return new SQSBatchResponse(batchItemFailures);
+	}
+
+	private CompletableFuture<Void> retry(SQSMessage message) throws Exception {
+		WebhookNotification notification = objectMapper.readValue(message.getBody(), WebhookNotification.class);
+		int attempt = getAttempt(message);
+		RequestLogger log = logger.forRequest(notification.getTenantId(), notification.getRequestId(), null);
+
+		Optional<WebhookEndpoint> endpoint = webhookRegistry.find(notification.getTenantId());
+		if (endpoint.isEmpty()) {
+			log.info("Dropping webhook retry: tenant has no webhook");
+			return CompletableFuture.completedFuture(null);
+		}
+
+		return webhookDispatcher.deliver(endpoint.get(), notification, attempt)
+				.exceptionally(error -> WebhookDispatcher.Outcome.RETRY)
+				.thenAccept(outcome -> {
+					if (outcome != WebhookDispatcher.Outcome.RETRY) {
+						return;
+					}
+					if (attempt >= MAX_ATTEMPTS) {
+						log.warn("Giving up webhook", "attempts", attempt);
+						return;
+					}
+					try {
+						webhookDispatcher.scheduleRetry(notification, attempt + 1);
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				});
+	}
+
+	private int getAttempt(SQSMessage message) {
+		MessageAttribute attribute = message.getMessageAttributes() != null
+				? message.getMessageAttributes().get(WebhookDispatcher.ATTEMPT_ATTRIBUTE)
+				: null;
+		return attribute != null ? Integer.parseInt(attribute.getStringValue()) : 1;
+	}
+
+}
@@ -0,0 +1,258 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class WebhookDispatcherTest {
+
+	private static final String SECRET = "test-secret";
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private final AtomicInteger statusCode = new AtomicInteger(204);
+	private final List<Received> received = new CopyOnWriteArrayList<>();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private volatile CountDownLatch release = new CountDownLatch(0);
+	private final RecordingSqs sqs = new RecordingSqs();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@BeforeEach
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.createContext("/hook", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		release.countDown();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	public void deliversSignedNotification() throws Exception {
+		WebhookDispatcher.Outcome outcome = dispatcher(4).deliver(endpoint(), notification("r-1"), 3)
+				.get(5, TimeUnit.SECONDS);
+
+		assertEquals(WebhookDispatcher.Outcome.DELIVERED, outcome);
+		assertEquals(1, received.size());
+		Received request = received.get(0);
+		assertEquals("r-1", request.requestId);
+		assertEquals("3", request.attempt);
+
+		String[] signature = request.signature.split(",");
+		String timestamp = signature[0].substring("t=".length());
+		assertEquals("v1=" + hmac(timestamp + "." + request.body), signature[1]);
+	}
+
+	@Test
+	public void retriesOnlyTransientStatusCodes() throws Exception {
+		WebhookDispatcher dispatcher = dispatcher(4);
+		int[] retryable = { 408, 429, 500, 502, 503 };
+		int[] permanent = { 400, 401, 404, 410, 422 };
+
+		for (int code : retryable) {
+			statusCode.set(code);
+			assertEquals(WebhookDispatcher.Outcome.RETRY,
+					dispatcher.deliver(endpoint(), notification("r-" + code), 1).get(5, TimeUnit.SECONDS),
+					"status " + code);
+		}
+		for (int code : permanent) {
+			statusCode.set(code);
+			assertEquals(WebhookDispatcher.Outcome.REJECTED,
+					dispatcher.deliver(endpoint(), notification("r-" + code), 1).get(5, TimeUnit.SECONDS),
+					"status " + code);
+		}
+	}
+
+	@Test
+	public void failsExceptionallyWhenEndpointIsUnreachable() throws Exception {
+		int closedPort;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			closedPort = socket.getLocalPort();
+		}
+		WebhookEndpoint unreachable = new WebhookEndpoint(URI.create("http://127.0.0.1:" + closedPort + "/hook"),
+				SECRET);
+
+		CompletableFuture<WebhookDispatcher.Outcome> future = dispatcher(4).deliver(unreachable, notification("r-1"),
+				1);
+
+		assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void limitsConcurrentCallsPerEndpoint() throws Exception {
+		release = new CountDownLatch(1);
+		WebhookDispatcher dispatcher = dispatcher(2);
+
+		List<CompletableFuture<WebhookDispatcher.Outcome>> futures = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			futures.add(dispatcher.deliver(endpoint(), notification("r-" + i), 1));
+		}
+
+		waitUntil(() -> inFlight.get() == 2);
+		Thread.sleep(200);
+		assertEquals(2, inFlight.get());
+
+		release.countDown();
+		for (CompletableFuture<WebhookDispatcher.Outcome> future : futures) {
+			assertEquals(WebhookDispatcher.Outcome.DELIVERED, future.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(6, received.size());
+		assertEquals(2, maxInFlight.get());
+	}
+
+	@Test
+	public void cancelledQueuedDeliveryIsNotSent() throws Exception {
+		release = new CountDownLatch(1);
+		WebhookDispatcher dispatcher = dispatcher(1);
+
+		CompletableFuture<WebhookDispatcher.Outcome> first = dispatcher.deliver(endpoint(), notification("r-1"), 1);
+		CompletableFuture<WebhookDispatcher.Outcome> second = dispatcher.deliver(endpoint(), notification("r-2"), 1);
+		waitUntil(() -> inFlight.get() == 1);
+		second.cancel(false);
+
+		release.countDown();
+		assertEquals(WebhookDispatcher.Outcome.DELIVERED, first.get(5, TimeUnit.SECONDS));
+		assertEquals(WebhookDispatcher.Outcome.DELIVERED,
+				dispatcher.deliver(endpoint(), notification("r-3"), 1).get(5, TimeUnit.SECONDS));
+		assertEquals(List.of("r-1", "r-3"), received.stream().map(request -> request.requestId).toList());
+	}
+
+	@Test
+	public void rejectsNonPublicHostsWithDefaultPolicy() throws Exception {
+		WebhookDispatcher dispatcher = new WebhookDispatcher(HttpClient.newHttpClient(), objectMapper, sqs,
+				"retry-queue", 4, TIMEOUT);
+
+		assertEquals(WebhookDispatcher.Outcome.REJECTED,
+				dispatcher.deliver(endpoint(), notification("r-1"), 1).get(5, TimeUnit.SECONDS));
+		assertEquals(0, received.size());
+	}
+
+	@Test
+	public void schedulesRetryWithExponentialDelay() throws Exception {
+		WebhookDispatcher dispatcher = dispatcher(4);
+
+		dispatcher.scheduleRetry(notification("r-1"), 2);
+		dispatcher.scheduleRetry(notification("r-1"), 3);
+		dispatcher.scheduleRetry(notification("r-1"), 8);
+
+		assertEquals(List.of(60, 120, 900), sqs.sent.stream().map(SendMessageRequest::getDelaySeconds).toList());
+		assertEquals("3", sqs.sent.get(1).getMessageAttributes().get(WebhookDispatcher.ATTEMPT_ATTRIBUTE)
+				.getStringValue());
+		assertEquals("retry-queue", sqs.sent.get(0).getQueueUrl());
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		int current = inFlight.incrementAndGet();
+		maxInFlight.accumulateAndGet(current, Math::max);
+		try {
+			Received request = new Received();
+			request.requestId = exchange.getRequestHeaders().getFirst("X-Ocr-Request-Id");
+			request.attempt = exchange.getRequestHeaders().getFirst("X-Ocr-Delivery-Attempt");
+			request.signature = exchange.getRequestHeaders().getFirst("X-Ocr-Signature");
+			request.body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			received.add(request);
+
+			release.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			inFlight.decrementAndGet();
+			exchange.sendResponseHeaders(statusCode.get(), -1);
+			exchange.close();
+		}
+	}
+
+	private WebhookDispatcher dispatcher(int maxConcurrency) {
+		return new WebhookDispatcher(HttpClient.newHttpClient(), objectMapper, sqs, "retry-queue", maxConcurrency,
+				TIMEOUT, address -> true);
+	}
+
+	private WebhookEndpoint endpoint() {
+		return new WebhookEndpoint(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/hook"),
+				SECRET);
+	}
+
+	static WebhookNotification notification(String requestId) {
+		WebhookNotification notification = new WebhookNotification();
+		notification.setTenantId("tenant-a");
+		notification.setRequestId(requestId);
+		notification.setStatus("PROCESSED");
+		return notification;
+	}
+
+	private static String hmac(String payload) throws Exception {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+		StringBuilder hex = new StringBuilder();
+		for (byte b : mac.doFinal(payload.getBytes(StandardCharsets.UTF_8))) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(10);
+		}
+	}
+
+	private static class Received {
+		private String requestId;
+		private String attempt;
+		private String signature;
+		private String body;
+	}
+
+	static class RecordingSqs extends AbstractAmazonSQS {
+		final List<SendMessageRequest> sent = new CopyOnWriteArrayList<>();
+
+		@Override
+		public SendMessageResult sendMessage(SendMessageRequest request) {
+			sent.add(request);
+			return new SendMessageResult().withMessageId("m-" + sent.size());
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package br.com.prognum.multi_tenants_ocr.process_queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.events.SQSBatchResponse;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.MessageAttribute;
+import com.amazonaws.services.lambda.runtime.events.SQSEvent.SQSMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+public class WebhookRetryHandlerTest {
+
+	private HttpServer server;
+	private final AtomicInteger statusCode = new AtomicInteger(204);
+	private final AtomicInteger calls = new AtomicInteger();
+	private final WebhookDispatcherTest.RecordingSqs sqs = new WebhookDispatcherTest.RecordingSqs();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private WebhookRetryHandler handler;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/hook", exchange -> {
+			calls.incrementAndGet();
+			exchange.getRequestBody().readAllBytes();
+			exchange.sendResponseHeaders(statusCode.get(), -1);
+			exchange.close();
+		});
+		server.start();
+
+		String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/hook";
+		TenantRegistry config = new TenantRegistry("table-<tenantId>", "bucket-<tenantId>", null, null,
+				"retry-queue", List.of("tenant-a"));
+		WebhookRegistry registry = new WebhookRegistry(new AbstractAmazonDynamoDB() {
+			@Override
+			public GetItemResult getItem(GetItemRequest request) {
+				return new GetItemResult()
+						.withItem(Map.of("url", new AttributeValue(url), "secret", new AttributeValue("secret")));
+			}
+		}, config, 60_000);
+		WebhookDispatcher dispatcher = new WebhookDispatcher(HttpClient.newHttpClient(), objectMapper, sqs,
+				"retry-queue", 4, Duration.ofSeconds(5), address -> true);
+		handler = new WebhookRetryHandler(objectMapper, registry, dispatcher);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void reschedulesTransientFailureWithNextAttempt() throws Exception {
+		statusCode.set(503);
+
+		SQSBatchResponse response = handler.handleRequest(event(3), new TestContext());
+
+		assertTrue(response.getBatchItemFailures().isEmpty());
+		assertEquals(1, calls.get());
+		assertEquals(1, sqs.sent.size());
+		assertEquals("4", sqs.sent.get(0).getMessageAttributes().get(WebhookDispatcher.ATTEMPT_ATTRIBUTE)
+				.getStringValue());
+	}
+
+	@Test
+	public void dropsPermanentRejection() throws Exception {
+		statusCode.set(410);
+
+		handler.handleRequest(event(1), new TestContext());
+
+		assertEquals(1, calls.get());
+		assertTrue(sqs.sent.isEmpty());
+	}
+
+	@Test
+	public void stopsAfterLastAttempt() throws Exception {
+		statusCode.set(500);
+
+		handler.handleRequest(event(8), new TestContext());
+
+		assertEquals(1, calls.get());
+		assertTrue(sqs.sent.isEmpty());
+	}
+
+	@Test
+	public void deliveredNotificationIsNotRescheduled() throws Exception {
+		handler.handleRequest(event(2), new TestContext());
+
+		assertEquals(1, calls.get());
+		assertTrue(sqs.sent.isEmpty());
+	}
+
+	private SQSEvent event(int attempt) throws Exception {
+		MessageAttribute attribute = new MessageAttribute();
+		attribute.setDataType("Number");
+		attribute.setStringValue(Integer.toString(attempt));
+
+		SQSMessage message = new SQSMessage();
+		message.setMessageId("m-1");
+		message.setBody(objectMapper.writeValueAsString(WebhookDispatcherTest.notification("r-1")));
+		message.setMessageAttributes(Map.of(WebhookDispatcher.ATTEMPT_ATTRIBUTE, attribute));
+
+		SQSEvent event = new SQSEvent();
+		event.setRecords(List.of(message));
+		return event;
+	}
+
+	private static class TestContext implements Context {
+		@Override
+		public String getAwsRequestId() {
+			return "test-request";
+		}
+
+		@Override
+		public String getLogGroupName() {
+			return null;
+		}
+
+		@Override
+		public String getLogStreamName() {
+			return null;
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "webhook-retry";
+		}
+
+		@Override
+		public String getFunctionVersion() {
+			return "$LATEST";
+		}
+
+		@Override
+		public String getInvokedFunctionArn() {
+			return null;
+		}
+
+		@Override
+		public CognitoIdentity getIdentity() {
+			return null;
+		}
+
+		@Override
+		public ClientContext getClientContext() {
+			return null;
+		}
+
+		@Override
+		public int getRemainingTimeInMillis() {
+			return 30_000;
+		}
+
+		@Override
+		public int getMemoryLimitInMB() {
+			return 512;
+		}
+
+		@Override
+		public LambdaLogger getLogger() {
+			return null;
+		}
+	}
+}
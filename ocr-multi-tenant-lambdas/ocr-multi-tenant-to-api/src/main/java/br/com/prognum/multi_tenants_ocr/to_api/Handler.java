@@ -1,65 +1,596 @@
 package br.com.prognum.multi_tenants_ocr.to_api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.crac.Resource;
+
+import com.amazonaws.HttpMethod;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import br.com.prognum.multi_tenant_ocr.common.utils.AttributeValueJson;
+import br.com.prognum.multi_tenant_ocr.common.utils.AwsClients;
+import br.com.prognum.multi_tenant_ocr.common.utils.ClientProfile;
 import br.com.prognum.multi_tenant_ocr.common.utils.Config;
-import br.com.prognum.multi_tenant_ocr.common.utils.ConfigImpl;
+import br.com.prognum.multi_tenant_ocr.common.utils.Metrics;
+import br.com.prognum.multi_tenant_ocr.common.utils.Priming;
+import br.com.prognum.multi_tenant_ocr.common.utils.StageTimer;
+import br.com.prognum.multi_tenant_ocr.common.utils.StructuredLogger;
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
 
 /**
  * Lambda function que consulta o resultado do processamento do documento na
  * DynamoDB Table.
  */
-public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse> {
+public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGatewayV2HTTPResponse>, Resource {
+
+    // Abaixo do limite de 6 MB da resposta síncrona da Lambda, com folga para os cabeçalhos.
+    private static final long MAX_STREAMED_RESULT_BYTES = 4 * 1024 * 1024;
+    private static final Duration RESULT_URL_EXPIRATION = Duration.ofMinutes(5);
+
+    private static final String RESULT_PROJECTION = "#status, queueResult, queueResultKey, queueResultSize, "
+            + "queueResultChecksum";
+    private static final Set<String> TERMINAL_STATUSES = Set.of("PROCESSED", "FAILED");
+    private static final String CACHEABLE_STATUS = "PROCESSED";
+    /**
+     * Orçamento do cache de resultados em uma função de 512 MB. Resultados inline
+     * têm até 64 KB de JSON (acima disso o process_queue grava no S3 e o item
+     * guarda só o ponteiro), o que cabe no limite por entrada mesmo com o custo
+     * dos atributos; os resultados antigos maiores, gravados como string de até
+     * 400 KB, ficam de fora.
+     */
+    private static final long RESULT_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+    private static final long RESULT_CACHE_MAX_ENTRY_BYTES = 512 * 1024;
+    private static final long RESULT_CACHE_TTL_MILLIS = Duration.ofMinutes(10).toMillis();
+    private static final long MAX_WAIT_SECONDS = 20;
+    /**
+     * O intervalo entre leituras dobra a cada tentativa até 4 s: resultados
+     * rápidos são vistos em até 250 ms, e uma espera de 20 s faz cerca de 10
+     * GetItems em vez dos ~22 com teto de 1 s.
+     */
+    private static final long WAIT_INITIAL_DELAY_MILLIS = 250;
+    private static final long WAIT_MAX_DELAY_MILLIS = 4000;
+    private static final long WAIT_SAFETY_MARGIN_MILLIS = 3000;
+    private static final String STATUS_ROUTE_KEY = "POST /documents/status";
+    private static final int MAX_STATUS_REQUEST_IDS = 100;
+    private static final int MAX_BATCH_GET_KEYS = 25;
+    private static final int MAX_BATCH_GET_ATTEMPTS = 5;
+    private static final long BATCH_GET_RETRY_BASE_DELAY_MILLIS = 50;
+    private static final int IO_THREADS = 4;
+    private static final String CREATED_AT_INDEX = "createdAt-index";
+    private static final String PENDING_INDEX = "pendingStatus-index";
+    private static final String PENDING_STATUS_INDEX_ENABLED = "PENDING_STATUS_INDEX_ENABLED";
+    private static final Set<String> PENDING_STATUSES = Set.of("UPLOADING", "PROCESSING");
+    private static final List<String> LIST_ATTRIBUTES = List.of("requestId", "status", "documentType",
+            "correlationId", "createdAt", "updatedAt");
+    private static final String LIST_PROJECTION = "requestId, #status, documentType, correlationId, createdAt, "
+            + "updatedAt";
+    private static final int DEFAULT_LIST_LIMIT = 50;
+    private static final int MAX_LIST_LIMIT = 100;
 
     private final AmazonDynamoDB dynamoDbClient;
+    private final AmazonS3 s3Client;
+    private final ObjectMapper objectMapper;
     private final Config config;
+    private final boolean pendingIndexEnabled;
+    private final TerminalResultCache resultCache;
+    private final ExecutorService executor;
+    private final StructuredLogger logger;
+    private final Metrics metrics;
 
     public Handler() {
-        this(AmazonDynamoDBClientBuilder.standard().build(), new ConfigImpl());
+        this(AwsClients.dynamoDB(ClientProfile.API), AwsClients.s3(ClientProfile.API),
+                TenantRegistry.getInstance(), Boolean.parseBoolean(System.getenv(PENDING_STATUS_INDEX_ENABLED)));
+        Priming.register(this);
+    }
+
+    public Handler(AmazonDynamoDB dynamoDbClient, AmazonS3 s3Client, Config config) {
+        this(dynamoDbClient, s3Client, config, true);
     }
 
-    public Handler(AmazonDynamoDB dynamoDbClient, Config config) {
+    /**
+     * @param pendingIndexEnabled se o pendingStatus-index já existe nas tabelas;
+     *                            sem ele, os status pendentes são filtrados no
+     *                            createdAt-index
+     */
+    public Handler(AmazonDynamoDB dynamoDbClient, AmazonS3 s3Client, Config config, boolean pendingIndexEnabled) {
         this.dynamoDbClient = dynamoDbClient;
+        this.s3Client = s3Client;
+        this.objectMapper = new ObjectMapper();
         this.config = config;
+        this.pendingIndexEnabled = pendingIndexEnabled;
+        this.logger = StructuredLogger.getInstance();
+        this.metrics = Metrics.getInstance();
+        this.resultCache = new TerminalResultCache(RESULT_CACHE_MAX_BYTES, RESULT_CACHE_MAX_ENTRY_BYTES,
+                RESULT_CACHE_TTL_MILLIS);
+        this.executor = Executors.newFixedThreadPool(IO_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "to-api-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Priming antes do snapshot do SnapStart: aquece o ObjectMapper e executa, com
+     * clientes descartáveis, as mesmas chamadas de leitura do handler.
+     */
+    @Override
+    public void beforeCheckpoint(org.crac.Context<? extends Resource> context) {
+        Priming.primeJson(objectMapper, new HashMap<>(Map.of("requestId", "priming", "status", CACHEABLE_STATUS)));
+        Priming.primeDynamoDB(client -> client.getItem(new GetItemRequest()
+                .withTableName(Priming.PRIMING_NAME)
+                .withKey(buildDynamoDBKey(Priming.PRIMING_NAME, Priming.PRIMING_NAME))
+                .withProjectionExpression(RESULT_PROJECTION)
+                .withExpressionAttributeNames(Map.of("#status", "status"))));
+        Priming.primeS3(config);
+    }
+
+    @Override
+    public void afterRestore(org.crac.Context<? extends Resource> context) {
+        // Os clientes do priming já foram encerrados; os do handler não abriram conexões antes do snapshot.
     }
 
     @Override
     public APIGatewayV2HTTPResponse handleRequest(APIGatewayV2HTTPEvent event, Context context) {
+        logger.startInvocation(context.getAwsRequestId());
+        metrics.startInvocation();
         try {
-            System.out.println(event);
             String tenantId = extractTenantId(event);
+            logger.setContext(tenantId, null, event.getHeaders().get("x-correlation-id"));
+            if (!config.isKnownTenant(tenantId)) {
+                return buildErrorResponse(403, "Unknown tenant: " + tenantId);
+            }
+            metrics.setDimensions(tenantId, null);
+
+            if (STATUS_ROUTE_KEY.equals(event.getRouteKey())) {
+                return getStatuses(tenantId, event);
+            }
+
             String requestId = extractRequestId(event);
-            
-            QueryResult result = queryDynamoDB(tenantId, requestId);
-            
-            Optional<Map<String, AttributeValue>> item = result.getItems().stream()
-                    .findAny();
-            System.out.println("Processed item: " + item);
-
-            if (item.isEmpty()) {
+            if (requestId == null) {
+                return listDocuments(tenantId, event);
+            }
+            logger.setContext(null, requestId, null);
+
+            Map<String, AttributeValue> item = waitForTerminalStatus(tenantId, requestId, isConsistentRead(event),
+                    extractWaitMillis(event, context));
+            logger.info("Lookup of request", "found", item != null, "cacheHits", resultCache.getHits(), "cacheMisses",
+                    resultCache.getMisses(), "cacheBytes", resultCache.getBytes());
+
+            if (item == null) {
                 return buildNotFoundResponse();
             }
 
-            String queueResult = parseQueueResult(item.get());
+            if (item.containsKey("queueResultKey")) {
+                return resolveStoredResult(tenantId, item);
+            }
+
+            String queueResult = parseQueueResult(item);
             return buildSuccessResponse(queueResult);
 
         } catch (Exception e) {
+            logger.error("Request failed", e);
             throw new RuntimeException(e);
+        } finally {
+            metrics.flush();
+            logger.flush();
+        }
+    }
+
+    /**
+     * Long polling: enquanto o item existir e não estiver em status terminal,
+     * relê o item com backoff crescente (de {@link #WAIT_INITIAL_DELAY_MILLIS} a
+     * {@link #WAIT_MAX_DELAY_MILLIS}) até {@code waitMillis}; a última leitura
+     * acontece no fim do prazo. Com wait=0 (o padrão) é feita uma única leitura,
+     * como antes.
+     */
+    private Map<String, AttributeValue> waitForTerminalStatus(String tenantId, String requestId,
+            boolean consistentRead, long waitMillis) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + waitMillis;
+        long delay = WAIT_INITIAL_DELAY_MILLIS;
+
+        while (true) {
+            Map<String, AttributeValue> item = getItem(tenantId, requestId, consistentRead);
+            long remaining = deadline - System.currentTimeMillis();
+            if (item == null || isTerminal(item) || remaining <= 0) {
+                return item;
+            }
+
+            Thread.sleep(Math.min(delay, remaining));
+            delay = Math.min(delay * 2, WAIT_MAX_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Lê o parâmetro wait (em segundos), limitado a {@link #MAX_WAIT_SECONDS} e ao
+     * tempo restante da invocação.
+     */
+    private long extractWaitMillis(APIGatewayV2HTTPEvent event, Context context) {
+        Map<String, String> queryStringParameters = event.getQueryStringParameters();
+        String wait = queryStringParameters != null ? queryStringParameters.get("wait") : null;
+        if (wait == null) {
+            return 0;
+        }
+
+        long waitMillis;
+        try {
+            waitMillis = Duration.ofSeconds(Math.min(Math.max(Long.parseLong(wait), 0), MAX_WAIT_SECONDS)).toMillis();
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+
+        return Math.max(Math.min(waitMillis, context.getRemainingTimeInMillis() - WAIT_SAFETY_MARGIN_MILLIS), 0);
+    }
+
+    private boolean isTerminal(Map<String, AttributeValue> item) {
+        AttributeValue status = item.get("status");
+        return status != null && TERMINAL_STATUSES.contains(status.getS());
+    }
+
+    /**
+     * Busca o item pela chave primária lendo apenas os atributos usados na
+     * resposta. Itens em status terminal ficam no {@link TerminalResultCache}, e
+     * por isso nem a leitura fortemente consistente precisa ir à tabela.
+     */
+    private Map<String, AttributeValue> getItem(String tenantId, String requestId, boolean consistentRead) {
+        String cacheKey = tenantId + "#" + requestId;
+        Map<String, AttributeValue> item = resultCache.get(cacheKey);
+        if (item != null) {
+            return item;
+        }
+
+        GetItemRequest getItemRequest = new GetItemRequest()
+                .withTableName(config.buildTableName(tenantId))
+                .withKey(buildDynamoDBKey(tenantId, requestId))
+                .withProjectionExpression(RESULT_PROJECTION)
+                .withExpressionAttributeNames(Map.of("#status", "status"))
+                .withConsistentRead(consistentRead);
+
+        StageTimer timer = metrics.startTimer("queryDynamoDB");
+        try {
+            item = dynamoDbClient.getItem(getItemRequest).getItem();
+        } finally {
+            timer.stop();
+        }
+        if (item != null && item.get("status") != null && CACHEABLE_STATUS.equals(item.get("status").getS())) {
+            resultCache.put(cacheKey, item);
+        }
+        return item;
+    }
+
+    /**
+     * POST /documents/status: recebe até {@link #MAX_STATUS_REQUEST_IDS}
+     * requestIds do tenant e devolve o status de cada um (NOT_FOUND quando não
+     * existe). Com includeResult=true o resultado vai junto; resultados gravados
+     * no S3 são devolvidos como resultUrl pré-assinada.
+     */
+    private APIGatewayV2HTTPResponse getStatuses(String tenantId, APIGatewayV2HTTPEvent event) throws Exception {
+
+        JsonNode body = event.getBody() != null ? objectMapper.readTree(event.getBody()) : null;
+        if (body == null || !body.path("requestIds").isArray()) {
+            return buildErrorResponse(400, "'requestIds' must be an array");
+        }
+
+        Set<String> requestIds = new LinkedHashSet<>();
+        for (JsonNode requestId : body.get("requestIds")) {
+            if (!requestId.isTextual() || requestId.textValue().isEmpty()) {
+                return buildErrorResponse(400, "'requestIds' must contain only non-empty strings");
+            }
+            requestIds.add(requestId.textValue());
+        }
+        if (requestIds.isEmpty() || requestIds.size() > MAX_STATUS_REQUEST_IDS) {
+            return buildErrorResponse(400,
+                    String.format("'requestIds' must have between 1 and %d ids", MAX_STATUS_REQUEST_IDS));
+        }
+        boolean includeResult = body.path("includeResult").asBoolean(false);
+
+        Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (String requestId : requestIds) {
+            Map<String, AttributeValue> cached = resultCache.get(tenantId + "#" + requestId);
+            if (cached != null) {
+                items.put(requestId, cached);
+            } else {
+                keys.add(buildDynamoDBKey(tenantId, requestId));
+            }
+        }
+
+        Set<String> unavailable = ConcurrentHashMap.newKeySet();
+        String tableName = config.buildTableName(tenantId);
+
+        List<CompletableFuture<Void>> lookups = new ArrayList<>();
+        for (int start = 0; start < keys.size(); start += MAX_BATCH_GET_KEYS) {
+            List<Map<String, AttributeValue>> chunk = keys.subList(start,
+                    Math.min(start + MAX_BATCH_GET_KEYS, keys.size()));
+
+            lookups.add(CompletableFuture.runAsync(() -> {
+                List<Map<String, AttributeValue>> unprocessed = getBatchWithRetry(tableName, chunk, includeResult,
+                        tenantId, items);
+                for (Map<String, AttributeValue> key : unprocessed) {
+                    unavailable.add(key.get("sk").getS().substring("REQUEST_ID#".length()));
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0])).join();
+
+        logger.info("Status lookup", "requests", requestIds.size(), "fromCache", requestIds.size() - keys.size(),
+                "unavailable", unavailable.size());
+
+        return buildSuccessResponse(writeStatuses(tenantId, requestIds, items, unavailable, includeResult));
+    }
+
+    /**
+     * Executa o BatchGetItem de um bloco de chaves reenviando as UnprocessedKeys
+     * com backoff exponencial. Os itens lidos são colocados em {@code items}; as
+     * chaves que continuaram pendentes após a última tentativa são devolvidas.
+     */
+    private List<Map<String, AttributeValue>> getBatchWithRetry(String tableName,
+            List<Map<String, AttributeValue>> keys, boolean includeResult, String tenantId,
+            Map<String, Map<String, AttributeValue>> items) {
+
+        String projection = includeResult ? "sk, " + RESULT_PROJECTION : "sk, #status";
+
+        List<Map<String, AttributeValue>> pending = keys;
+        for (int attempt = 0; attempt < MAX_BATCH_GET_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                sleep(BATCH_GET_RETRY_BASE_DELAY_MILLIS << (attempt - 1));
+            }
+
+            KeysAndAttributes keysAndAttributes = new KeysAndAttributes().withKeys(pending)
+                    .withProjectionExpression(projection)
+                    .withExpressionAttributeNames(Map.of("#status", "status"));
+
+            BatchGetItemResult result;
+            StageTimer timer = metrics.startTimer("queryDynamoDB");
+            try {
+                result = dynamoDbClient.batchGetItem(
+                        new BatchGetItemRequest().withRequestItems(Map.of(tableName, keysAndAttributes)));
+            } finally {
+                timer.stop();
+            }
+
+            for (Map<String, AttributeValue> item : result.getResponses().getOrDefault(tableName, List.of())) {
+                String requestId = item.get("sk").getS().substring("REQUEST_ID#".length());
+                items.put(requestId, item);
+                if (includeResult && item.get("status") != null
+                        && CACHEABLE_STATUS.equals(item.get("status").getS())) {
+                    resultCache.put(tenantId + "#" + requestId, item);
+                }
+            }
+
+            Map<String, KeysAndAttributes> unprocessedKeys = result.getUnprocessedKeys();
+            KeysAndAttributes unprocessed = unprocessedKeys != null ? unprocessedKeys.get(tableName) : null;
+            pending = unprocessed != null ? unprocessed.getKeys() : List.of();
+        }
+
+        return pending;
+    }
+
+    private String writeStatuses(String tenantId, Set<String> requestIds,
+            Map<String, Map<String, AttributeValue>> items, Set<String> unavailable, boolean includeResult)
+            throws IOException {
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("tenantId", tenantId);
+            generator.writeObjectFieldStart("documents");
+
+            for (String requestId : requestIds) {
+                generator.writeObjectFieldStart(requestId);
+
+                Map<String, AttributeValue> item = items.get(requestId);
+                if (item == null) {
+                    generator.writeStringField("status", unavailable.contains(requestId) ? "UNAVAILABLE" : "NOT_FOUND");
+                } else {
+                    AttributeValue status = item.get("status");
+                    generator.writeStringField("status", status != null ? status.getS() : null);
+
+                    if (includeResult && item.get("queueResultKey") != null) {
+                        generator.writeStringField("resultUrl",
+                                generateResultUrl(tenantId, item.get("queueResultKey").getS()).toString());
+                    } else if (includeResult && item.get("queueResult") != null) {
+                        generator.writeFieldName("result");
+                        AttributeValue queueResult = item.get("queueResult");
+                        if (queueResult.getS() != null) {
+                            generator.writeRawValue(normalizeLegacyResult(queueResult.getS()));
+                        } else {
+                            AttributeValueJson.writeJson(queueResult, generator);
+                        }
+                    }
+                }
+
+                generator.writeEndObject();
+            }
+
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    /**
+     * GET /documents sem x-request-id: lista os documentos do tenant, do mais
+     * recente para o mais antigo, filtrando por status e pelo intervalo from/to
+     * de createdAt. Status não terminais usam o índice esparso de pendentes; os
+     * demais casos usam o índice de createdAt. Nenhum dos índices projeta o
+     * resultado do OCR, e a paginação usa um cursor opaco com o
+     * LastEvaluatedKey.
+     */
+    private APIGatewayV2HTTPResponse listDocuments(String tenantId, APIGatewayV2HTTPEvent event) throws Exception {
+
+        Map<String, String> parameters = event.getQueryStringParameters() != null ? event.getQueryStringParameters()
+                : Map.of();
+        String status = parameters.get("status");
+
+        int limit;
+        String from;
+        String to;
+        Map<String, AttributeValue> exclusiveStartKey;
+        try {
+            limit = parameters.containsKey("limit") ? Integer.parseInt(parameters.get("limit")) : DEFAULT_LIST_LIMIT;
+            from = parameters.containsKey("from") ? Instant.parse(parameters.get("from")).toString() : null;
+            to = parameters.containsKey("to") ? Instant.parse(parameters.get("to")).toString() : null;
+            exclusiveStartKey = parameters.containsKey("cursor") ? decodeCursor(parameters.get("cursor")) : null;
+        } catch (RuntimeException e) {
+            return buildErrorResponse(400, "Invalid listing parameters: " + e.getMessage());
+        }
+        if (limit < 1 || limit > MAX_LIST_LIMIT) {
+            return buildErrorResponse(400, String.format("'limit' must be between 1 and %d", MAX_LIST_LIMIT));
+        }
+
+        Map<String, String> names = new HashMap<>();
+        names.put("#status", "status");
+        Map<String, AttributeValue> values = new HashMap<>();
+
+        QueryRequest queryRequest = new QueryRequest().withTableName(config.buildTableName(tenantId))
+                .withProjectionExpression(LIST_PROJECTION)
+                .withScanIndexForward(false)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+
+        String keyCondition;
+        if (status != null && PENDING_STATUSES.contains(status) && pendingIndexEnabled) {
+            queryRequest.withIndexName(PENDING_INDEX);
+            keyCondition = "pendingStatus = :status";
+            values.put(":status", new AttributeValue(status));
+        } else {
+            queryRequest.withIndexName(CREATED_AT_INDEX);
+            keyCondition = "pk = :pk";
+            values.put(":pk", new AttributeValue("TENANT_ID#" + tenantId));
+            if (status != null) {
+                queryRequest.withFilterExpression("#status = :status");
+                values.put(":status", new AttributeValue(status));
+            }
+        }
+
+        if (from != null && to != null) {
+            keyCondition += " AND createdAt BETWEEN :from AND :to";
+            values.put(":from", new AttributeValue(from));
+            values.put(":to", new AttributeValue(to));
+        } else if (from != null) {
+            keyCondition += " AND createdAt >= :from";
+            values.put(":from", new AttributeValue(from));
+        } else if (to != null) {
+            keyCondition += " AND createdAt <= :to";
+            values.put(":to", new AttributeValue(to));
+        }
+
+        QueryResult result;
+        StageTimer timer = metrics.startTimer("queryDynamoDB");
+        try {
+            result = dynamoDbClient.query(queryRequest.withKeyConditionExpression(keyCondition)
+                    .withExpressionAttributeNames(names)
+                    .withExpressionAttributeValues(values));
+        } finally {
+            timer.stop();
+        }
+
+        logger.info("Listed documents", "count", result.getCount(), "indexName", queryRequest.getIndexName());
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("tenantId", tenantId);
+            generator.writeArrayFieldStart("documents");
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                generator.writeStartObject();
+                for (String attributeName : LIST_ATTRIBUTES) {
+                    AttributeValue value = item.get(attributeName);
+                    if (value != null) {
+                        generator.writeStringField(attributeName, value.getS());
+                    }
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeStringField("nextCursor", encodeCursor(result.getLastEvaluatedKey()));
+            generator.writeEndObject();
+        }
+
+        return buildSuccessResponse(writer.toString());
+    }
+
+    /**
+     * O cursor é o LastEvaluatedKey (só atributos string) em JSON codificado em
+     * base64url; os clientes devem tratá-lo como opaco.
+     */
+    private String encodeCursor(Map<String, AttributeValue> lastEvaluatedKey) throws IOException {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> cursor = new TreeMap<>();
+        lastEvaluatedKey.forEach((name, value) -> cursor.put(name, value.getS()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+    }
+
+    private Map<String, AttributeValue> decodeCursor(String cursor) {
+        try {
+            Map<String, String> values = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor),
+                    new TypeReference<Map<String, String>>() {
+                    });
+
+            Map<String, AttributeValue> key = new HashMap<>();
+            values.forEach((name, value) -> key.put(name, new AttributeValue(value)));
+            return key;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("malformed cursor", e);
         }
     }
 
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean isConsistentRead(APIGatewayV2HTTPEvent event) {
+        return "true".equalsIgnoreCase(event.getHeaders().get("x-consistent-read"));
+    }
+
     private Map<String, AttributeValue> buildDynamoDBKey(String tenantId, String requestId) {
         Map<String, AttributeValue> key = new HashMap<>();
         key.put("pk", new AttributeValue("TENANT_ID#" + tenantId));
@@ -76,29 +607,105 @@ public class Handler implements RequestHandler<APIGatewayV2HTTPEvent, APIGateway
         return event.getHeaders().get("x-request-id");
     }
 
-    private String parseQueueResult(Map<String, AttributeValue> item) {
-        if (item.get("queueResult") == null)
+    /**
+     * O resultado devolvido pela API é sempre o JSON produzido pelo OCR (o corpo
+     * da mensagem da fila de saída). O process_queue grava esse JSON como map;
+     * itens antigos trazem como string o envelope da mensagem e são normalizados
+     * por {@link #normalizeLegacyResult}.
+     */
+    private String parseQueueResult(Map<String, AttributeValue> item) throws IOException {
+        AttributeValue queueResult = item.get("queueResult");
+        if (queueResult == null)
             return null;
 
-        return item.get("queueResult").getS();
+        if (queueResult.getS() != null) {
+            return normalizeLegacyResult(queueResult.getS());
+        }
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            AttributeValueJson.writeJson(queueResult, generator);
+        }
+        return writer.toString();
     }
 
-    private QueryResult queryDynamoDB(String tenantId, String requestId) {
-        final Map<String, AttributeValue> key = buildDynamoDBKey(tenantId, requestId);
-        QueryRequest queryRequest = new QueryRequest()
-            .withTableName(config.buildTableName(tenantId))
-            .withKeyConditionExpression("pk = :pk AND sk = :sk")
-            .withExpressionAttributeValues(Map.of(":pk",key.get("pk"),":sk",key.get("sk")));
+    /**
+     * Itens gravados antes do resultado estruturado guardam como string o envelope
+     * da mensagem SQS ({@code messageId}, {@code receiptHandle}, {@code body},
+     * {@code attributes}, {@code messageAttributes}); desse envelope só o
+     * {@code body} é devolvido, no mesmo formato dos itens novos e sem expor o
+     * receiptHandle. Strings em outro formato são devolvidas como estão.
+     */
+    private String normalizeLegacyResult(String queueResult) throws IOException {
+        JsonNode envelope = objectMapper.readTree(queueResult);
+        if (envelope != null && envelope.isObject() && envelope.has("receiptHandle") && envelope.has("body")) {
+            return objectMapper.writeValueAsString(envelope.get("body"));
+        }
+        return queueResult;
+    }
+
+    /**
+     * Resolve o ponteiro gravado pelo process_queue para resultados grandes: até
+     * {@link #MAX_STREAMED_RESULT_BYTES} o objeto é lido do S3 e devolvido no
+     * corpo, conferindo o SHA-256; acima disso o cliente é redirecionado para uma
+     * URL pré-assinada.
+     */
+    private APIGatewayV2HTTPResponse resolveStoredResult(String tenantId, Map<String, AttributeValue> item)
+            throws Exception {
 
-        System.out.println(queryRequest);
+        String bucketName = config.buildBucketName(tenantId);
+        String resultKey = item.get("queueResultKey").getS();
+        long resultSize = Long.parseLong(item.get("queueResultSize").getN());
+
+        if (resultSize > MAX_STREAMED_RESULT_BYTES) {
+            return buildRedirectResponse(generateResultUrl(tenantId, resultKey).toString());
+        }
 
-        return dynamoDbClient.query(queryRequest);
+        return buildSuccessResponse(readStoredResult(bucketName, resultKey, item.get("queueResultChecksum").getS()));
+    }
+
+    private URL generateResultUrl(String tenantId, String resultKey) {
+        Date expiration = Date.from(Instant.now().plus(RESULT_URL_EXPIRATION));
+        return s3Client.generatePresignedUrl(new GeneratePresignedUrlRequest(config.buildBucketName(tenantId),
+                resultKey, HttpMethod.GET).withExpiration(expiration));
+    }
+
+    private String readStoredResult(String bucketName, String resultKey, String expectedChecksum) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        byte[] content;
+        try (S3Object object = s3Client.getObject(bucketName, resultKey);
+                InputStream input = new DigestInputStream(object.getObjectContent(), digest)) {
+            content = input.readAllBytes();
+        }
+
+        String checksum = Base64.getEncoder().encodeToString(digest.digest());
+        if (!checksum.equals(expectedChecksum)) {
+            throw new IOException(String.format("Checksum mismatch for s3://%s/%s", bucketName, resultKey));
+        }
+
+        return new String(content, StandardCharsets.UTF_8);
     }
 
     private APIGatewayV2HTTPResponse buildNotFoundResponse() {
         return APIGatewayV2HTTPResponse.builder().withStatusCode(404).build();
     }
 
+    private APIGatewayV2HTTPResponse buildErrorResponse(int statusCode, String message) throws Exception {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(statusCode)
+                .withHeaders(Map.of("Content-Type", "application/json"))
+                .withBody(objectMapper.writeValueAsString(Map.of("message", message)))
+                .build();
+    }
+
+    private APIGatewayV2HTTPResponse buildRedirectResponse(String location) {
+        return APIGatewayV2HTTPResponse.builder()
+                .withStatusCode(303)
+                .withHeaders(Map.of("Location", location))
+                .build();
+    }
+
     private APIGatewayV2HTTPResponse buildSuccessResponse(String body) {
         return APIGatewayV2HTTPResponse.builder()
                 .withStatusCode(200)
@@ -0,0 +1,145 @@
+package br.com.prognum.multi_tenants_ocr.to_api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Cache em memória, por container, dos itens que já chegaram a um status
+ * terminal. Esses itens não mudam mais, então consultas repetidas ao mesmo
+ * requestId podem ser atendidas sem ir à DynamoDB. O cache é limitado pelo
+ * tamanho estimado dos itens (os menos usados saem primeiro) e cada entrada
+ * expira após o TTL. Itens acima de {@code maxEntryBytes}, como os resultados
+ * antigos gravados como string de até 400 KB, não entram no cache: poucos
+ * deles ocupariam todo o orçamento.
+ */
+public class TerminalResultCache {
+
+    // Cabeçalho de objeto, referências e entrada do map, arredondados para cima.
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int ATTRIBUTE_OVERHEAD_BYTES = 64;
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TerminalResultCache(long maxBytes, long maxEntryBytes, long ttlMillis) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public synchronized Map<String, AttributeValue> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            if (entry != null) {
+                remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.item;
+    }
+
+    public synchronized void put(String key, Map<String, AttributeValue> item) {
+        long size = estimateSize(key, item);
+        if (size > maxEntryBytes) {
+            remove(key);
+            return;
+        }
+
+        Entry previous = entries.put(key, new Entry(item, size, System.currentTimeMillis() + ttlMillis));
+        bytes += size - (previous != null ? previous.size : 0);
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().size;
+            eldest.remove();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.size;
+        }
+    }
+
+    /**
+     * Estimativa do heap ocupado pelo item: dois bytes por caractere das strings
+     * (chaves, S e N) mais um custo fixo por atributo. Não precisa ser exata, só
+     * proporcional ao tamanho real.
+     */
+    static long estimateSize(String key, Map<String, AttributeValue> item) {
+        long size = ENTRY_OVERHEAD_BYTES + 2L * key.length();
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            size += 2L * attribute.getKey().length() + estimateSize(attribute.getValue());
+        }
+        return size;
+    }
+
+    private static long estimateSize(AttributeValue value) {
+        long size = ATTRIBUTE_OVERHEAD_BYTES;
+        if (value.getS() != null) {
+            size += 2L * value.getS().length();
+        } else if (value.getN() != null) {
+            size += 2L * value.getN().length();
+        } else if (value.getB() != null) {
+            size += value.getB().remaining();
+        } else if (value.getM() != null) {
+            for (Map.Entry<String, AttributeValue> entry : value.getM().entrySet()) {
+                size += 2L * entry.getKey().length() + estimateSize(entry.getValue());
+            }
+        } else if (value.getL() != null) {
+            for (AttributeValue element : value.getL()) {
+                size += estimateSize(element);
+            }
+        } else if (value.getSS() != null) {
+            for (String element : value.getSS()) {
+                size += ATTRIBUTE_OVERHEAD_BYTES + 2L * element.length();
+            }
+        } else if (value.getNS() != null) {
+            for (String element : value.getNS()) {
+                size += ATTRIBUTE_OVERHEAD_BYTES + 2L * element.length();
+            }
+        }
+        return size;
+    }
+
+    private static class Entry {
+        private final Map<String, AttributeValue> item;
+        private final long size;
+        private final long expiresAt;
+
+        private Entry(Map<String, AttributeValue> item, long size, long expiresAt) {
+            this.item = item;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package br.com.prognum.multi_tenants_ocr.to_api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.prognum.multi_tenant_ocr.common.utils.TenantRegistry;
+
+public class HandlerTest {
+
+    private static final String TENANT_ID = "tenant-a";
+    private static final String OCR_RESULT = "{\"requestId\":\"r-1\",\"campos\":{\"nome\":\"Maria\",\"pagina\":1}}";
+    private static final String LEGACY_ENVELOPE = "{\"messageId\":\"m-1\",\"receiptHandle\":\"handle\",\"body\":"
+            + OCR_RESULT + ",\"attributes\":{\"MessageGroupId\":\"tenant-a\"},\"messageAttributes\":{}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FakeDynamoDB dynamo = new FakeDynamoDB();
+    private final Handler handler = new Handler(dynamo, null, new TenantRegistry("table-<tenantId>",
+            "bucket-<tenantId>", null, null, null, List.of(TENANT_ID)));
+
+    @Test
+    public void legacyItemsReturnTheSameShapeAsStructuredItems() throws Exception {
+        dynamo.put("r-1", Map.of("status", new AttributeValue("PROCESSED"), "queueResult", new AttributeValue()
+                .withM(Map.of("requestId", new AttributeValue("r-1"), "campos", new AttributeValue().withM(Map.of(
+                        "nome", new AttributeValue("Maria"), "pagina", new AttributeValue().withN("1")))))));
+        dynamo.put("r-2", Map.of("status", new AttributeValue("PROCESSED"), "queueResult",
+                new AttributeValue(LEGACY_ENVELOPE)));
+
+        assertEquals(objectMapper.readTree(OCR_RESULT), objectMapper.readTree(get("r-1").getBody()));
+        assertEquals(objectMapper.readTree(OCR_RESULT), objectMapper.readTree(get("r-2").getBody()));
+    }
+
+    @Test
+    public void statusLookupNormalizesLegacyResults() throws Exception {
+        dynamo.put("r-2", Map.of("status", new AttributeValue("PROCESSED"), "queueResult",
+                new AttributeValue(LEGACY_ENVELOPE)));
+
+        APIGatewayV2HTTPEvent event = event(null);
+        event.setRouteKey("POST /documents/status");
+        event.setBody("{\"requestIds\": [\"r-2\"], \"includeResult\": true}");
+        APIGatewayV2HTTPResponse response = handler.handleRequest(event, new TestContext());
+
+        assertEquals(objectMapper.readTree(OCR_RESULT),
+                objectMapper.readTree(response.getBody()).path("documents").path("r-2").path("result"));
+    }
+
+    @Test
+    public void unknownStringResultsAreReturnedAsStored() throws Exception {
+        dynamo.put("r-3", Map.of("status", new AttributeValue("PROCESSED"), "queueResult",
+                new AttributeValue("{\"body\":\"texto\"}")));
+
+        assertEquals("{\"body\":\"texto\"}", get("r-3").getBody());
+    }
+
+    private APIGatewayV2HTTPResponse get(String requestId) {
+        return handler.handleRequest(event(requestId), new TestContext());
+    }
+
+    private APIGatewayV2HTTPEvent event(String requestId) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("x-tenant-id", TENANT_ID);
+        if (requestId != null) {
+            headers.put("x-request-id", requestId);
+        }
+
+        APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+        event.setRouteKey("GET /documents");
+        event.setHeaders(headers);
+        return event;
+    }
+
+    static class FakeDynamoDB extends AbstractAmazonDynamoDB {
+        private final Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+
+        void put(String requestId, Map<String, AttributeValue> attributes) {
+            Map<String, AttributeValue> item = new HashMap<>(attributes);
+            item.put("sk", new AttributeValue("REQUEST_ID#" + requestId));
+            items.put(requestId, item);
+        }
+
+        @Override
+        public GetItemResult getItem(GetItemRequest request) {
+            return new GetItemResult().withItem(items.get(requestId(request.getKey())));
+        }
+
+        @Override
+        public BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+            Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+            request.getRequestItems().forEach((tableName, keys) -> responses.put(tableName,
+                    keys.getKeys().stream().map(key -> items.get(requestId(key))).filter(item -> item != null)
+                            .collect(Collectors.toList())));
+            return new BatchGetItemResult().withResponses(responses);
+        }
+
+        private static String requestId(Map<String, AttributeValue> key) {
+            return key.get("sk").getS().substring("REQUEST_ID#".length());
+        }
+    }
+
+    static class TestContext implements Context {
+        @Override
+        public String getAwsRequestId() {
+            return "test-request";
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return null;
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return null;
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "to-api";
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return "$LATEST";
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return null;
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return 30_000;
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            return 512;
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.prognum.multi_tenants_ocr.to_api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+public class TerminalResultCacheTest {
+
+    private static final long TTL_MILLIS = 60_000;
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenOverByteBudget() {
+        long entrySize = TerminalResultCache.estimateSize("a", item(1000));
+        TerminalResultCache cache = new TerminalResultCache(3 * entrySize, entrySize, TTL_MILLIS);
+
+        cache.put("a", item(1000));
+        cache.put("b", item(1000));
+        cache.put("c", item(1000));
+        cache.get("a");
+        cache.put("d", item(1000));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.size());
+        assertTrue(cache.getBytes() <= 3 * entrySize);
+    }
+
+    @Test
+    public void skipsEntriesAboveEntryLimit() {
+        TerminalResultCache cache = new TerminalResultCache(10 * 1024 * 1024, 64 * 1024, TTL_MILLIS);
+
+        cache.put("small", item(1000));
+        cache.put("legacy", item(400 * 1024));
+
+        assertNotNull(cache.get("small"));
+        assertNull(cache.get("legacy"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void replacingEntryKeepsByteCountConsistent() {
+        TerminalResultCache cache = new TerminalResultCache(10 * 1024 * 1024, 1024 * 1024, TTL_MILLIS);
+
+        cache.put("a", item(1000));
+        cache.put("a", item(5000));
+
+        assertEquals(TerminalResultCache.estimateSize("a", item(5000)), cache.getBytes());
+    }
+
+    @Test
+    public void sizeGrowsWithNestedResult() {
+        Map<String, AttributeValue> nested = Map.of("status", new AttributeValue("PROCESSED"), "queueResult",
+                new AttributeValue().withM(Map.of("campos", new AttributeValue().withL(
+                        new AttributeValue("x".repeat(2000)), new AttributeValue().withN("12345")))));
+
+        assertTrue(TerminalResultCache.estimateSize("k", nested) > 4000);
+    }
+
+    private static Map<String, AttributeValue> item(int resultLength) {
+        return Map.of("status", new AttributeValue("PROCESSED"), "queueResult",
+                new AttributeValue("x".repeat(resultLength)));
+    }
+}